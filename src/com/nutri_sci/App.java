@@ -1,5 +1,11 @@
 package com.nutri_sci;
 
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.NutrientCatalog;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.service.MealDataNotifier;
+import com.nutri_sci.service.NutrientTimeSeriesStore;
+import com.nutri_sci.service.search.FoodSearchService;
 import com.nutri_sci.ui.SplashScreenUI;
 
 import javax.swing.*;
@@ -12,6 +18,29 @@ public class App {
             e.printStackTrace();
         }
 
+        // Load the read-only nutrient catalog and food search index in the background while the user picks a profile
+        // (the in-memory backend reads the CNF itself, so there is no database catalog to load)
+        boolean catalogEnabled = DatabaseConfig.getInstance().isNutrientCatalogEnabled() && !Repositories.isInMemoryBackend();
+        Thread catalogLoader = new Thread(() -> {
+            if (catalogEnabled) {
+                try {
+                    NutrientCatalog.getInstance();
+                } catch (RuntimeException e) {
+                    System.err.println("Nutrient catalog preload failed; it will be retried on first use.");
+                }
+            }
+            try {
+                FoodSearchService.getInstance().getIndex();
+            } catch (RuntimeException e) {
+                System.err.println("Food search index preload failed; it will be retried on first use.");
+            }
+        }, "nutrient-catalog-loader");
+        catalogLoader.setDaemon(true);
+        catalogLoader.start();
+
+        // Keep the nutrient time series in step with every meal saved from now on
+        MealDataNotifier.getInstance().addPropertyChangeListener(NutrientTimeSeriesStore.getInstance());
+
         // Run the application on edt
         SwingUtilities.invokeLater(() -> {
             new SplashScreenUI().setVisible(true);
@@ -0,0 +1,113 @@
+package com.nutri_sci.benchmark;
+
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.InMemoryRepository;
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.service.MealAggregator;
+import com.nutri_sci.service.NutrientCalculator;
+import com.nutri_sci.service.NutrientMemo;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Measures how meal aggregation scales with the number of fork/join threads: the per-meal nutrient
+ * totals of NutrientCalculator (memo disabled) and the sum of those totals over the whole range, for
+ * 10k and 100k synthetic meals over the CNF CSVs from cnf.csvDirectory. Every parallel result is
+ * checked to be bit-identical to the sequential one.
+ *
+ * Usage: AggregationScalingBenchmark [iterations]
+ */
+public class AggregationScalingBenchmark {
+
+    private static final int[] MEAL_COUNTS = {10_000, 100_000};
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        InMemoryRepository repository = InMemoryRepository.fromCsv(Paths.get(DatabaseConfig.getInstance().getCnfCsvDirectory()));
+        NutrientRegistry registry = repository.getNutrientRegistry();
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors available.");
+
+        for (int mealCount : MEAL_COUNTS) {
+            List<Meal> meals = generateMeals(repository.getAllFoods(), mealCount);
+            System.out.println("\n" + mealCount + " meals:");
+
+            NutrientCalculator sequentialCalculator = new NutrientCalculator(repository, repository, new NutrientMemo(0), MealAggregator.sequential());
+            List<NutrientVector> expectedTotals = sequentialCalculator.calculateMealNutrients(meals);
+            NutrientVector expectedSum = MealAggregator.sequential().sumNutrients(registry, expectedTotals);
+
+            double baseTotals = 0;
+            double baseSum = 0;
+            for (int threads : THREAD_COUNTS) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    MealAggregator aggregator = new MealAggregator(pool);
+                    NutrientCalculator calculator = new NutrientCalculator(repository, repository, new NutrientMemo(0), aggregator);
+
+                    List<NutrientVector> totals = calculator.calculateMealNutrients(meals);
+                    NutrientVector sum = aggregator.sumNutrients(registry, totals);
+                    if (!sameValues(expectedTotals, totals) || !sameValues(expectedSum, sum)) {
+                        throw new IllegalStateException(threads + " threads differ from the sequential results");
+                    }
+
+                    double[] totalsMillis = time(iterations, () -> calculator.calculateMealNutrients(meals));
+                    double[] sumMillis = time(iterations, () -> aggregator.sumNutrients(registry, totals));
+                    report(threads + " threads meal totals", totalsMillis);
+                    report(threads + " threads range sum", sumMillis);
+                    if (threads == 1) {
+                        baseTotals = median(totalsMillis);
+                        baseSum = median(sumMillis);
+                    }
+                    System.out.printf("  speedup vs 1 thread: meal totals %.2fx, range sum %.2fx%n",
+                            baseTotals / median(totalsMillis), baseSum / median(sumMillis));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+    }
+
+    /** Meals of 2-6 random foods, 10-300 g each, with resolved ingredients like meals logged through the UI. */
+    private static List<Meal> generateMeals(List<FoodItem> foods, int mealCount) {
+        Random random = new Random(42);
+        List<Meal> meals = new ArrayList<>(mealCount);
+        for (int i = 0; i < mealCount; i++) {
+            List<MealIngredient> ingredients = new ArrayList<>();
+            int lines = 2 + random.nextInt(5);
+            for (int j = 0; j < lines; j++) {
+                FoodItem food = foods.get(random.nextInt(foods.size()));
+                ingredients.add(new MealIngredient(j, food.getFoodId(), 10 + random.nextInt(291)));
+            }
+            Meal meal = new Meal();
+            meal.setResolvedIngredients(ingredients);
+            meals.add(meal);
+        }
+        return meals;
+    }
+
+    private static boolean sameValues(List<NutrientVector> expected, List<NutrientVector> actual) {
+        if (expected.size() != actual.size()) return false;
+        for (int i = 0; i < expected.size(); i++) {
+            if (!sameValues(expected.get(i), actual.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameValues(NutrientVector expected, NutrientVector actual) {
+        for (int n = 0; n < expected.getRegistry().size(); n++) {
+            if (Double.doubleToLongBits(expected.getAt(n)) != Double.doubleToLongBits(actual.getAt(n))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,187 @@
+package com.nutri_sci.benchmark;
+
+import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.DatabaseConfig;
+
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Calendar;
+
+/**
+ * Shared plumbing for the query benchmarks: a direct connection, a throw-away user with a
+ * synthetic meal log, EXPLAIN output and simple timing statistics.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Opens a dedicated connection to the application schema, running DBManager's table
+     * creation and migrations first so every benchmarked column and index exists.
+     */
+    static Connection openConnection() throws SQLException {
+        DBManager.getInstance();
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        return DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+    }
+
+    static int createUser(Connection conn) throws SQLException {
+        String sql = "INSERT INTO USER_PROFILE (ProfileName, Sex, MeasurementUnit) VALUES (?, 'Other', 'Metric')";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, "benchmark-" + System.currentTimeMillis());
+            pstmt.executeUpdate();
+            ResultSet keys = pstmt.getGeneratedKeys();
+            keys.next();
+            return keys.getInt(1);
+        }
+    }
+
+    /**
+     * Deletes the benchmark user; its meals go with it through ON DELETE CASCADE.
+     */
+    static void deleteUser(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM USER_PROFILE WHERE UserID = ?")) {
+            pstmt.setInt(1, userId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserts one meal per hour going back in time, cycling through the meal types; every n-th
+     * meal is swapped, which adds a replacement row and flags the original the same way saveMeal does.
+     */
+    static void populateMeals(Connection conn, int userId, int mealCount, int swapEvery) throws SQLException {
+        String[] mealTypes = {"Breakfast", "Lunch", "Dinner", "Snack"};
+        String insert = "INSERT INTO MEAL_LOG (UserID, MealDate, MealType, Ingredients, EstimatedCalories, IsSwapped, OriginalMealID) VALUES (?, ?, ?, '100g benchmark', 100, ?, ?)";
+        String flag = "UPDATE MEAL_LOG SET IsReplaced = TRUE, SupersededBy = ? WHERE MealID = ?";
+        Calendar calendar = Calendar.getInstance();
+        long start = System.currentTimeMillis();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(insert, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement flagStmt = conn.prepareStatement(flag)) {
+            for (int i = 0; i < mealCount; i++) {
+                calendar.add(Calendar.HOUR_OF_DAY, -1);
+                Timestamp mealDate = new Timestamp(calendar.getTimeInMillis());
+                String mealType = mealTypes[i % mealTypes.length];
+                int mealId = insertMeal(pstmt, userId, mealDate, mealType, null);
+                if (swapEvery > 0 && i % swapEvery == 0) {
+                    int swapId = insertMeal(pstmt, userId, mealDate, mealType, mealId);
+                    flagStmt.setInt(1, swapId);
+                    flagStmt.setInt(2, mealId);
+                    flagStmt.executeUpdate();
+                }
+                if (i % 5000 == 0) {
+                    conn.commit();
+                }
+            }
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        System.out.println("Inserted " + mealCount + " meals in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    private static int insertMeal(PreparedStatement pstmt, int userId, Timestamp mealDate, String mealType, Integer originalMealId) throws SQLException {
+        pstmt.setInt(1, userId);
+        pstmt.setTimestamp(2, mealDate);
+        pstmt.setString(3, mealType);
+        pstmt.setBoolean(4, originalMealId != null);
+        if (originalMealId != null) {
+            pstmt.setInt(5, originalMealId);
+        } else {
+            pstmt.setNull(5, Types.INTEGER);
+        }
+        pstmt.executeUpdate();
+        ResultSet keys = pstmt.getGeneratedKeys();
+        keys.next();
+        return keys.getInt(1);
+    }
+
+    static void explain(Connection conn, String label, String query, Object... params) throws SQLException {
+        System.out.println("\n" + label + ":");
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + query)) {
+            bind(pstmt, params);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                System.out.printf("  %-8s table=%-16s type=%-6s key=%-28s rows=%-8s extra=%s%n",
+                        rs.getString("select_type"), rs.getString("table"), rs.getString("type"),
+                        rs.getString("key"), rs.getString("rows"), rs.getString("Extra"));
+            }
+        }
+    }
+
+    /**
+     * Runs the query once to warm up, then the given number of times, reading every row.
+     * @return The elapsed time of each timed run, in milliseconds.
+     */
+    static double[] time(Connection conn, String query, int iterations, Object... params) throws SQLException {
+        double[] millis = new double[iterations];
+        try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+            bind(pstmt, params);
+            for (int i = -1; i < iterations; i++) {
+                long start = System.nanoTime();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        // Read every row so the whole result is transferred.
+                    }
+                }
+                if (i >= 0) {
+                    millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+                }
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * Runs the action once to warm up, then the given number of times.
+     * @return The elapsed time of each timed run, in milliseconds.
+     */
+    static double[] time(int iterations, Runnable action) {
+        double[] millis = new double[iterations];
+        for (int i = -1; i < iterations; i++) {
+            long start = System.nanoTime();
+            action.run();
+            if (i >= 0) {
+                millis[i] = (System.nanoTime() - start) / 1_000_000.0;
+            }
+        }
+        return millis;
+    }
+
+    static void report(String label, double[] millis) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (double value : sorted) sum += value;
+        System.out.printf("%-28s avg=%.2f ms, median=%.2f ms, min=%.2f ms, max=%.2f ms (%d runs)%n",
+                label, sum / sorted.length, sorted[sorted.length / 2], sorted[0], sorted[sorted.length - 1], sorted.length);
+    }
+
+    static double median(double[] millis) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /** @return The nearest-rank percentile, e.g. 0.99 for the p99. */
+    static double percentile(double[] millis, double fraction) {
+        double[] sorted = millis.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+    }
+
+    /** For latencies timed one call at a time, where the tail matters more than the average. */
+    static void reportPercentiles(String label, double[] millis) {
+        System.out.printf("%-28s p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, max=%.3f ms (%d calls)%n", label,
+                percentile(millis, 0.50), percentile(millis, 0.90), percentile(millis, 0.99), percentile(millis, 1.0), millis.length);
+    }
+
+    private static void bind(PreparedStatement pstmt, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+    }
+}
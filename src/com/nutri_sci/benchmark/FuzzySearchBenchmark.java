@@ -0,0 +1,127 @@
+package com.nutri_sci.benchmark;
+
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.InMemoryRepository;
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.service.search.FoodSearchIndex;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Measures the per-keystroke latency of autocomplete and the latency of typo-tolerant search over
+ * FOOD_NAME read from the CNF CSVs in cnf.csvDirectory. Every call is timed on its own and the
+ * p99 is compared with the 5 ms budget for a keystroke.
+ *
+ * The index is first checked to find the intended food for one typo of each kind (substitution,
+ * insertion, deletion and adjacent transposition); a transposition changes up to four trigrams, so it
+ * is the case the trigram filter most easily gets wrong. Typos of words the CSVs do not contain are skipped.
+ *
+ * Usage: FuzzySearchBenchmark [typed queries]
+ */
+public class FuzzySearchBenchmark {
+    private static final double KEYSTROKE_BUDGET_MILLIS = 5.0;
+    private static final int LIMIT = 8; // IngredientAutocomplete's popup size
+
+    // {typed, word the intended food must contain}
+    private static final String[][] TYPOS = {
+            {"borth", "broth"}, {"aplpe", "apple"}, {"berast", "breast"}, {"chikcen", "chicken"},
+            {"brocoli", "broccoli"}, {"chedddar", "cheddar"}, {"salmun", "salmon"}, {"lentisl", "lentils"}};
+
+    public static void main(String[] args) throws IOException {
+        int queryCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        InMemoryRepository repository = InMemoryRepository.fromCsv(Paths.get(DatabaseConfig.getInstance().getCnfCsvDirectory()));
+        List<FoodItem> foods = repository.getAllFoods();
+        FoodSearchIndex index = FoodSearchIndex.build(foods);
+        if (!findsTypos(foods, index)) {
+            System.out.println("Typo search misses the intended food; not timing it.");
+            return;
+        }
+
+        List<String> queries = generateQueries(foods, queryCount, new Random(42));
+        int keystrokes = 0;
+        for (String query : queries) keystrokes += query.length();
+        System.out.println(index.getFoodCount() + " foods, " + index.getTokenCount() + " distinct tokens, "
+                + queries.size() + " typed queries (" + keystrokes + " keystrokes):");
+
+        // One untimed pass to warm up, then every call timed on its own.
+        timeKeystrokes(index, queries);
+        double[] autocomplete = timeKeystrokes(index, queries);
+        double[] fuzzy = new double[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            index.findFuzzy(queries.get(i), LIMIT);
+            fuzzy[i] = (System.nanoTime() - start) / 1_000_000.0;
+        }
+
+        reportPercentiles("autocomplete per keystroke", autocomplete);
+        reportPercentiles("findFuzzy per query", fuzzy);
+        double p99 = percentile(autocomplete, 0.99);
+        System.out.printf("autocomplete p99 %.3f ms is %s the %.0f ms keystroke budget.%n",
+                p99, p99 < KEYSTROKE_BUDGET_MILLIS ? "within" : "OVER", KEYSTROKE_BUDGET_MILLIS);
+    }
+
+    /** Calls autocomplete for every prefix of every query, as IngredientAutocomplete does while typing. */
+    private static double[] timeKeystrokes(FoodSearchIndex index, List<String> queries) {
+        List<Double> millis = new ArrayList<>();
+        for (String query : queries) {
+            for (int length = 1; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                long start = System.nanoTime();
+                index.autocomplete(typed, LIMIT);
+                millis.add((System.nanoTime() - start) / 1_000_000.0);
+            }
+        }
+        return millis.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static boolean findsTypos(List<FoodItem> foods, FoodSearchIndex index) {
+        boolean found = true;
+        for (String[] typo : TYPOS) {
+            if (foods.stream().noneMatch(food -> contains(food, typo[1]))) {
+                System.out.println("Skipping '" + typo[0] + "': no food contains '" + typo[1] + "'.");
+                continue;
+            }
+            List<FoodItem> results = index.findFuzzy(typo[0], 10);
+            if (results.stream().noneMatch(food -> contains(food, typo[1]))) {
+                System.out.println("No food with '" + typo[1] + "' found for '" + typo[0] + "': " + results);
+                found = false;
+            }
+        }
+        return found;
+    }
+
+    private static boolean contains(FoodItem food, String word) {
+        return food.getDescription().toLowerCase(Locale.ROOT).contains(word);
+    }
+
+    /**
+     * The first one or two words of random food descriptions, the way users start typing them,
+     * with one typo (a swapped, dropped or doubled letter) in about a third of them.
+     */
+    private static List<String> generateQueries(List<FoodItem> foods, int count, Random random) {
+        List<String> queries = new ArrayList<>(count);
+        while (queries.size() < count) {
+            String[] words = foods.get(random.nextInt(foods.size())).getDescription()
+                    .toLowerCase(Locale.ROOT).replace(",", "").split("\\s+");
+            String query = words.length > 1 && random.nextBoolean() ? words[0] + " " + words[1] : words[0];
+            if (query.length() < 2) continue;
+            if (random.nextInt(3) == 0 && query.length() > 4) {
+                int at = 1 + random.nextInt(query.length() - 2);
+                switch (random.nextInt(3)) {
+                    case 0: query = query.substring(0, at) + query.charAt(at + 1) + query.charAt(at) + query.substring(at + 2); break;
+                    case 1: query = query.substring(0, at) + query.substring(at + 1); break;
+                    default: query = query.substring(0, at) + query.charAt(at) + query.substring(at);
+                }
+            }
+            queries.add(query);
+        }
+        return queries;
+    }
+}
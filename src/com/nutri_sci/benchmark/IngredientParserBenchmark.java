@@ -0,0 +1,100 @@
+package com.nutri_sci.benchmark;
+
+import com.nutri_sci.model.IngredientParser;
+import com.nutri_sci.model.ParsedIngredient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Compares the throughput of the regex-based ingredient parsing the services used to do (split the
+ * text, trim every line, match the pattern, trim the description) with {@link IngredientParser},
+ * on a synthetic meal log. Both parsers are first checked to accept the same lines with the same result.
+ * Needs no database.
+ *
+ * Usage: IngredientParserBenchmark [meals] [iterations]
+ */
+public class IngredientParserBenchmark {
+    private static final Pattern INGREDIENT_LINE = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
+
+    private static final String[] FOODS = {
+            "Chicken, broiler, breast, meat only, roasted", "Apple, raw, with skin", "Rice, white, long-grain, cooked",
+            "Egg, chicken, whole, raw", "Broccoli, raw", "Bread, whole-wheat, commercial", "Milk, partly skimmed, 2% M.F.",
+            "Salmon, Atlantic, farmed, cooked, dry heat", "Cheese, cheddar", "Lentils, boiled, salted"};
+
+    public static void main(String[] args) {
+        int mealCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        List<String> meals = generateMeals(mealCount, new Random(42));
+        int lines = 0;
+        for (String meal : meals) lines += regexParse(meal).size();
+        if (!sameResults(meals)) {
+            System.out.println("The parsers disagree; not timing them.");
+            return;
+        }
+        System.out.println(mealCount + " meals, " + lines + " ingredient lines:");
+
+        double[] regex = time(iterations, () -> meals.forEach(IngredientParserBenchmark::regexParse));
+        double[] parser = time(iterations, () -> meals.forEach(IngredientParser::parse));
+        report("regex", regex);
+        report("IngredientParser", parser);
+        System.out.printf("%-28s %.2f M lines/s regex, %.2f M lines/s IngredientParser%n", "throughput",
+                lines / median(regex) / 1000.0, lines / median(parser) / 1000.0);
+    }
+
+    /** The parsing previously duplicated across DBManager, NutrientCalculator, SwapEngine and the controllers. */
+    private static List<ParsedIngredient> regexParse(String ingredients) {
+        List<ParsedIngredient> parsed = new ArrayList<>();
+        String[] lines = ingredients.split("\\n");
+        for (int lineNo = 0; lineNo < lines.length; lineNo++) {
+            Matcher matcher = INGREDIENT_LINE.matcher(lines[lineNo].trim());
+            if (matcher.matches()) {
+                parsed.add(new ParsedIngredient(matcher.group(1), Double.parseDouble(matcher.group(1)), matcher.group(2).trim(), lineNo));
+            }
+        }
+        return parsed;
+    }
+
+    private static boolean sameResults(List<String> meals) {
+        for (String meal : meals) {
+            List<ParsedIngredient> expected = regexParse(meal);
+            List<ParsedIngredient> actual = IngredientParser.parse(meal);
+            if (!expected.toString().equals(actual.toString())) {
+                System.out.println("Mismatch for " + meal.replace("\n", "\\n") + ": " + expected + " vs " + actual);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Meals of one to six lines in the formats users actually type ("100g x", "100 g x", "2.5G x",
+     * blank lines, stray whitespace), with an occasional malformed line.
+     */
+    private static List<String> generateMeals(int count, Random random) {
+        List<String> meals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder meal = new StringBuilder();
+            int lineCount = 1 + random.nextInt(6);
+            for (int line = 0; line < lineCount; line++) {
+                String food = FOODS[random.nextInt(FOODS.length)];
+                switch (random.nextInt(8)) {
+                    case 0: meal.append(random.nextInt(500)).append(" g ").append(food); break;
+                    case 1: meal.append(random.nextInt(50)).append('.').append(random.nextInt(10)).append("G ").append(food); break;
+                    case 2: meal.append("  ").append(random.nextInt(500)).append("g\t").append(food).append("  "); break;
+                    case 3: meal.append(random.nextInt(10) == 0 ? "some " + food : ""); break;
+                    default: meal.append(random.nextInt(500)).append("g ").append(food);
+                }
+                meal.append('\n');
+            }
+            meals.add(meal.toString());
+        }
+        return meals;
+    }
+}
@@ -0,0 +1,46 @@
+package com.nutri_sci.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Compares the old and new ways of hiding replaced meals in the meal journal query:
+ * the "MealID NOT IN (SELECT OriginalMealID ...)" subquery against the indexed IsReplaced flag.
+ *
+ * A throw-away user with a large synthetic meal log is created, both queries are timed and
+ * their EXPLAIN plans printed, and the user (with its meals) is deleted again.
+ *
+ * Usage: MealLogQueryBenchmark [meals] [swap every n-th meal] [iterations]
+ */
+public class MealLogQueryBenchmark {
+
+    private static final String OLD_QUERY = "SELECT * FROM MEAL_LOG WHERE UserID = ? "
+            + "AND MealID NOT IN (SELECT OriginalMealID FROM MEAL_LOG WHERE OriginalMealID IS NOT NULL AND UserID = ?) "
+            + "ORDER BY MealDate DESC";
+    private static final String NEW_QUERY = "SELECT * FROM MEAL_LOG WHERE UserID = ? AND IsReplaced = FALSE "
+            + "ORDER BY MealDate DESC";
+
+    public static void main(String[] args) throws SQLException {
+        int mealCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int swapEvery = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        try (Connection conn = openConnection()) {
+            int userId = createUser(conn);
+            try {
+                populateMeals(conn, userId, mealCount, swapEvery);
+
+                explain(conn, "Old plan (NOT IN subquery)", OLD_QUERY, userId, userId);
+                explain(conn, "New plan (IsReplaced index)", NEW_QUERY, userId);
+
+                System.out.println();
+                report("NOT IN subquery", time(conn, OLD_QUERY, iterations, userId, userId));
+                report("IsReplaced flag", time(conn, NEW_QUERY, iterations, userId));
+            } finally {
+                deleteUser(conn, userId);
+            }
+        }
+    }
+}
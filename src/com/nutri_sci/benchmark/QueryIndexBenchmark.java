@@ -0,0 +1,95 @@
+package com.nutri_sci.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Before/after timings for the queries covered by the index migration (version 4).
+ * The "before" variant of each query runs with IGNORE INDEX (or, for the meal-type check,
+ * with the old DATE(MealDate) predicate), so the indexes do not have to be dropped to compare.
+ *
+ * Requires a database loaded with the CNF tables.
+ * Usage: QueryIndexBenchmark [meals for the meal-type check] [iterations]
+ */
+public class QueryIndexBenchmark {
+
+    public static void main(String[] args) throws SQLException {
+        int mealCount = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        try (Connection conn = openConnection()) {
+            benchmarkNutrientRank(conn, iterations);
+            benchmarkFoodsFromGroup(conn, iterations);
+            benchmarkExactDescription(conn, iterations);
+            benchmarkMealTypeOnDate(conn, mealCount, iterations);
+        }
+    }
+
+    private static void compare(Connection conn, String title, String before, String after, int iterations, Object... params) throws SQLException {
+        System.out.println("\n=== " + title + " ===");
+        explain(conn, "Before", before, params);
+        explain(conn, "After", after, params);
+        report("before", time(conn, before, iterations, params));
+        report("after", time(conn, after, iterations, params));
+    }
+
+    // getFoodsByNutrientRank: top 300 foods by energy.
+    private static void benchmarkNutrientRank(Connection conn, int iterations) throws SQLException {
+        String query = "SELECT FN.FoodDescription FROM NUTRIENT_AMOUNT NA %s "
+                + "JOIN FOOD_NAME FN ON NA.FoodID = FN.FoodID "
+                + "WHERE NA.NutrientID = ? ORDER BY NA.NutrientValue DESC LIMIT 300";
+        compare(conn, "getFoodsByNutrientRank",
+                String.format(query, "IGNORE INDEX (idx_nutrient_amount_rank)"), String.format(query, ""),
+                iterations, 208);
+    }
+
+    // getFoodsFromGroup: every food of one group.
+    private static void benchmarkFoodsFromGroup(Connection conn, int iterations) throws SQLException {
+        String query = "SELECT FN.FoodDescription FROM FOOD_NAME FN %s JOIN FOOD_GROUP FG %s "
+                + "ON FN.FoodGroupID = FG.FoodGroupID WHERE FG.FoodGroupName = ?";
+        compare(conn, "getFoodsFromGroup",
+                String.format(query, "IGNORE INDEX (idx_food_name_group)", "IGNORE INDEX (idx_food_group_name)"),
+                String.format(query, "", ""),
+                iterations, "Vegetables and Vegetable Products");
+    }
+
+    // findFoodIdByExactDescription: equality on the TEXT description column.
+    private static void benchmarkExactDescription(Connection conn, int iterations) throws SQLException {
+        String query = "SELECT FoodID FROM FOOD_NAME %s WHERE FoodDescription = ? LIMIT 1";
+        compare(conn, "findFoodIdByExactDescription",
+                String.format(query, "IGNORE INDEX (idx_food_name_description)"), String.format(query, ""),
+                iterations, "Apple, raw, with skin");
+    }
+
+    // hasUserLoggedMealTypeOnDate: DATE(MealDate) = ? against a [day, next day) range.
+    private static void benchmarkMealTypeOnDate(Connection conn, int mealCount, int iterations) throws SQLException {
+        int userId = createUser(conn);
+        try {
+            populateMeals(conn, userId, mealCount, 0);
+
+            Calendar calendar = Calendar.getInstance();
+            calendar.add(Calendar.DAY_OF_MONTH, -30);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            Timestamp dayStart = new Timestamp(calendar.getTimeInMillis());
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+            Timestamp nextDayStart = new Timestamp(calendar.getTimeInMillis());
+
+            String before = "SELECT COUNT(*) FROM MEAL_LOG WHERE UserID = ? AND MealType = ? AND DATE(MealDate) = DATE(?)";
+            String after = "SELECT COUNT(*) FROM MEAL_LOG WHERE UserID = ? AND MealType = ? AND MealDate >= ? AND MealDate < ?";
+            System.out.println("\n=== hasUserLoggedMealTypeOnDate ===");
+            explain(conn, "Before (DATE(MealDate))", before, userId, "Lunch", dayStart);
+            explain(conn, "After (MealDate range)", after, userId, "Lunch", dayStart, nextDayStart);
+            report("before", time(conn, before, iterations, userId, "Lunch", dayStart));
+            report("after", time(conn, after, iterations, userId, "Lunch", dayStart, nextDayStart));
+        } finally {
+            deleteUser(conn, userId);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.nutri_sci.benchmark;
+
+import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.InMemoryRepository;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.ProfileRepository;
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.UserProfile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static com.nutri_sci.benchmark.BenchmarkSupport.*;
+
+/**
+ * Runs the same repository calls against the in-memory backend (CNF CSVs from cnf.csvDirectory)
+ * and the MySQL backend, so their latencies can be compared directly. The MySQL run is skipped
+ * if no server is reachable, which lets the in-memory numbers be produced on a bare machine.
+ *
+ * Usage: RepositoryBenchmark [iterations] [memory|mysql|both]
+ */
+public class RepositoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String backend = args.length > 1 ? args[1] : "both";
+
+        if (!backend.equalsIgnoreCase("mysql")) {
+            InMemoryRepository memory = InMemoryRepository.fromCsv(Paths.get(DatabaseConfig.getInstance().getCnfCsvDirectory()));
+            run("memory", memory, memory, memory, iterations);
+        }
+        if (!backend.equalsIgnoreCase("memory")) {
+            DBManager mysql;
+            try {
+                mysql = DBManager.getInstance();
+            } catch (RuntimeException e) {
+                System.out.println("\nMySQL backend not reachable, skipping it: " + e.getMessage());
+                return;
+            }
+            int userId = run("mysql", mysql, mysql, mysql, iterations);
+            try (Connection conn = openConnection()) {
+                deleteUser(conn, userId);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return The ID of the benchmark user that was created.
+     */
+    private static int run(String label, FoodCatalogRepository foods, MealRepository meals, ProfileRepository profiles, int iterations) {
+        System.out.println("\n" + label + " backend:");
+        Random random = new Random(42);
+        List<FoodItem> allFoods = foods.getAllFoods();
+        List<Integer> foodIds = new ArrayList<>();
+        allFoods.forEach(food -> foodIds.add(food.getFoodId()));
+
+        report(label + " suggestions", time(iterations, () -> foods.findFoodSuggestions("chicken breast", 10)));
+        report(label + " profiles x10", time(iterations, () -> {
+            List<Integer> sample = new ArrayList<>();
+            for (int i = 0; i < 10; i++) sample.add(foodIds.get(random.nextInt(foodIds.size())));
+            foods.getComprehensiveNutrientProfilesByIds(sample);
+        }));
+        report(label + " food groups x10", time(iterations, () -> {
+            List<Integer> sample = new ArrayList<>();
+            for (int i = 0; i < 10; i++) sample.add(foodIds.get(random.nextInt(foodIds.size())));
+            foods.getFoodGroupsByIds(sample);
+        }));
+
+        UserProfile user = new UserProfile();
+        user.setName("benchmark-" + System.currentTimeMillis());
+        user.setSex("Other");
+        user.setDateOfBirth(new Date(0));
+        user.setMeasurementUnit("Metric");
+        profiles.saveProfile(user);
+
+        String ingredients = "100g " + allFoods.get(0).getDescription() + "\n50g " + allFoods.get(1).getDescription();
+        long[] mealTime = {System.currentTimeMillis()};
+        report(label + " saveMeal", time(iterations, () -> {
+            Meal meal = new Meal();
+            meal.setDate(new Date(mealTime[0] -= 3_600_000L));
+            meal.setMealType("Snack");
+            meal.setIngredients(ingredients);
+            meals.saveMeal(user.getId(), meal);
+        }));
+        report(label + " journal page", time(iterations, () -> meals.getMealPage(user.getId(), null, 100)));
+        return user.getId();
+    }
+}
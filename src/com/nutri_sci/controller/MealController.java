@@ -1,32 +1,38 @@
 package com.nutri_sci.controller;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
 import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.IngredientParser;
 import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
 import com.nutri_sci.model.UserProfile;
 import com.nutri_sci.service.MealDataNotifier;
 import com.nutri_sci.service.NutrientCalculator;
+import com.nutri_sci.service.search.FoodSearchService;
 import com.nutri_sci.ui.IngredientResolverDialog;
 
 import javax.swing.*;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Handles business logic related to meal logging and interacts with the database.
  */
 public class MealController {
-    private final DBManager dbManager;
+    private final MealRepository mealRepository;
     private final NutrientCalculator nutrientCalculator;
-    private final Pattern ingredientPattern = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
+    private final FoodSearchService foodSearchService;
 
     public MealController() {
-        this.dbManager = DBManager.getInstance();
+        this.mealRepository = Repositories.getMeals();
         this.nutrientCalculator = new NutrientCalculator();
+        this.foodSearchService = FoodSearchService.getInstance();
     }
 
     /**
@@ -38,14 +44,15 @@ public class MealController {
             return false;
         }
 
-        if (!mealType.equals("Snack") && dbManager.hasUserLoggedMealTypeOnDate(user.getId(), mealType, date)) {
+        if (!mealType.equals("Snack") && mealRepository.hasUserLoggedMealTypeOnDate(user.getId(), mealType, date)) {
             JOptionPane.showMessageDialog(owner, "You have already logged a " + mealType + " for this day.", "Validation Error", JOptionPane.ERROR_MESSAGE);
             return false;
         }
 
         try {
             // Resolve ingredients before proceeding
-            String verifiedIngredients = resolveIngredients(rawIngredients, owner);
+            List<MealIngredient> resolvedIngredients = new ArrayList<>();
+            String verifiedIngredients = resolveIngredients(rawIngredients, owner, resolvedIngredients);
             if (verifiedIngredients == null) {
                 return false; // User cancelled or an error occurred
             }
@@ -54,16 +61,16 @@ public class MealController {
             meal.setDate(date);
             meal.setMealType(mealType);
             meal.setIngredients(verifiedIngredients);
+            meal.setResolvedIngredients(resolvedIngredients);
 
-            Map<String, Double> nutrients = nutrientCalculator.calculateNutrientsForMeal(verifiedIngredients);
+            NutrientVector nutrients = nutrientCalculator.calculateNutrientsForMeal(meal);
 
-            // **FIX**: Use the new helper method to find the correct calorie value
-            meal.setEstimatedCalories(getCalorieValue(nutrients));
+            meal.setEstimatedCalories(nutrients.get(NutrientRegistry.ENERGY_KCAL));
             meal.setNutrientBreakdown(nutrients);
 
-            if (dbManager.saveMeal(user.getId(), meal)) {
+            if (mealRepository.saveMeal(user.getId(), meal)) {
                 JOptionPane.showMessageDialog(owner, "Meal logged successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                MealDataNotifier.getInstance().notifyMealDataChanged();
+                MealDataNotifier.getInstance().notifyMealsSaved(Collections.singletonList(meal));
                 return true;
             } else {
                 JOptionPane.showMessageDialog(owner, "Failed to log meal.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -76,32 +83,16 @@ public class MealController {
         }
     }
 
-    /**
-     * **NEW**: Helper method to find the calorie value from the comprehensive nutrient map.
-     * This makes the retrieval logic robust against changes in nutrient naming.
-     *
-     * @param nutrients The map of all nutrients calculated for a meal.
-     * @return The total kilocalories for the meal.
-     */
-    private double getCalorieValue(Map<String, Double> nutrients) {
-        for (Map.Entry<String, Double> entry : nutrients.entrySet()) {
-            // Check for the official name for calories from the database.
-            if (entry.getKey().toUpperCase().startsWith("ENERGY (KILOCALORIES)")) {
-                return entry.getValue();
-            }
-        }
-        return 0.0;
-    }
-
     /**
      * Iterates through raw ingredient lines, finds suggestions, and prompts the user for clarification.
      *
      * @param rawIngredients The raw text from the ingredients text area.
      * @param owner          The parent frame for the dialog.
+     * @param resolved       Receives the selected FoodID and weight of every verified line, in order.
      * @return A string of verified ingredients, or null if the process is cancelled.
      * @throws Exception if an ingredient cannot be resolved.
      */
-    private String resolveIngredients(String rawIngredients, JFrame owner) throws Exception {
+    private String resolveIngredients(String rawIngredients, JFrame owner, List<MealIngredient> resolved) throws Exception {
         String[] lines = rawIngredients.split("\\n");
         StringBuilder verifiedIngredientsBuilder = new StringBuilder();
 
@@ -111,23 +102,27 @@ public class MealController {
         for (String line : lines) {
             if (line.trim().isEmpty()) continue;
 
-            Matcher matcher = ingredientPattern.matcher(line.trim());
-            if (!matcher.matches()) {
+            ParsedIngredient ingredient = IngredientParser.parseLine(line);
+            if (ingredient == null) {
                 throw new Exception("Could not parse ingredient: '" + line + "'.\nPlease use format like '100g description'.");
             }
 
-            String quantityStr = matcher.group(1);
-            String description = matcher.group(2).trim();
+            String description = ingredient.getDescription();
 
-            List<FoodItem> suggestions = dbManager.findFoodSuggestions(description, 10);
+            List<FoodItem> suggestions = foodSearchService.findFoodSuggestions(description, 10);
+            boolean fuzzy = suggestions.isEmpty();
+            if (fuzzy) {
+                // Nothing matches every word exactly; try again allowing for typos.
+                suggestions = foodSearchService.findFuzzyFoodSuggestions(description, 10);
+            }
 
             if (suggestions.isEmpty()) {
                 throw new Exception("No database match found for: '" + description + "'.");
             }
 
             FoodItem selected;
-            if (suggestions.size() == 1) {
-                selected = suggestions.get(0); // Auto-select if only one match
+            if (suggestions.size() == 1 && !fuzzy) {
+                selected = suggestions.get(0); // Auto-select if only one match; typo matches are always confirmed
             } else {
                 IngredientResolverDialog dialog = new IngredientResolverDialog(parentFrame, description, suggestions);
                 selected = dialog.showDialog();
@@ -137,7 +132,9 @@ public class MealController {
                 return null;
             }
 
-            verifiedIngredientsBuilder.append(quantityStr).append("g ").append(selected.getDescription()).append("\n");
+            // The verified text has one line per resolved ingredient, so the list index is the line index.
+            resolved.add(new MealIngredient(resolved.size(), selected.getFoodId(), ingredient.getGrams()));
+            verifiedIngredientsBuilder.append(ingredient.withDescription(selected.getDescription())).append("\n");
         }
 
         return verifiedIngredientsBuilder.toString();
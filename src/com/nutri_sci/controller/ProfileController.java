@@ -1,16 +1,17 @@
 package com.nutri_sci.controller;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.ProfileRepository;
+import com.nutri_sci.database.Repositories;
 import com.nutri_sci.model.UserProfile;
 
 import javax.swing.*;
 import java.util.Date;
 
 public class ProfileController {
-    private final DBManager dbManager;
+    private final ProfileRepository profileRepository;
 
     public ProfileController() {
-        this.dbManager = DBManager.getInstance();
+        this.profileRepository = Repositories.getProfiles();
     }
 
     public UserProfile createProfile(String name, String sex, Date dob, String heightStr, String weightStr, String unit) {
@@ -28,7 +29,7 @@ public class ProfileController {
             profile.setWeight(Double.parseDouble(weightStr));
             profile.setMeasurementUnit(unit);
 
-            dbManager.saveProfile(profile);
+            profileRepository.saveProfile(profile);
             JOptionPane.showMessageDialog(null, "Profile created successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             return profile;
 
@@ -51,7 +52,7 @@ public class ProfileController {
             profile.setWeight(Double.parseDouble(weightStr));
             profile.setMeasurementUnit(unit);
 
-            if (dbManager.updateProfile(profile)) {
+            if (profileRepository.updateProfile(profile)) {
                 JOptionPane.showMessageDialog(null, "Profile updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 return true;
             } else {
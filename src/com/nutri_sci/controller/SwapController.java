@@ -1,25 +1,33 @@
 package com.nutri_sci.controller;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
 import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.SwapProgress;
 import com.nutri_sci.model.UserProfile;
 import com.nutri_sci.service.MealDataNotifier;
 import com.nutri_sci.service.SwapEngine;
 
 import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Controller to manage the food swap process, including saving the new meal
  * and notifying the UI of the change.
  */
 public class SwapController {
-    private final DBManager dbManager;
+    private final MealRepository mealRepository;
     private final SwapEngine swapEngine;
 
     public SwapController() {
-        this.dbManager = DBManager.getInstance();
+        this.mealRepository = Repositories.getMeals();
         this.swapEngine = new SwapEngine();
     }
 
@@ -40,11 +48,11 @@ public class SwapController {
         swappedMeal.setOriginalMealId(originalMeal.getMealId());
 
         // Save the new, swapped meal to the database.
-        boolean success = dbManager.saveMeal(user.getId(), swappedMeal);
+        boolean success = mealRepository.saveMeal(user.getId(), swappedMeal);
 
         if (success) {
             // Notify the main UI to refresh the meal journal using the modern notifier.
-            MealDataNotifier.getInstance().notifyMealDataChanged();
+            MealDataNotifier.getInstance().notifyMealsSaved(Collections.singletonList(swappedMeal));
             JOptionPane.showMessageDialog(null, "Swap completed and saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
             return swappedMeal;
         } else {
@@ -54,33 +62,98 @@ public class SwapController {
     }
 
     /**
-     * Applies a swap to all relevant meals within a given date range.
+     * Applies a swap to all relevant meals within a given date range. The meals are split into chunks
+     * that a bounded pool of workers turns into swapped meals in parallel. Each finished chunk is saved
+     * in its own transaction, so stopping between chunks leaves every meal either fully swapped or untouched,
+     * and announced through {@link MealDataNotifier} as soon as it commits.
+     * Runs on the calling thread until all chunks are saved, cancellation is requested, or a save fails.
      * @param user The current user profile.
      * @param itemToSwap The ingredient line to be replaced.
      * @param newItem The description of the new food item.
-     * @param startDate The start date of the range.
-     * @param endDate The end date of the range.
+     * @param startDate The start date of the range, or null for no lower bound.
+     * @param endDate The end date of the range, or null for no upper bound.
+     * @param progressListener Receives a progress snapshot after every chunk, on the calling thread.
+     * @param cancelRequested Polled between chunks; once it returns true no further chunks are saved.
+     * @return The final progress, i.e. how many meals were processed, matched and saved.
      */
-    public void applySwapOverTime(UserProfile user, String itemToSwap, String newItem, Date startDate, Date endDate) {
-        List<Meal> meals = dbManager.getMealsForUser(user.getId(), startDate, endDate);
-        int swapCount = 0;
+    public SwapProgress applySwapOverTime(UserProfile user, String itemToSwap, String newItem, Date startDate, Date endDate,
+                                         Consumer<SwapProgress> progressListener, BooleanSupplier cancelRequested) {
+        long start = System.nanoTime();
+        List<Meal> meals = mealRepository.getMealsForUser(user.getId(), startDate, endDate);
+        DatabaseConfig config = DatabaseConfig.getInstance();
+        int chunkSize = Math.max(1, config.getSwapChunkSize());
 
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, config.getSwapThreads()));
+        CompletionService<SwapChunk> completion = new ExecutorCompletionService<>(workers);
+        int chunkCount = 0;
+        for (int i = 0; i < meals.size(); i += chunkSize) {
+            List<Meal> chunk = meals.subList(i, Math.min(meals.size(), i + chunkSize));
+            completion.submit(() -> computeSwapChunk(chunk, itemToSwap, newItem, cancelRequested));
+            chunkCount++;
+        }
+
+        int processed = 0;
+        int matched = 0;
+        int saved = 0;
+        boolean saveFailed = false;
+        try {
+            for (int i = 0; i < chunkCount && !cancelRequested.getAsBoolean(); i++) {
+                SwapChunk chunk = completion.take().get();
+                // A worker that saw the cancellation returns an incomplete chunk; it must not be saved.
+                if (cancelRequested.getAsBoolean()) break;
+                if (!chunk.swappedMeals.isEmpty()) {
+                    if (!mealRepository.saveMeals(user.getId(), chunk.swappedMeals)) {
+                        saveFailed = true;
+                        break;
+                    }
+                    saved += chunk.swappedMeals.size();
+                    // Each committed chunk is announced right away, so views never miss swaps saved before a cancel or failure.
+                    MealDataNotifier.getInstance().notifyMealsSaved(chunk.swappedMeals);
+                }
+                processed += chunk.mealCount;
+                matched += chunk.swappedMeals.size();
+                progressListener.accept(new SwapProgress(processed, meals.size(), matched, saved, elapsedMillis(start), false));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+            saveFailed = true;
+        } finally {
+            workers.shutdownNow();
+        }
+
+        System.out.printf("Swap over time: %d of %d meal(s) processed, %d matched, %d saved in %d ms%s.%n",
+                processed, meals.size(), matched, saved, elapsedMillis(start),
+                saveFailed ? " (stopped: save failed)" : cancelRequested.getAsBoolean() ? " (cancelled)" : "");
+        return new SwapProgress(processed, meals.size(), matched, saved, elapsedMillis(start), saveFailed);
+    }
+
+    private SwapChunk computeSwapChunk(List<Meal> meals, String itemToSwap, String newItem, BooleanSupplier cancelRequested) {
+        List<Meal> mealsToSwap = new ArrayList<>();
         for (Meal meal : meals) {
             if (meal.getIngredients().contains(itemToSwap)) {
-                Meal swappedMeal = swapEngine.performSwap(meal, itemToSwap, newItem);
-                swappedMeal.setSwapped(true);
-                swappedMeal.setOriginalMealId(meal.getMealId());
-                if (dbManager.saveMeal(user.getId(), swappedMeal)) {
-                    swapCount++;
-                }
+                mealsToSwap.add(meal);
             }
         }
+        if (mealsToSwap.isEmpty() || cancelRequested.getAsBoolean()) {
+            return new SwapChunk(meals.size(), Collections.emptyList());
+        }
+        return new SwapChunk(meals.size(), swapEngine.performSwaps(mealsToSwap, itemToSwap, newItem));
+    }
 
-        if (swapCount > 0) {
-            MealDataNotifier.getInstance().notifyMealDataChanged();
-            JOptionPane.showMessageDialog(null, "Successfully applied the swap to " + swapCount + " past meal(s).", "Success", JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            JOptionPane.showMessageDialog(null, "No past meals found containing the item to swap.", "Information", JOptionPane.INFORMATION_MESSAGE);
+    private static long elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    /** The swapped meals computed from one chunk of the range, and how many meals the chunk held. */
+    private static class SwapChunk {
+        final int mealCount;
+        final List<Meal> swappedMeals;
+
+        SwapChunk(int mealCount, List<Meal> swappedMeals) {
+            this.mealCount = mealCount;
+            this.swappedMeals = swappedMeals;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,83 +1,96 @@
 package com.nutri_sci.controller;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.model.DailyIntakeReport;
 import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
 import com.nutri_sci.model.UserProfile;
-import com.nutri_sci.service.NutrientCalculator;
+import com.nutri_sci.service.MealAggregator;
+import com.nutri_sci.service.NutrientTimeSeriesStore;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class VisualizationController {
 
-    private final DBManager dbManager;
-    private final NutrientCalculator nutrientCalculator;
+    private final MealRepository mealRepository;
+    private final FoodCatalogRepository foodCatalog;
+    private final NutrientTimeSeriesStore timeSeries;
+    private final MealAggregator aggregator;
     private final UserProfile userProfile;
-    private final Pattern ingredientPattern = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
 
 
-    // RDA values mimicking the RDAService, using official DB names.
-    private static final Map<String, Double> RDA_VALUES = new LinkedHashMap<>();
+    // RDA values mimicking the RDAService, by NutrientID.
+    private static final Map<Integer, Double> RDA_VALUES = new LinkedHashMap<>();
     static {
-        RDA_VALUES.put("ENERGY (KILOCALORIES)", 2000.0);
-        RDA_VALUES.put("PROTEIN", 50.0);
-        RDA_VALUES.put("FIBRE, TOTAL DIETARY", 30.0);
+        RDA_VALUES.put(NutrientRegistry.ENERGY_KCAL, 2000.0);
+        RDA_VALUES.put(NutrientRegistry.PROTEIN, 50.0);
+        RDA_VALUES.put(NutrientRegistry.FIBRE, 30.0);
     }
 
-    public VisualizationController(UserProfile userProfile) {
-        this.dbManager = DBManager.getInstance();
-        this.nutrientCalculator = new NutrientCalculator();
-        this.userProfile = userProfile;
+    // Macros and redundant energy units, left out of the micronutrient chart.
+    private static final Set<Integer> NON_MICRO_NUTRIENTS = new HashSet<>(Arrays.asList(
+            NutrientRegistry.PROTEIN, NutrientRegistry.CARBOHYDRATE, NutrientRegistry.FAT, NutrientRegistry.ENERGY_KJ,
+            NutrientRegistry.ENERGY_KCAL, NutrientRegistry.MOISTURE, NutrientRegistry.FIBRE));
+
+    // The nutrients offered by the swap effect chart, by the names shown in the UI.
+    private static final Map<String, Integer> CHART_NUTRIENTS = new HashMap<>();
+    static {
+        CHART_NUTRIENTS.put("Calories", NutrientRegistry.ENERGY_KCAL);
+        CHART_NUTRIENTS.put("Protein", NutrientRegistry.PROTEIN);
+        CHART_NUTRIENTS.put("Fiber", NutrientRegistry.FIBRE);
     }
 
-    public DefaultPieDataset createMacroNutrientDataset(Date startDate, Date endDate) {
-        Map<String, Double> avgDailyNutrients = getAverageDailyNutrients(startDate, endDate);
-        DefaultPieDataset dataset = new DefaultPieDataset();
+    // The groups of the CFG chart, in the order of their slices.
+    private static final List<String> CFG_GROUPS = Collections.unmodifiableList(Arrays.asList(
+            "Vegetables and Fruit", "Grain Products", "Milk and Alternatives", "Meat and Alternatives", "Other", "Uncategorized"));
 
-        double protein = 0;
-        double carbs = 0;
-        double fat = 0;
-
-        for (Map.Entry<String, Double> entry : avgDailyNutrients.entrySet()) {
-            if (entry.getKey().startsWith("PROTEIN")) {
-                protein = entry.getValue();
-            } else if (entry.getKey().startsWith("CARBOHYDRATE, TOTAL")) {
-                carbs = entry.getValue();
-            } else if (entry.getKey().startsWith("FAT (TOTAL LIPIDS)")) {
-                fat = entry.getValue();
-            }
-        }
-
-        dataset.setValue("Protein (g)", protein);
-        dataset.setValue("Carbohydrates (g)", carbs);
-        dataset.setValue("Fat (g)", fat);
+    public VisualizationController(UserProfile userProfile) {
+        this.mealRepository = Repositories.getMeals();
+        this.foodCatalog = Repositories.getFoodCatalog();
+        this.timeSeries = NutrientTimeSeriesStore.getInstance();
+        this.aggregator = MealAggregator.getInstance();
+        this.userProfile = userProfile;
+    }
 
-        return dataset;
+    /**
+     * Builds the daily intake report for a date range in a single pass: the average daily intake is
+     * read once from the user's nutrient time series and the macro, micro and RDA views are all derived from it.
+     * Blocks on the repository, so call it off the EDT.
+     */
+    public DailyIntakeReport createDailyIntakeReport(Date startDate, Date endDate) {
+        int days = getDayCount(startDate, endDate);
+        NutrientVector averages = getAverageDailyNutrients(startDate, endDate, days);
+        return new DailyIntakeReport(startDate, endDate, days, averages,
+                getMacroNutrients(averages), getMicroNutrients(averages), getRdaComparisonMessage(averages));
     }
 
-    public DefaultPieDataset createMicroNutrientDataset(Date startDate, Date endDate) {
-        Map<String, Double> avgDailyNutrients = getAverageDailyNutrients(startDate, endDate);
-        if (avgDailyNutrients.isEmpty()) {
-            return new DefaultPieDataset();
-        }
+    private Map<String, Double> getMacroNutrients(NutrientVector avgDailyNutrients) {
+        Map<String, Double> macroNutrients = new LinkedHashMap<>();
+        macroNutrients.put("Protein (g)", avgDailyNutrients.get(NutrientRegistry.PROTEIN));
+        macroNutrients.put("Carbohydrates (g)", avgDailyNutrients.get(NutrientRegistry.CARBOHYDRATE));
+        macroNutrients.put("Fat (g)", avgDailyNutrients.get(NutrientRegistry.FAT));
+        return macroNutrients;
+    }
 
+    /** @return The top 5 nutrients other than the macros and energy, plus "Other Nutrients" for the rest. */
+    private Map<String, Double> getMicroNutrients(NutrientVector avgDailyNutrients) {
         // Filter out macros and redundant energy units
-        Map<String, Double> microNutrients = avgDailyNutrients.entrySet().stream()
-                .filter(entry -> !entry.getKey().startsWith("PROTEIN") &&
-                        !entry.getKey().startsWith("CARBOHYDRATE, TOTAL") &&
-                        !entry.getKey().startsWith("FAT (TOTAL LIPIDS)") &&
-                        !entry.getKey().startsWith("ENERGY (KILOJOULES)") &&
-                        !entry.getKey().startsWith("ENERGY (KILOCALORIES)") &&
-                        !entry.getKey().startsWith("MOISTURE") &&
-                        !entry.getKey().startsWith("FIBRE, TOTAL DIETARY") &&
-                        entry.getValue() > 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        NutrientRegistry registry = avgDailyNutrients.getRegistry();
+        Map<String, Double> microNutrients = new HashMap<>();
+        for (int n = 0; n < registry.size(); n++) {
+            if (avgDailyNutrients.getAt(n) > 0 && !NON_MICRO_NUTRIENTS.contains(registry.getNutrientId(n))) {
+                microNutrients.put(registry.getKey(n), avgDailyNutrients.getAt(n));
+            }
+        }
 
         // Get top 5
         Map<String, Double> topNutrients = microNutrients.entrySet().stream()
@@ -90,37 +103,24 @@ public class VisualizationController {
                 .filter(entry -> !topNutrients.containsKey(entry.getKey()))
                 .mapToDouble(Map.Entry::getValue)
                 .sum();
-
-        DefaultPieDataset dataset = new DefaultPieDataset();
-        topNutrients.forEach(dataset::setValue);
         if (otherSum > 0.01) {
-            dataset.setValue("Other Nutrients", otherSum);
+            topNutrients.put("Other Nutrients", otherSum);
         }
-
-        return dataset;
+        return topNutrients;
     }
 
-    public String getRdaComparisonMessage(Date startDate, Date endDate) {
-        Map<String, Double> avgDailyNutrients = getAverageDailyNutrients(startDate, endDate);
-        if (avgDailyNutrients.isEmpty()) return "No data available for the selected period.";
+    private String getRdaComparisonMessage(NutrientVector avgDailyNutrients) {
+        if (avgDailyNutrients.isZero()) return "No data available for the selected period.";
 
         StringBuilder message = new StringBuilder("<html><b>Recommended Daily Allowance (RDA) Comparison:</b><br>");
-        for (Map.Entry<String, Double> rda : RDA_VALUES.entrySet()) {
-            String rdaNutrientName = rda.getKey();
+        for (Map.Entry<Integer, Double> rda : RDA_VALUES.entrySet()) {
+            int nutrientId = rda.getKey();
             double recommended = rda.getValue();
-
-            // Find the actual consumed value by matching the start of the string
-            double actual = 0.0;
-            for (Map.Entry<String, Double> avgEntry : avgDailyNutrients.entrySet()) {
-                if (avgEntry.getKey().startsWith(rdaNutrientName)) {
-                    actual = avgEntry.getValue();
-                    break;
-                }
-            }
+            double actual = avgDailyNutrients.get(nutrientId);
 
             double percentage = (recommended > 0) ? (actual / recommended) * 100 : 0;
-            String displayName = rdaNutrientName.equals("ENERGY (KILOCALORIES)") ? "Calories" :
-                    rdaNutrientName.equals("FIBRE, TOTAL DIETARY") ? "Fiber" : "Protein";
+            String displayName = nutrientId == NutrientRegistry.ENERGY_KCAL ? "Calories" :
+                    nutrientId == NutrientRegistry.FIBRE ? "Fiber" : "Protein";
 
             message.append(String.format("- %s: You consumed %.1f%% of the recommended amount.<br>", displayName, percentage));
         }
@@ -129,89 +129,21 @@ public class VisualizationController {
     }
 
     /**
-     * Helper method to find a nutrient value from a map using a partial, case-insensitive name.
-     * @param nutrients The map of nutrient data (e.g., "PROTEIN (G)" -> 25.0).
-     * @param nutrientName The simplified name to search for (e.g., "Protein").
-     * @return The nutrient value, or 0.0 if not found.
+     * Compares each day's amount of the nutrient before and after swaps, for the days in the range with at least
+     * one swap. Answered from the user's nutrient time series, so no meals are read or calculated here.
      */
-    private double getNutrientValue(Map<String, Double> nutrients, String nutrientName) {
-        String searchName = nutrientName.toUpperCase();
-
-        // Handle specific naming mismatches between UI and database
-        if (searchName.equals("CALORIES")) {
-            searchName = "ENERGY (KILOCALORIES)";
-        } else if (searchName.equals("FIBER")) {
-            searchName = "FIBRE"; // Correct the spelling for the database lookup
+    public DefaultCategoryDataset<String, String> createSwapEffectDataset(Date startDate, Date endDate, String nutrient) {
+        Integer nutrientId = CHART_NUTRIENTS.get(nutrient);
+        if (nutrientId == null) {
+            throw new IllegalArgumentException("Unknown chart nutrient: " + nutrient);
         }
 
-        for (Map.Entry<String, Double> entry : nutrients.entrySet()) {
-            // Match the start of the key, ignoring case
-            if (entry.getKey().toUpperCase().startsWith(searchName)) {
-                return entry.getValue();
-            }
-        }
-        return 0.0;
-    }
-
-    public DefaultCategoryDataset createSwapEffectDataset(Date startDate, Date endDate, String nutrient) {
-        System.out.println("\n[DEBUG] VisController: --- Creating Swap Effect Dataset ---");
-        System.out.println("[DEBUG] VisController: Date range: " + startDate + " to " + endDate);
-        // Use the DB method to get ALL meals, including original ones that were swapped
-        List<Meal> allMealsInRange = dbManager.getMealsForUser(userProfile.getId(), getStartOfDay(startDate), getEndOfDay(endDate), true);
-        System.out.println("[DEBUG] VisController: Fetched " + allMealsInRange.size() + " total meals (including replaced ones).");
-        if (allMealsInRange.isEmpty()) return new DefaultCategoryDataset();
-
-        Map<Integer, Meal> originalMealsById = new HashMap<>();
-        Map<Integer, Meal> swappedMealsByOriginalId = new HashMap<>();
-
-        for (Meal meal : allMealsInRange) {
-            if (meal.isSwapped() && meal.getOriginalMealId() != null) {
-                swappedMealsByOriginalId.put(meal.getOriginalMealId(), meal);
-            } else if (!meal.isSwapped()) {
-                originalMealsById.put(meal.getMealId(), meal);
-            }
-        }
-        System.out.println("[DEBUG] VisController: Found " + originalMealsById.size() + " original meals and " + swappedMealsByOriginalId.size() + " swapped meals.");
-
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, List<Meal>> originalMealsGroupedByDate = originalMealsById.values().stream()
-                .collect(Collectors.groupingBy(m -> sdf.format(m.getDate())));
-
-        originalMealsGroupedByDate.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
-            String date = entry.getKey();
-            List<Meal> dailyOriginalMeals = entry.getValue();
-            double beforeValue = 0;
-            double afterValue = 0;
-            boolean wasSwappedOnThisDay = false; // Flag to track if any swap occurred on this day
-
-            // Calculate the total "before" and "after" values for the entire day
-            for (Meal originalMeal : dailyOriginalMeals) {
-                Map<String, Double> beforeNutrients = nutrientCalculator.calculateNutrientsForMeal(originalMeal.getIngredients());
-                beforeValue += getNutrientValue(beforeNutrients, nutrient);
-
-                // Check if this original meal has a corresponding swapped meal
-                if (swappedMealsByOriginalId.containsKey(originalMeal.getMealId())) {
-                    wasSwappedOnThisDay = true; // Mark that a swap happened today
-                    Meal swappedMeal = swappedMealsByOriginalId.get(originalMeal.getMealId());
-                    Map<String, Double> afterNutrients = nutrientCalculator.calculateNutrientsForMeal(swappedMeal.getIngredients());
-                    afterValue += getNutrientValue(afterNutrients, nutrient);
-                } else {
-                    // If no swap exists for this meal, the "after" value is the same as the "before"
-                    afterValue += getNutrientValue(beforeNutrients, nutrient);
-                }
-            }
-
-            // Only add data to the chart if there was at least one swap on that day
-            if (wasSwappedOnThisDay) {
-                System.out.println("[DEBUG] VisController: Adding to swap dataset for date " + date + ": Before=" + beforeValue + ", After=" + afterValue);
-                dataset.addValue(beforeValue, "Before Swaps", date);
-                dataset.addValue(afterValue, "After Swaps", date);
-            }
+        DefaultCategoryDataset<String, String> dataset = new DefaultCategoryDataset<>();
+        // Days are keyed by LocalDate, whose toString is yyyy-MM-dd.
+        timeSeries.getSwapEffect(userProfile.getId(), startDate, endDate, nutrientId).forEach((day, beforeAndAfter) -> {
+            dataset.addValue(beforeAndAfter[0], "Before Swaps", day.toString());
+            dataset.addValue(beforeAndAfter[1], "After Swaps", day.toString());
         });
-
-        System.out.println("[DEBUG] VisController: Final Swap Dataset has " + dataset.getRowCount() + " rows and " + dataset.getColumnCount() + " columns.");
-        System.out.println("[DEBUG] VisController: --- Finished Swap Effect Dataset ---\n");
         return dataset;
     }
 
@@ -224,42 +156,52 @@ public class VisualizationController {
      */
     public DefaultPieDataset createCfgComparisonDataset(Date startDate, Date endDate) {
         System.out.println("\n[DEBUG] VisController: --- Creating CFG Comparison Dataset ---");
-        List<Meal> meals = dbManager.getMealsForUser(userProfile.getId(), getStartOfDay(startDate), getEndOfDay(endDate));
+        List<Meal> meals = mealRepository.getMealsForUser(userProfile.getId(), getStartOfDay(startDate), getEndOfDay(endDate));
         if (meals.isEmpty()) {
             System.out.println("[DEBUG] VisController: No active meals found for CFG analysis.");
             return new DefaultPieDataset();
         }
 
 
-        Map<String, Double> foodGroupWeights = new HashMap<>();
+        // Resolve the food group of every distinct ingredient in the range with one batch lookup,
+        // by FoodID for meals with resolved ingredients and by description for the rest.
+        Set<Integer> foodIds = new HashSet<>();
+        Set<String> descriptions = new HashSet<>();
         for (Meal meal : meals) {
-            String[] ingredients = meal.getIngredients().split("\n");
-            for (String ingredient : ingredients) {
-                if (!ingredient.trim().isEmpty()) {
-                    // Use regex to parse the weight from the ingredient string.
-                    Matcher matcher = ingredientPattern.matcher(ingredient.trim());
-                    double weight = 0.0;
-                    if (matcher.matches()) {
-                        try {
-                            weight = Double.parseDouble(matcher.group(1));
-                        } catch (NumberFormatException e) {
-                            System.err.println("Could not parse weight from: " + ingredient);
-                        }
-                    }
-
-                    String foodGroup = dbManager.getFoodGroup(ingredient.trim());
-                    if (foodGroup != null) {
-                        System.out.println("[DEBUG] Ingredient: '" + ingredient.trim() + "' -> DB Food Group: '" + foodGroup + "'");
-                        foodGroup = normalizeFoodGroup(foodGroup);
-                        System.out.println("    -> Normalized Group: '" + foodGroup + "' with weight: " + weight);
-
-                        foodGroupWeights.merge(foodGroup, weight, Double::sum);
-                    } else {
-                        System.out.println("[DEBUG] Ingredient: '" + ingredient.trim() + "' -> DB Food Group: NOT FOUND");
-
-                        foodGroupWeights.merge("Uncategorized", weight, Double::sum);
-                    }
+            if (meal.getResolvedIngredients() != null) {
+                meal.getResolvedIngredients().forEach(ingredient -> foodIds.add(ingredient.getFoodId()));
+                continue;
+            }
+            meal.getParsedIngredients().forEach(ingredient -> descriptions.add(ingredient.getDescription()));
+        }
+        Map<Integer, String> foodGroupsById = foodCatalog.getFoodGroupsByIds(foodIds);
+        Map<String, String> foodGroupsByDescription = foodCatalog.getFoodGroups(descriptions);
+
+        // Normalize each food group once, then sum grams per CFG group with primitive accumulators,
+        // in parallel for long ranges.
+        Map<Integer, Integer> groupIndexById = new HashMap<>();
+        foodGroupsById.forEach((foodId, foodGroup) -> groupIndexById.put(foodId, CFG_GROUPS.indexOf(normalizeFoodGroup(foodGroup))));
+        Map<String, Integer> groupIndexByDescription = new HashMap<>();
+        foodGroupsByDescription.forEach((description, foodGroup) -> groupIndexByDescription.put(description, CFG_GROUPS.indexOf(normalizeFoodGroup(foodGroup))));
+        int uncategorized = CFG_GROUPS.indexOf("Uncategorized");
+
+        double[] grams = aggregator.sum(meals, CFG_GROUPS.size(), (meal, totals) -> {
+            if (meal.getResolvedIngredients() != null) {
+                for (MealIngredient ingredient : meal.getResolvedIngredients()) {
+                    totals[groupIndexById.getOrDefault(ingredient.getFoodId(), uncategorized)] += ingredient.getGrams();
                 }
+                return;
+            }
+            // Lines that cannot be parsed carry no weight, so they are left out.
+            for (ParsedIngredient ingredient : meal.getParsedIngredients()) {
+                totals[groupIndexByDescription.getOrDefault(ingredient.getDescription(), uncategorized)] += ingredient.getGrams();
+            }
+        });
+
+        Map<String, Double> foodGroupWeights = new LinkedHashMap<>();
+        for (int g = 0; g < grams.length; g++) {
+            if (grams[g] != 0.0) {
+                foodGroupWeights.put(CFG_GROUPS.get(g), grams[g]);
             }
         }
         System.out.println("[DEBUG] VisController: Final Food Group Weights: " + foodGroupWeights);
@@ -298,31 +240,21 @@ public class VisualizationController {
         return "Other";
     }
 
-    private Map<String, Double> getAverageDailyNutrients(Date startDate, Date endDate) {
-        // excludes replaced meals for this calculation
-        System.out.println("[DEBUG] VisController: Calculating average nutrients for date range: " + startDate + " to " + endDate);
-        List<Meal> meals = dbManager.getMealsForUser(userProfile.getId(), getStartOfDay(startDate), getEndOfDay(endDate));
-        if (meals.isEmpty()) {
-            System.out.println("[DEBUG] VisController: No active meals found to calculate averages.");
-            return new HashMap<>();
-        }
-        System.out.println("[DEBUG] VisController: Found " + meals.size() + " active meals for averaging.");
-
-        Map<String, Double> totalNutrients = new HashMap<>();
-        for (Meal meal : meals) {
-            Map<String, Double> mealNutrients = new NutrientCalculator().calculateNutrientsForMeal(meal.getIngredients());
-            mealNutrients.forEach((key, value) -> totalNutrients.merge(key, value, Double::sum));
+    /**
+     * @return The user's average daily nutrient intake over the range (all 0 if nothing was logged).
+     */
+    private NutrientVector getAverageDailyNutrients(Date startDate, Date endDate, int days) {
+        // excludes replaced meals for this calculation; answered from the prefix sums of the time series
+        NutrientVector totalNutrients = timeSeries.getNutrientTotals(userProfile.getId(), startDate, endDate);
+        if (totalNutrients.isZero()) {
+            return totalNutrients;
         }
+        return totalNutrients.scale(1.0 / days);
+    }
 
+    private int getDayCount(Date startDate, Date endDate) {
         long diffInMillis = Math.abs(getEndOfDay(endDate).getTime() - getStartOfDay(startDate).getTime());
-        long days = TimeUnit.MILLISECONDS.toDays(diffInMillis) + 1;
-        System.out.println("[DEBUG] VisController: Number of days in range: " + days);
-
-        Map<String, Double> avgDailyNutrients = new HashMap<>();
-        for (Map.Entry<String, Double> entry : totalNutrients.entrySet()) {
-            avgDailyNutrients.put(entry.getKey(), entry.getValue() / days);
-        }
-        return avgDailyNutrients;
+        return (int) TimeUnit.MILLISECONDS.toDays(diffInMillis) + 1;
     }
 
     private Date getStartOfDay(Date date) {
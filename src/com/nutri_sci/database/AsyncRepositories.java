@@ -0,0 +1,161 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.NutrientVector;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over the repositories: every query runs on its own task of a
+ * virtual-thread-per-task executor (a cached pool of daemon threads on JVMs without virtual threads)
+ * and is returned as a CompletableFuture, so the Swing EDT never blocks on JDBC and independent
+ * queries can be fanned out and composed.
+ *
+ * Every future fails with a TimeoutException after repository.async.timeoutMs (or the timeout passed in),
+ * and cancelling it, or its timing out, interrupts the task running the query.
+ */
+public final class AsyncRepositories {
+    private static AsyncRepositories instance;
+
+    private final ExecutorService executor;
+    // One daemon thread that fails the futures whose timeout elapses.
+    private final ScheduledThreadPoolExecutor timer;
+    private final long defaultTimeoutMillis;
+
+    private AsyncRepositories() {
+        this.executor = createExecutor();
+        this.timer = createTimer();
+        this.defaultTimeoutMillis = DatabaseConfig.getInstance().getAsyncTimeoutMillis();
+    }
+
+    public static synchronized AsyncRepositories getInstance() {
+        if (instance == null) {
+            instance = new AsyncRepositories();
+        }
+        return instance;
+    }
+
+    /** @return the executor the queries run on, for composing follow-up work off the EDT. */
+    public Executor executor() {
+        return executor;
+    }
+
+    // --- Generic execution ---
+
+    /** Runs the query asynchronously with the default timeout. */
+    public <T> CompletableFuture<T> supply(Supplier<T> query) {
+        return supply(query, defaultTimeoutMillis);
+    }
+
+    /**
+     * Runs the query asynchronously. The returned future completes with the query's result, fails with
+     * a TimeoutException once the timeout (0 for none) elapses, and interrupts the query when it is
+     * cancelled or times out.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> query, long timeoutMillis) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(query.get());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> result.completeExceptionally(new TimeoutException()),
+                    timeoutMillis, TimeUnit.MILLISECONDS);
+            result.whenComplete((value, error) -> timeout.cancel(false));
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) task.cancel(true);
+        });
+        return result;
+    }
+
+    /** @return the original failure behind the CompletionException/ExecutionException wrappers of a future. */
+    public static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // --- Meals ---
+
+    public CompletableFuture<Integer> countMealsForUser(int userId) {
+        return supply(() -> Repositories.getMeals().countMealsForUser(userId));
+    }
+
+    public CompletableFuture<List<Meal>> getMealPage(int userId, Meal after, int pageSize) {
+        return supply(() -> Repositories.getMeals().getMealPage(userId, after, pageSize));
+    }
+
+    public CompletableFuture<List<Meal>> getMealPage(int userId, int offset, int pageSize) {
+        return supply(() -> Repositories.getMeals().getMealPage(userId, offset, pageSize));
+    }
+
+    public CompletableFuture<List<Meal>> getMealsForUser(int userId, Date startDate, Date endDate) {
+        return supply(() -> Repositories.getMeals().getMealsForUser(userId, startDate, endDate));
+    }
+
+    public CompletableFuture<Meal> getMealById(int mealId) {
+        return supply(() -> Repositories.getMeals().getMealById(mealId));
+    }
+
+    public CompletableFuture<Date> getMostRecentMealDate(int userId) {
+        return supply(() -> Repositories.getMeals().getMostRecentMealDate(userId));
+    }
+
+    // --- Food catalog ---
+
+    public CompletableFuture<List<FoodItem>> findFoodSuggestions(String description, int limit) {
+        return supply(() -> Repositories.getFoodCatalog().findFoodSuggestions(description, limit));
+    }
+
+    public CompletableFuture<Map<String, NutrientVector>> getComprehensiveNutrientProfiles(Collection<String> descriptions) {
+        return supply(() -> Repositories.getFoodCatalog().getComprehensiveNutrientProfiles(descriptions));
+    }
+
+    public CompletableFuture<Map<String, String>> getFoodGroups(Collection<String> descriptions) {
+        return supply(() -> Repositories.getFoodCatalog().getFoodGroups(descriptions));
+    }
+
+    // --- Executor ---
+
+    /**
+     * Uses Executors.newVirtualThreadPerTaskExecutor when the JVM has it (looked up reflectively so the
+     * code still compiles and runs on Java 8), otherwise a cached pool of daemon threads.
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "async-repository-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "async-repository-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most queries finish well before their timeout; drop their cancelled timeouts right away.
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -0,0 +1,182 @@
+package com.nutri_sci.database;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of the {@link NutrientCatalog}, written by DatabaseLoader after each CNF refresh and
+ * memory-mapped by the application at startup instead of reading NUTRIENT_AMOUNT over JDBC.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   int magic "CNFS", int format, int cnfVersion,
+ *   int foodCount, int nutrientCount, int groupCount, int amountRowCount, long amountsOffset
+ *   int[foodCount] foodIds, int[foodCount] foodGroupOrdinals, int[nutrientCount] nutrientIds
+ *   strings (int byte length or -1 for null, then UTF-8): nutrientKeys, groupNames, foodDescriptions
+ *   padding to 8 bytes
+ *   double[nutrientCount * foodCount] amounts, column-major (one column per nutrient), NaN = no value
+ * </pre>
+ * The amounts are read straight from the mapping; only the IDs and strings are copied to the heap.
+ */
+class CnfSnapshot {
+    private static final int MAGIC = 0x434E4653; // "CNFS"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 7 * 4 + 8;
+
+    private CnfSnapshot() {
+    }
+
+    /**
+     * Writes the catalog to a temporary file next to the target and moves it into place,
+     * so a running application never maps a half-written snapshot.
+     */
+    static void write(NutrientCatalog catalog, int cnfVersion, Path path) throws IOException {
+        int foodCount = catalog.getFoodCount();
+        int nutrientCount = catalog.getNutrientCount();
+        String[] groupNames = catalog.getFoodGroupNames();
+
+        byte[][] nutrientKeys = new byte[nutrientCount][];
+        for (int n = 0; n < nutrientCount; n++) nutrientKeys[n] = encode(catalog.getNutrientKey(n));
+        byte[][] groups = new byte[groupNames.length][];
+        for (int g = 0; g < groupNames.length; g++) groups[g] = encode(groupNames[g]);
+        byte[][] descriptions = new byte[foodCount][];
+        for (int f = 0; f < foodCount; f++) descriptions[f] = encode(catalog.getFoodDescription(f));
+
+        long stringsEnd = HEADER_BYTES + 4L * (2L * foodCount + nutrientCount)
+                + stringBytes(nutrientKeys) + stringBytes(groups) + stringBytes(descriptions);
+        long amountsOffset = (stringsEnd + 7) & ~7L;
+
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, "cnf-snapshot-", ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(cnfVersion);
+            out.writeInt(foodCount);
+            out.writeInt(nutrientCount);
+            out.writeInt(groupNames.length);
+            out.writeInt(catalog.getAmountRowCount());
+            out.writeLong(amountsOffset);
+
+            for (int f = 0; f < foodCount; f++) out.writeInt(catalog.getFoodId(f));
+            for (int f = 0; f < foodCount; f++) out.writeInt(catalog.getFoodGroupOrdinal(f));
+            for (int n = 0; n < nutrientCount; n++) out.writeInt(catalog.getNutrientId(n));
+            writeStrings(out, nutrientKeys);
+            writeStrings(out, groups);
+            writeStrings(out, descriptions);
+            for (long i = stringsEnd; i < amountsOffset; i++) out.writeByte(0);
+
+            for (int n = 0; n < nutrientCount; n++) {
+                for (int f = 0; f < foodCount; f++) {
+                    out.writeDouble(catalog.getRawAmount(f, n));
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The CNF version the snapshot was written for, or -1 if the file is missing or not a snapshot.
+     */
+    static int readVersion(Path path) {
+        if (!Files.isRegularFile(path)) return -1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(12);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                // keep reading until the three header ints are in
+            }
+            header.flip();
+            if (header.remaining() < 12 || header.getInt() != MAGIC || header.getInt() != FORMAT) return -1;
+            return header.getInt();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Maps the snapshot and builds a catalog whose nutrient matrix is a view over the mapping.
+     */
+    static NutrientCatalog read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+            throw new IOException("Not a CNF snapshot: " + path);
+        }
+        buffer.getInt(); // CNF version, checked by the caller
+        int foodCount = buffer.getInt();
+        int nutrientCount = buffer.getInt();
+        int groupCount = buffer.getInt();
+        int amountRowCount = buffer.getInt();
+        long amountsOffset = buffer.getLong();
+
+        int[] foodIds = readInts(buffer, foodCount);
+        int[] foodGroupOrdinals = readInts(buffer, foodCount);
+        int[] nutrientIds = readInts(buffer, nutrientCount);
+        String[] nutrientKeys = readStrings(buffer, nutrientCount);
+        String[] groupNames = readStrings(buffer, groupCount);
+        String[] descriptions = readStrings(buffer, foodCount);
+
+        buffer.position((int) amountsOffset);
+        buffer.limit((int) (amountsOffset + 8L * foodCount * nutrientCount));
+        DoubleBuffer amounts = buffer.slice().asDoubleBuffer();
+
+        return new NutrientCatalog(foodIds, descriptions, foodGroupOrdinals, groupNames,
+                nutrientIds, nutrientKeys, amounts, amountRowCount);
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long stringBytes(byte[][] strings) {
+        long bytes = 0;
+        for (byte[] s : strings) bytes += 4 + (s == null ? 0 : s.length);
+        return bytes;
+    }
+
+    private static void writeStrings(DataOutputStream out, byte[][] strings) throws IOException {
+        for (byte[] s : strings) {
+            out.writeInt(s == null ? -1 : s.length);
+            if (s != null) out.write(s);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    private static String[] readStrings(ByteBuffer buffer, int count) {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+        return values;
+    }
+}
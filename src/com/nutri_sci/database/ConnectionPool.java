@@ -0,0 +1,314 @@
+package com.nutri_sci.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small, thread-safe JDBC connection pool.
+ * Callers borrow a connection with {@link #getConnection()} and return it by closing it,
+ * so the usual try-with-resources blocks work unchanged.
+ * A semaphore caps the number of connections handed out at once; borrowers wait up to
+ * the configured timeout before an SQLTimeoutException is thrown.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final long validationIntervalMillis;
+
+    // Idle connections, most recently returned first so the warm ones get reused.
+    private final LinkedBlockingDeque<IdleConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private volatile boolean closed = false;
+
+    // Metrics.
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicInteger openCount = new AtomicInteger();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, int validationTimeoutSeconds, long validationIntervalMillis) throws SQLException {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum number of connections up front so a bad URL or password fails fast.
+        for (int i = 0; i < minSize; i++) {
+            idle.offerFirst(new IdleConnection(openPhysicalConnection()));
+        }
+    }
+
+    /**
+     * Creates a pool from the external database configuration.
+     */
+    public static ConnectionPool fromConfig(DatabaseConfig config) throws SQLException {
+        return new ConnectionPool(config.getUrl(), config.getUser(), config.getPassword(),
+                config.getPoolMinSize(), config.getPoolMaxSize(), config.getPoolBorrowTimeoutMillis(),
+                config.getPoolValidationTimeoutSeconds(), config.getPoolValidationIntervalMillis());
+    }
+
+    /**
+     * Borrows a connection from the pool. Closing the returned connection gives it back.
+     * @throws SQLTimeoutException if no connection became available within the borrow timeout.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + " ms waiting for a database connection "
+                        + "(active=" + activeCount.get() + ", max=" + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            Connection physical = takeValidIdleConnection();
+            if (physical == null) {
+                physical = openPhysicalConnection();
+            }
+            recordWait(System.nanoTime() - waitStart);
+            activeCount.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection takeValidIdleConnection() {
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            boolean stale = System.currentTimeMillis() - candidate.returnedAt > validationIntervalMillis;
+            if (!stale || isValid(candidate.connection)) {
+                return candidate.connection;
+            }
+            discard(candidate.connection);
+        }
+        return null;
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection openPhysicalConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        openCount.incrementAndGet();
+        return connection;
+    }
+
+    private void discard(Connection connection) {
+        discardedCount.increment();
+        openCount.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // The connection is already unusable.
+        }
+    }
+
+    private void recordWait(long nanos) {
+        borrowCount.increment();
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Returns a physical connection to the idle queue, resetting any transaction state
+     * the borrower left behind. Broken connections are closed instead.
+     */
+    private void release(Connection physical) {
+        activeCount.decrementAndGet();
+        try {
+            boolean reusable = !closed && !physical.isClosed();
+            if (reusable && !physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (reusable) {
+                idle.offerFirst(new IdleConnection(physical));
+            } else {
+                discard(physical);
+            }
+        } catch (SQLException e) {
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Closes every idle connection. Connections still on loan are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        IdleConnection candidate;
+        while ((candidate = idle.pollFirst()) != null) {
+            discard(candidate.connection);
+        }
+    }
+
+    public PoolStats getStats() {
+        long borrows = borrowCount.sum();
+        long waitNanos = totalWaitNanos.sum();
+        return new PoolStats(activeCount.get(), idle.size(), openCount.get(), minSize, maxSize,
+                permits.getQueueLength(), borrows, timeoutCount.sum(), discardedCount.sum(),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos),
+                borrows == 0 ? 0.0 : waitNanos / 1_000_000.0 / borrows,
+                TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    private static final class IdleConnection {
+        final Connection connection;
+        final long returnedAt;
+
+        IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.returnedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Delegates every call to the physical connection except close(), which hands it back to the pool.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final Connection physical;
+        private boolean returned = false;
+
+        PooledConnectionHandler(Connection physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of the pool's state and counters.
+     */
+    public static final class PoolStats {
+        private final int active;
+        private final int idle;
+        private final int open;
+        private final int minSize;
+        private final int maxSize;
+        private final int waitingThreads;
+        private final long borrowCount;
+        private final long timeoutCount;
+        private final long discardedCount;
+        private final long totalWaitMillis;
+        private final double averageWaitMillis;
+        private final long maxWaitMillis;
+
+        PoolStats(int active, int idle, int open, int minSize, int maxSize, int waitingThreads, long borrowCount,
+                  long timeoutCount, long discardedCount, long totalWaitMillis, double averageWaitMillis, long maxWaitMillis) {
+            this.active = active;
+            this.idle = idle;
+            this.open = open;
+            this.minSize = minSize;
+            this.maxSize = maxSize;
+            this.waitingThreads = waitingThreads;
+            this.borrowCount = borrowCount;
+            this.timeoutCount = timeoutCount;
+            this.discardedCount = discardedCount;
+            this.totalWaitMillis = totalWaitMillis;
+            this.averageWaitMillis = averageWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        // Getters
+        public int getActive() { return active; }
+        public int getIdle() { return idle; }
+        public int getOpen() { return open; }
+        public int getMinSize() { return minSize; }
+        public int getMaxSize() { return maxSize; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getBorrowCount() { return borrowCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getDiscardedCount() { return discardedCount; }
+        public long getTotalWaitMillis() { return totalWaitMillis; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public long getMaxWaitMillis() { return maxWaitMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d, idle=%d, open=%d (min=%d, max=%d), waiting=%d, borrows=%d, timeouts=%d, "
+                            + "discarded=%d, wait total=%d ms, avg=%.3f ms, max=%d ms",
+                    active, idle, open, minSize, maxSize, waitingThreads, borrowCount, timeoutCount,
+                    discardedCount, totalWaitMillis, averageWaitMillis, maxWaitMillis);
+        }
+    }
+}
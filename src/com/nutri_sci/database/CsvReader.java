@@ -0,0 +1,112 @@
+package com.nutri_sci.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming CSV parser for the CNF files. Reads each record in a single pass with a small
+ * state machine instead of splitting lines with a regex. It handles quoted fields, doubled
+ * quotes ("") inside them, and line breaks inside quotes. Both \n and \r\n end a record.
+ */
+class CsvReader implements Closeable {
+    private enum State { FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED }
+
+    private final Reader reader;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private final StringBuilder field = new StringBuilder(64);
+    private final List<String> fields = new ArrayList<>();
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return The fields of the next record, or null at the end of the input.
+     */
+    String[] next() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        State state = State.FIELD_START;
+        boolean readAny = false;
+
+        while (true) {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (!readAny) return null;
+                    fields.add(field.toString());
+                    return fields.toArray(new String[0]);
+                }
+            }
+            char c = buffer[position++];
+            readAny = true;
+
+            if (state == State.FIELD_START) {
+                if (c == '"') {
+                    state = State.QUOTED;
+                    continue;
+                }
+                // Any other character belongs to an unquoted field.
+                state = State.UNQUOTED;
+            }
+
+            switch (state) {
+                case UNQUOTED:
+                    if (c == ',') {
+                        endField();
+                        state = State.FIELD_START;
+                    } else if (c == '\n') {
+                        return endRecord();
+                    } else if (c != '\r') {
+                        field.append(c);
+                    }
+                    break;
+                case QUOTED:
+                    if (c == '"') {
+                        state = State.QUOTE_IN_QUOTED;
+                    } else {
+                        field.append(c);
+                    }
+                    break;
+                case QUOTE_IN_QUOTED:
+                    if (c == '"') {
+                        // A doubled quote is a literal quote.
+                        field.append('"');
+                        state = State.QUOTED;
+                    } else if (c == ',') {
+                        endField();
+                        state = State.FIELD_START;
+                    } else if (c == '\n') {
+                        return endRecord();
+                    } else if (c != '\r') {
+                        // Text after the closing quote; keep it instead of failing on sloppy rows.
+                        field.append(c);
+                        state = State.UNQUOTED;
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void endField() {
+        fields.add(field.toString());
+        field.setLength(0);
+    }
+
+    private String[] endRecord() {
+        endField();
+        return fields.toArray(new String[0]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,49 +1,68 @@
 package com.nutri_sci.database;
 
 import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.IngredientParser;
 import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
 import com.nutri_sci.model.UserProfile;
 
 import java.sql.*;
 import java.util.Date;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Manages all database connections and queries for the application.
  * Implements the Singleton pattern to ensure only one instance exists.
+ * Queries borrow a connection from a shared {@link ConnectionPool}, so the
+ * instance is safe to use from several threads at once.
+ * This is the MySQL backend of the repository interfaces; callers obtain it through {@link Repositories}.
  */
-public class DBManager {
+public class DBManager implements FoodCatalogRepository, MealRepository, ProfileRepository {
     // The single, static instance of the DBManager for the Singleton pattern.
     private static DBManager instance;
-    private Connection connection;
-
-    // Database connection details.
-    private static final String DB_URL = "jdbc:mysql://localhost/nutrisci_db";
-    private static final String USER = "root";
-    private static final String PASS = "root";
+    private final ConnectionPool pool;
+    // When true, read-only CNF lookups are answered from the in-memory NutrientCatalog.
+    private final boolean catalogEnabled;
+    // The NUTRIENT_NAME dictionary behind every nutrient vector, loaded on first use.
+    private volatile NutrientRegistry nutrientRegistry;
 
     // Constant IDs mapping to the primary keys in the NUTRIENT_NAME table.
-    private static final int CALORIE_NUTRIENT_ID = 208;
-    private static final int PROTEIN_NUTRIENT_ID = 203;
-    private static final int FIBER_NUTRIENT_ID = 291;
+    static final int CALORIE_NUTRIENT_ID = 208;
+    static final int PROTEIN_NUTRIENT_ID = 203;
+    static final int FIBER_NUTRIENT_ID = 291;
+
+    // Maximum number of values bound into a single IN (...) list by the batch lookups.
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
 
-    // Regex to parse ingredient strings like "100g chicken breast".
-    private final Pattern ingredientPattern = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
+    // Meal inserts shared by saveMeal and the batched saveMeals.
+    private static final String INSERT_MEAL_SQL = "INSERT INTO MEAL_LOG (UserID, MealDate, MealType, Ingredients, EstimatedCalories, IsSwapped, OriginalMealID, NutrientCnfVersion) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_MEAL_INGREDIENT_SQL = "INSERT INTO MEAL_INGREDIENT (MealID, LineNo, FoodID, Grams) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_MEAL_NUTRIENT_SQL = "INSERT INTO MEAL_NUTRIENT (MealID, NutrientID, Amount) VALUES (?, ?, ?)";
+    private static final String MARK_REPLACED_SQL = "UPDATE MEAL_LOG SET IsReplaced = TRUE, SupersededBy = ? WHERE MealID = ?";
 
     /**
      * Private constructor to prevent direct instantiation (part of Singleton pattern).
+     * Connection details and pool sizing come from {@link DatabaseConfig}.
      */
     private DBManager() {
         try {
-            connection = DriverManager.getConnection(DB_URL, USER, PASS);
+            pool = ConnectionPool.fromConfig(DatabaseConfig.getInstance());
+            catalogEnabled = DatabaseConfig.getInstance().isNutrientCatalogEnabled();
             createApplicationTables();
+            new SchemaMigrator(pool).migrate();
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to connect to the database.");
@@ -73,13 +92,70 @@ public class DBManager {
                 + "EstimatedCalories DOUBLE,"
                 + "IsSwapped BOOLEAN DEFAULT FALSE,"
                 + "OriginalMealID INT NULL,"
+                + "NutrientCnfVersion INT NULL,"
+                + "IsReplaced BOOLEAN NOT NULL DEFAULT FALSE,"
+                + "SupersededBy INT NULL,"
+                + "INDEX idx_meal_log_user_current (UserID, IsReplaced, MealDate),"
+                + "INDEX idx_meal_log_user_type_date (UserID, MealType, MealDate),"
                 + "FOREIGN KEY (UserID) REFERENCES USER_PROFILE(UserID) ON DELETE CASCADE,"
                 + "FOREIGN KEY (OriginalMealID) REFERENCES MEAL_LOG(MealID) ON DELETE SET NULL"
                 + ");";
 
-        try (Statement stmt = connection.createStatement()) {
+        // One row per resolved ingredient line of a meal, keyed by CNF FoodID.
+        String createMealIngredientTable = "CREATE TABLE IF NOT EXISTS MEAL_INGREDIENT ("
+                + "MealID INT NOT NULL,"
+                + "LineNo INT NOT NULL,"
+                + "FoodID BIGINT NOT NULL,"
+                + "Grams DOUBLE NOT NULL,"
+                + "PRIMARY KEY (MealID, LineNo),"
+                + "INDEX idx_meal_ingredient_food (FoodID),"
+                + "FOREIGN KEY (MealID) REFERENCES MEAL_LOG(MealID) ON DELETE CASCADE"
+                + ");";
+
+        // Nutrient totals of each meal, computed when the meal is saved.
+        // They are valid for the CNF data version recorded in MEAL_LOG.NutrientCnfVersion.
+        String createMealNutrientTable = "CREATE TABLE IF NOT EXISTS MEAL_NUTRIENT ("
+                + "MealID INT NOT NULL,"
+                + "NutrientID INT NOT NULL,"
+                + "Amount DOUBLE NOT NULL,"
+                + "PRIMARY KEY (MealID, NutrientID),"
+                + "FOREIGN KEY (MealID) REFERENCES MEAL_LOG(MealID) ON DELETE CASCADE"
+                + ");";
+
+        // Single-row table holding the version of the loaded CNF data. Reloading the CNF tables bumps it.
+        String createCnfVersionTable = "CREATE TABLE IF NOT EXISTS CNF_VERSION ("
+                + "Id TINYINT PRIMARY KEY,"
+                + "Version INT NOT NULL,"
+                + "UpdatedAt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP"
+                + ");";
+
+        // Per-user, per-day nutrient totals of the meals that have not been replaced by a swap.
+        String createDailyNutrientSummaryTable = "CREATE TABLE IF NOT EXISTS DAILY_NUTRIENT_SUMMARY ("
+                + "UserID INT NOT NULL,"
+                + "Day DATE NOT NULL,"
+                + "NutrientID INT NOT NULL,"
+                + "Total DOUBLE NOT NULL,"
+                + "PRIMARY KEY (UserID, Day, NutrientID),"
+                + "FOREIGN KEY (UserID) REFERENCES USER_PROFILE(UserID) ON DELETE CASCADE"
+                + ");";
+
+        // The CNF version each user's rollup was built against. A missing row means it must be rebuilt.
+        String createDailySummaryStateTable = "CREATE TABLE IF NOT EXISTS DAILY_NUTRIENT_SUMMARY_STATE ("
+                + "UserID INT PRIMARY KEY,"
+                + "CnfVersion INT NOT NULL,"
+                + "FOREIGN KEY (UserID) REFERENCES USER_PROFILE(UserID) ON DELETE CASCADE"
+                + ");";
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
             stmt.executeUpdate(createUserProfileTable);
             stmt.executeUpdate(createMealLogTable);
+            stmt.executeUpdate(createMealIngredientTable);
+            stmt.executeUpdate(createMealNutrientTable);
+            stmt.executeUpdate(createCnfVersionTable);
+            stmt.executeUpdate(createDailyNutrientSummaryTable);
+            stmt.executeUpdate(createDailySummaryStateTable);
+            stmt.executeUpdate("INSERT IGNORE INTO CNF_VERSION (Id, Version) VALUES (1, 1)");
         } catch (SQLException e) {
             e.printStackTrace();
             throw new RuntimeException("Failed to create or verify application tables.", e);
@@ -96,9 +172,34 @@ public class DBManager {
         return instance;
     }
 
+    /**
+     * Returns a snapshot of the connection pool counters (active, idle, wait times).
+     */
+    public ConnectionPool.PoolStats getPoolStats() {
+        return pool.getStats();
+    }
+
+    /**
+     * Borrows a pooled connection for other classes in this package (e.g. NutrientCatalog).
+     * The caller must close it to return it to the pool.
+     */
+    Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    /**
+     * Returns the in-memory catalog, or null when lookups should go to the database instead.
+     * With the catalog disabled in the configuration, a CNF snapshot matching the database
+     * version is still used, since mapping it costs no JDBC load.
+     */
+    private NutrientCatalog catalogIfEnabled() {
+        return catalogEnabled ? NutrientCatalog.getInstance() : NutrientCatalog.getSnapshotInstance();
+    }
+
     public Date getMostRecentMealDate(int userId) {
         String sql = "SELECT MAX(MealDate) AS latestDate FROM MEAL_LOG WHERE UserID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -114,6 +215,11 @@ public class DBManager {
     }
 
     public List<String> getFoodsByNutrientRank(String nutrientName, String rank) {
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getFoodsByNutrientRank(nutrientName, rank);
+        }
+
         int nutrientId;
         switch (nutrientName) {
             case "Protein":
@@ -136,7 +242,8 @@ public class DBManager {
                 "ORDER BY NA.NutrientValue " + sortOrder + " " +
                 "LIMIT 300";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, nutrientId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -150,7 +257,8 @@ public class DBManager {
 
     public UserProfile saveProfile(UserProfile profile) {
         String sql = "INSERT INTO USER_PROFILE (ProfileName, Sex, DateOfBirth, HeightCM, WeightKG, MeasurementUnit) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setString(1, profile.getName());
             pstmt.setString(2, profile.getSex());
             pstmt.setDate(3, new java.sql.Date(profile.getDateOfBirth().getTime()));
@@ -172,7 +280,8 @@ public class DBManager {
 
     public UserProfile getProfile(String profileName) {
         String sql = "SELECT * FROM USER_PROFILE WHERE ProfileName = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, profileName);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -195,7 +304,9 @@ public class DBManager {
     public Set<String> getAllUserNames() {
         Set<String> userNames = new HashSet<>();
         String sql = "SELECT ProfileName FROM USER_PROFILE";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 userNames.add(rs.getString("ProfileName"));
             }
@@ -205,27 +316,522 @@ public class DBManager {
         return userNames;
     }
 
+    /**
+     * Saves a meal, its resolved ingredient lines and its nutrient breakdown (if calculated) in one transaction.
+     * The user's daily nutrient rollup is updated in the same transaction and, for a swap,
+     * the original meal is flagged as replaced.
+     * If the meal carries no resolved ingredients, they are resolved from the ingredient text first.
+     * On success the generated MealID is stored on the meal.
+     */
     public boolean saveMeal(int userId, Meal meal) {
-        String sql = "INSERT INTO MEAL_LOG (UserID, MealDate, MealType, Ingredients, EstimatedCalories, IsSwapped, OriginalMealID) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        if (meal.getResolvedIngredients() == null) {
+            meal.setResolvedIngredients(resolveIngredients(meal.getParsedIngredients()));
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            int cnfVersion = getCnfVersion(conn);
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MEAL_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                bindMealInsert(pstmt, userId, meal, cnfVersion);
+                if (pstmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                ResultSet generatedKeys = pstmt.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    meal.setMealId(generatedKeys.getInt(1));
+                }
+
+                insertMealIngredients(conn, meal.getMealId(), meal.getResolvedIngredients());
+                if (meal.getNutrientBreakdown() != null) {
+                    insertMealNutrients(conn, meal.getMealId(), meal.getNutrientBreakdown());
+                }
+                updateDailyNutrientSummary(conn, userId, meal, cnfVersion);
+                if (meal.getOriginalMealId() != null) {
+                    markReplaced(conn, meal.getOriginalMealId(), meal.getMealId());
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Saves many meals in one transaction, e.g. a swap applied over a date range. The meal rows, their
+     * ingredient lines, their nutrient totals and the replaced flags of swapped originals are each written
+     * with one batched statement, and the daily rollup is updated for the whole batch at once.
+     * Ingredients are resolved in one lookup for the meals that carry none.
+     * If any statement fails nothing is saved; on success the generated MealIDs are stored on the meals.
+     */
+    public boolean saveMeals(int userId, List<Meal> meals) {
+        if (meals.isEmpty()) return true;
+        List<Meal> unresolved = new ArrayList<>();
+        for (Meal meal : meals) {
+            if (meal.getResolvedIngredients() == null) unresolved.add(meal);
+        }
+        if (!unresolved.isEmpty()) {
+            List<List<ParsedIngredient>> parsed = new ArrayList<>();
+            unresolved.forEach(meal -> parsed.add(meal.getParsedIngredients()));
+            List<List<MealIngredient>> resolved = resolveMealIngredients(parsed);
+            for (int i = 0; i < unresolved.size(); i++) {
+                unresolved.get(i).setResolvedIngredients(resolved.get(i));
+            }
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            int cnfVersion = getCnfVersion(conn);
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertMeal = conn.prepareStatement(INSERT_MEAL_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement insertIngredient = conn.prepareStatement(INSERT_MEAL_INGREDIENT_SQL);
+                 PreparedStatement insertNutrient = conn.prepareStatement(INSERT_MEAL_NUTRIENT_SQL);
+                 PreparedStatement markReplaced = conn.prepareStatement(MARK_REPLACED_SQL)) {
+                // Decide how the rollup is updated while the originals are still unflagged.
+                List<Integer> originalIds = new ArrayList<>();
+                boolean allCalculated = true;
+                for (Meal meal : meals) {
+                    if (meal.getOriginalMealId() != null) originalIds.add(meal.getOriginalMealId());
+                    if (meal.getNutrientBreakdown() == null) allCalculated = false;
+                }
+                boolean rollupCurrent = isDailyNutrientSummaryCurrent(conn, userId, cnfVersion);
+                boolean rollupIncremental = rollupCurrent && allCalculated && areActiveAndCurrent(conn, originalIds, cnfVersion);
+
+                for (Meal meal : meals) {
+                    bindMealInsert(insertMeal, userId, meal, cnfVersion);
+                    insertMeal.addBatch();
+                }
+                insertMeal.executeBatch();
+                List<Integer> mealIds = new ArrayList<>();
+                ResultSet generatedKeys = insertMeal.getGeneratedKeys();
+                while (generatedKeys.next()) {
+                    mealIds.add(generatedKeys.getInt(1));
+                }
+                if (mealIds.size() != meals.size()) {
+                    throw new SQLException("Expected " + meals.size() + " generated MealIDs but got " + mealIds.size() + ".");
+                }
+
+                for (int i = 0; i < meals.size(); i++) {
+                    Meal meal = meals.get(i);
+                    int mealId = mealIds.get(i);
+                    addMealIngredients(insertIngredient, mealId, meal.getResolvedIngredients());
+                    if (meal.getNutrientBreakdown() != null) {
+                        addMealNutrients(insertNutrient, mealId, meal.getNutrientBreakdown());
+                    }
+                    if (meal.getOriginalMealId() != null) {
+                        markReplaced.setInt(1, mealId);
+                        markReplaced.setInt(2, meal.getOriginalMealId());
+                        markReplaced.addBatch();
+                    }
+                }
+                insertIngredient.executeBatch();
+                insertNutrient.executeBatch();
+                markReplaced.executeBatch();
+
+                if (rollupIncremental) {
+                    addMealsToDailySummary(conn, mealIds, 1);
+                    addMealsToDailySummary(conn, originalIds, -1);
+                } else if (rollupCurrent) {
+                    invalidateDailyNutrientSummary(conn, userId);
+                }
+                conn.commit();
+                for (int i = 0; i < meals.size(); i++) {
+                    meals.get(i).setMealId(mealIds.get(i));
+                }
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private static void bindMealInsert(PreparedStatement pstmt, int userId, Meal meal, int cnfVersion) throws SQLException {
+        pstmt.setInt(1, userId);
+        pstmt.setTimestamp(2, new Timestamp(meal.getDate().getTime()));
+        pstmt.setString(3, meal.getMealType());
+        pstmt.setString(4, meal.getIngredients());
+        pstmt.setDouble(5, meal.getEstimatedCalories());
+        pstmt.setBoolean(6, meal.isSwapped());
+        if (meal.getOriginalMealId() != null) {
+            pstmt.setInt(7, meal.getOriginalMealId());
+        } else {
+            pstmt.setNull(7, java.sql.Types.INTEGER);
+        }
+        if (meal.getNutrientBreakdown() != null) {
+            pstmt.setInt(8, cnfVersion);
+        } else {
+            pstmt.setNull(8, java.sql.Types.INTEGER);
+        }
+    }
+
+    private void insertMealIngredients(Connection conn, int mealId, List<MealIngredient> ingredients) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MEAL_INGREDIENT_SQL)) {
+            addMealIngredients(pstmt, mealId, ingredients);
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void addMealIngredients(PreparedStatement pstmt, int mealId, List<MealIngredient> ingredients) throws SQLException {
+        for (MealIngredient ingredient : ingredients) {
+            pstmt.setInt(1, mealId);
+            pstmt.setInt(2, ingredient.getLineNo());
+            pstmt.setInt(3, ingredient.getFoodId());
+            pstmt.setDouble(4, ingredient.getGrams());
+            pstmt.addBatch();
+        }
+    }
+
+    private void insertMealNutrients(Connection conn, int mealId, NutrientVector nutrients) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_MEAL_NUTRIENT_SQL)) {
+            addMealNutrients(pstmt, mealId, nutrients);
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void addMealNutrients(PreparedStatement pstmt, int mealId, NutrientVector nutrients) throws SQLException {
+        NutrientRegistry registry = nutrients.getRegistry();
+        for (int n = 0; n < registry.size(); n++) {
+            // Absent rows read back as 0, so zero amounts are not stored.
+            if (nutrients.getAt(n) == 0.0) continue;
+            pstmt.setInt(1, mealId);
+            pstmt.setInt(2, registry.getNutrientId(n));
+            pstmt.setDouble(3, nutrients.getAt(n));
+            pstmt.addBatch();
+        }
+    }
+
+    /**
+     * Replaces the stored nutrient totals of already saved meals, e.g. after they were
+     * recalculated because the CNF data changed. All meals are written in one transaction.
+     */
+    public boolean saveMealNutrients(List<Meal> meals) {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            int cnfVersion = getCnfVersion(conn);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM MEAL_NUTRIENT WHERE MealID = ?");
+                 PreparedStatement update = conn.prepareStatement("UPDATE MEAL_LOG SET NutrientCnfVersion = ? WHERE MealID = ?");
+                 PreparedStatement invalidate = conn.prepareStatement("DELETE FROM DAILY_NUTRIENT_SUMMARY_STATE WHERE UserID = (SELECT UserID FROM MEAL_LOG WHERE MealID = ?)")) {
+                for (Meal meal : meals) {
+                    if (meal.getNutrientBreakdown() == null) continue;
+                    delete.setInt(1, meal.getMealId());
+                    delete.executeUpdate();
+                    insertMealNutrients(conn, meal.getMealId(), meal.getNutrientBreakdown());
+                    update.setInt(1, cnfVersion);
+                    update.setInt(2, meal.getMealId());
+                    update.executeUpdate();
+                    // The rollup was built from the old totals.
+                    invalidate.setInt(1, meal.getMealId());
+                    invalidate.executeUpdate();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // --- Daily nutrient rollup ---
+
+    /**
+     * Adds a newly saved meal to the user's daily rollup and, for a swap, subtracts the meal it replaces.
+     * When the change cannot be applied incrementally (the rollup is out of date, or a meal has no
+     * current nutrient totals) the rollup is marked stale and rebuilt on the next read instead.
+     */
+    private void updateDailyNutrientSummary(Connection conn, int userId, Meal meal, int cnfVersion) throws SQLException {
+        if (!isDailyNutrientSummaryCurrent(conn, userId, cnfVersion)) return;
+        if (meal.getNutrientBreakdown() == null) {
+            invalidateDailyNutrientSummary(conn, userId);
+            return;
+        }
+        addMealToDailySummary(conn, meal.getMealId(), 1);
+
+        Integer originalMealId = meal.getOriginalMealId();
+        if (originalMealId == null || isReplaced(conn, originalMealId)) return;
+        if (getMealNutrientCnfVersion(conn, originalMealId) != cnfVersion) {
+            invalidateDailyNutrientSummary(conn, userId);
+            return;
+        }
+        addMealToDailySummary(conn, originalMealId, -1);
+    }
+
+    private void addMealToDailySummary(Connection conn, int mealId, int sign) throws SQLException {
+        addMealsToDailySummary(conn, Collections.singletonList(mealId), sign);
+    }
+
+    private void addMealsToDailySummary(Connection conn, List<Integer> mealIds, int sign) throws SQLException {
+        for (List<Integer> ids : chunk(mealIds)) {
+            String sql = "INSERT INTO DAILY_NUTRIENT_SUMMARY (UserID, Day, NutrientID, Total) "
+                    + "SELECT ml.UserID, DATE(ml.MealDate), mn.NutrientID, ? * mn.Amount FROM MEAL_NUTRIENT mn "
+                    + "JOIN MEAL_LOG ml ON ml.MealID = mn.MealID WHERE mn.MealID IN (" + placeholders(ids.size()) + ") "
+                    + "ON DUPLICATE KEY UPDATE Total = Total + VALUES(Total)";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, sign);
+                for (int i = 0; i < ids.size(); i++) {
+                    pstmt.setInt(i + 2, ids.get(i));
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * @return true if every meal is distinct, not yet replaced and has nutrient totals for the given CNF version,
+     * i.e. it is counted in a current rollup and can be subtracted from it.
+     */
+    private boolean areActiveAndCurrent(Connection conn, List<Integer> mealIds, int cnfVersion) throws SQLException {
+        if (new HashSet<>(mealIds).size() != mealIds.size()) return false;
+        for (List<Integer> ids : chunk(mealIds)) {
+            String sql = "SELECT COUNT(*) FROM MEAL_LOG WHERE MealID IN (" + placeholders(ids.size()) + ") AND IsReplaced = FALSE AND NutrientCnfVersion = ?";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < ids.size(); i++) {
+                    pstmt.setInt(i + 1, ids.get(i));
+                }
+                pstmt.setInt(ids.size() + 1, cnfVersion);
+                ResultSet rs = pstmt.executeQuery();
+                if (!rs.next() || rs.getInt(1) != ids.size()) return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isReplaced(Connection conn, int mealId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT IsReplaced FROM MEAL_LOG WHERE MealID = ?")) {
+            pstmt.setInt(1, mealId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() && rs.getBoolean("IsReplaced");
+        }
+    }
+
+    /**
+     * Flags a meal as replaced by a swap so journal queries can skip it through the (UserID, IsReplaced, MealDate) index.
+     */
+    private void markReplaced(Connection conn, int mealId, int supersededBy) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(MARK_REPLACED_SQL)) {
+            pstmt.setInt(1, supersededBy);
+            pstmt.setInt(2, mealId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private int getMealNutrientCnfVersion(Connection conn, int mealId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT NutrientCnfVersion FROM MEAL_LOG WHERE MealID = ?")) {
+            pstmt.setInt(1, mealId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt("NutrientCnfVersion") : 0;
+        }
+    }
+
+    private boolean isDailyNutrientSummaryCurrent(Connection conn, int userId, int cnfVersion) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT CnfVersion FROM DAILY_NUTRIENT_SUMMARY_STATE WHERE UserID = ?")) {
             pstmt.setInt(1, userId);
-            pstmt.setTimestamp(2, new Timestamp(meal.getDate().getTime()));
-            pstmt.setString(3, meal.getMealType());
-            pstmt.setString(4, meal.getIngredients());
-            pstmt.setDouble(5, meal.getEstimatedCalories());
-            pstmt.setBoolean(6, meal.isSwapped());
-            if (meal.getOriginalMealId() != null) {
-                pstmt.setInt(7, meal.getOriginalMealId());
-            } else {
-                pstmt.setNull(7, java.sql.Types.INTEGER);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() && rs.getInt("CnfVersion") == cnfVersion;
+        }
+    }
+
+    private void invalidateDailyNutrientSummary(Connection conn, int userId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM DAILY_NUTRIENT_SUMMARY_STATE WHERE UserID = ?")) {
+            pstmt.setInt(1, userId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return true if the user's daily rollup matches the current CNF data and can be queried directly.
+     */
+    public boolean isDailyNutrientSummaryCurrent(int userId) {
+        try (Connection conn = pool.getConnection()) {
+            return isDailyNutrientSummaryCurrent(conn, userId, getCnfVersion(conn));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds the user's daily rollup from the stored MEAL_NUTRIENT totals of every meal that has not been replaced.
+     * Callers must first make sure those totals are current (see NutrientCalculator.getMealNutrients).
+     */
+    public boolean rebuildDailyNutrientSummary(int userId) {
+        String rebuild = "INSERT INTO DAILY_NUTRIENT_SUMMARY (UserID, Day, NutrientID, Total) "
+                + "SELECT ml.UserID, DATE(ml.MealDate), mn.NutrientID, SUM(mn.Amount) FROM MEAL_LOG ml "
+                + "JOIN MEAL_NUTRIENT mn ON mn.MealID = ml.MealID "
+                + "WHERE ml.UserID = ? AND ml.IsReplaced = FALSE AND ml.NutrientCnfVersion = ? "
+                + "GROUP BY ml.UserID, DATE(ml.MealDate), mn.NutrientID";
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM DAILY_NUTRIENT_SUMMARY WHERE UserID = ?");
+                 PreparedStatement insert = conn.prepareStatement(rebuild);
+                 PreparedStatement state = conn.prepareStatement("REPLACE INTO DAILY_NUTRIENT_SUMMARY_STATE (UserID, CnfVersion) VALUES (?, ?)")) {
+                int cnfVersion = getCnfVersion(conn);
+                delete.setInt(1, userId);
+                delete.executeUpdate();
+                insert.setInt(1, userId);
+                insert.setInt(2, cnfVersion);
+                insert.executeUpdate();
+                state.setInt(1, userId);
+                state.setInt(2, cnfVersion);
+                state.executeUpdate();
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
-            return pstmt.executeUpdate() > 0;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Sums the user's daily rollup over a range of days with a single aggregate query.
+     * @return The nutrient totals for the range, all 0 if nothing was logged.
+     */
+    public NutrientVector getNutrientTotalsFromDailySummary(int userId, Date startDate, Date endDate) {
+        NutrientRegistry registry = getNutrientRegistry();
+        NutrientVector totals = new NutrientVector(registry);
+        String sql = "SELECT NutrientID, SUM(Total) AS Total FROM DAILY_NUTRIENT_SUMMARY "
+                + "WHERE UserID = ? AND Day BETWEEN ? AND ? GROUP BY NutrientID";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setDate(2, new java.sql.Date(startDate.getTime()));
+            pstmt.setDate(3, new java.sql.Date(endDate.getTime()));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                int ordinal = registry.ordinalOf(rs.getInt("NutrientID"));
+                if (ordinal >= 0) {
+                    totals.setAt(ordinal, rs.getDouble("Total"));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the version of the loaded CNF data. Stored meal nutrient totals are only
+     * used when they were computed against this version.
+     */
+    public int getCnfVersion() {
+        try (Connection conn = pool.getConnection()) {
+            return getCnfVersion(conn);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    private int getCnfVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Version FROM CNF_VERSION WHERE Id = 1")) {
+            return rs.next() ? rs.getInt("Version") : 0;
+        }
+    }
+
+    /**
+     * Loads the MEAL_INGREDIENT rows of the given meals with one query and attaches them.
+     * Meals without rows keep a null list so callers fall back to the ingredient text.
+     */
+    private void attachResolvedIngredients(Connection conn, List<Meal> meals) throws SQLException {
+        Map<Integer, Meal> mealsById = new HashMap<>();
+        meals.forEach(meal -> mealsById.put(meal.getMealId(), meal));
+        for (List<Integer> chunk : chunk(new ArrayList<>(mealsById.keySet()))) {
+            String sql = "SELECT MealID, LineNo, FoodID, Grams FROM MEAL_INGREDIENT WHERE MealID IN (" + placeholders(chunk.size()) + ") ORDER BY MealID, LineNo";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    Meal meal = mealsById.get(rs.getInt("MealID"));
+                    if (meal.getResolvedIngredients() == null) {
+                        meal.setResolvedIngredients(new ArrayList<>());
+                    }
+                    meal.getResolvedIngredients().add(new MealIngredient(rs.getInt("LineNo"), rs.getInt("FoodID"), rs.getDouble("Grams")));
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the stored MEAL_NUTRIENT totals of the given meals with one query and attaches them
+     * as their nutrient breakdown. Callers pass only meals whose totals match the current CNF version.
+     */
+    private void attachNutrientBreakdowns(Connection conn, List<Meal> meals) throws SQLException {
+        if (meals.isEmpty()) return;
+        NutrientRegistry registry = getNutrientRegistry();
+        Map<Integer, Meal> mealsById = new HashMap<>();
+        for (Meal meal : meals) {
+            meal.setNutrientBreakdown(new NutrientVector(registry));
+            mealsById.put(meal.getMealId(), meal);
+        }
+        for (List<Integer> chunk : chunk(new ArrayList<>(mealsById.keySet()))) {
+            String sql = "SELECT MealID, NutrientID, Amount FROM MEAL_NUTRIENT WHERE MealID IN (" + placeholders(chunk.size()) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int ordinal = registry.ordinalOf(rs.getInt("NutrientID"));
+                    if (ordinal >= 0) {
+                        mealsById.get(rs.getInt("MealID")).getNutrientBreakdown().setAt(ordinal, rs.getDouble("Amount"));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the NUTRIENT_NAME dictionary that nutrient vectors are indexed by. With the catalog enabled
+     * this is the catalog's own registry, so its profiles can be used without remapping.
+     */
+    public NutrientRegistry getNutrientRegistry() {
+        NutrientRegistry registry = nutrientRegistry;
+        return registry != null ? registry : loadNutrientRegistry();
+    }
+
+    private synchronized NutrientRegistry loadNutrientRegistry() {
+        if (nutrientRegistry != null) return nutrientRegistry;
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            nutrientRegistry = catalog.getNutrientRegistry();
+            return nutrientRegistry;
+        }
+        List<Integer> ids = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NutrientID, NutrientName, NutrientUnit FROM NUTRIENT_NAME ORDER BY NutrientID")) {
+            while (rs.next()) {
+                ids.add(rs.getInt("NutrientID"));
+                keys.add(rs.getString("NutrientName") + " (" + rs.getString("NutrientUnit") + ")");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            // Not cached, so the next call tries again.
+            return new NutrientRegistry(new int[0], new String[0]);
+        }
+        nutrientRegistry = new NutrientRegistry(ids.stream().mapToInt(Integer::intValue).toArray(), keys.toArray(new String[0]));
+        return nutrientRegistry;
+    }
+
     public List<Meal> getMealsForUser(int userId) {
         return getMealsForUser(userId, null, null, false);
     }
@@ -239,7 +845,7 @@ public class DBManager {
         StringBuilder sql = new StringBuilder("SELECT * FROM MEAL_LOG WHERE UserID = ?");
 
         if (!includeReplacedMeals) {
-            sql.append(" AND MealID NOT IN (SELECT OriginalMealID FROM MEAL_LOG WHERE OriginalMealID IS NOT NULL AND UserID = ?)");
+            sql.append(" AND IsReplaced = FALSE");
         }
 
         if (startDate != null) {
@@ -248,36 +854,140 @@ public class DBManager {
         if (endDate != null) {
             sql.append(" AND MealDate <= ?");
         }
-        sql.append(" ORDER BY MealDate DESC");
+        sql.append(" ORDER BY MealDate DESC, MealID DESC");
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
             int paramIndex = 1;
             pstmt.setInt(paramIndex++, userId);
-            if (!includeReplacedMeals) {
-                pstmt.setInt(paramIndex++, userId);
-            }
             if (startDate != null) {
                 pstmt.setTimestamp(paramIndex++, new Timestamp(startDate.getTime()));
             }
             if (endDate != null) {
                 pstmt.setTimestamp(paramIndex++, new Timestamp(endDate.getTime()));
             }
+            meals = readMeals(conn, pstmt);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return meals;
+    }
 
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Meal meal = new Meal();
-                meal.setMealId(rs.getInt("MealID"));
-                meal.setDate(rs.getTimestamp("MealDate"));
-                meal.setMealType(rs.getString("MealType"));
-                meal.setIngredients(rs.getString("Ingredients"));
-                meal.setEstimatedCalories(rs.getDouble("EstimatedCalories"));
-                meal.setSwapped(rs.getBoolean("IsSwapped"));
-                meal.setOriginalMealId((Integer) rs.getObject("OriginalMealID"));
-                meals.add(meal);
+    /**
+     * Returns one page of the user's meal journal (replaced meals excluded), newest first.
+     * Uses keyset pagination on (MealDate, MealID): the next page starts right after the last
+     * meal of the previous one, so every page is an index range scan no matter how deep it is.
+     *
+     * @param after    The last meal of the previous page, or null for the first page.
+     * @param pageSize The maximum number of meals to return.
+     */
+    public List<Meal> getMealPage(int userId, Meal after, int pageSize) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM MEAL_LOG WHERE UserID = ? AND IsReplaced = FALSE");
+        if (after != null) {
+            sql.append(" AND (MealDate < ? OR (MealDate = ? AND MealID < ?))");
+        }
+        sql.append(" ORDER BY MealDate DESC, MealID DESC LIMIT ?");
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int paramIndex = 1;
+            pstmt.setInt(paramIndex++, userId);
+            if (after != null) {
+                Timestamp afterDate = new Timestamp(after.getDate().getTime());
+                pstmt.setTimestamp(paramIndex++, afterDate);
+                pstmt.setTimestamp(paramIndex++, afterDate);
+                pstmt.setInt(paramIndex++, after.getMealId());
             }
+            pstmt.setInt(paramIndex, pageSize);
+            return readMeals(conn, pstmt, false);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Reads the page at an offset, e.g. after a scrollbar jump. The offset is skipped in the derived table,
+     * which is answered from the (UserID, IsReplaced, MealDate) index alone (InnoDB keeps MealID in it),
+     * so only the rows of the page itself are read from MEAL_LOG.
+     */
+    public List<Meal> getMealPage(int userId, int offset, int pageSize) {
+        String sql = "SELECT ml.* FROM MEAL_LOG ml JOIN ("
+                + "SELECT MealID FROM MEAL_LOG WHERE UserID = ? AND IsReplaced = FALSE "
+                + "ORDER BY MealDate DESC, MealID DESC LIMIT ? OFFSET ?"
+                + ") page ON page.MealID = ml.MealID ORDER BY ml.MealDate DESC, ml.MealID DESC";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, pageSize);
+            pstmt.setInt(3, offset);
+            return readMeals(conn, pstmt, false);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+
+    public int getMaxMealId(int userId) {
+        String sql = "SELECT MAX(MealID) FROM MEAL_LOG WHERE UserID = ?";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
         } catch (SQLException e) {
             e.printStackTrace();
+            return 0;
         }
+    }
+
+    /**
+     * Counts the meals shown in the user's journal (replaced meals excluded).
+     * Answered from the (UserID, IsReplaced, MealDate) index alone.
+     */
+    public int countMealsForUser(int userId) {
+        String sql = "SELECT COUNT(*) FROM MEAL_LOG WHERE UserID = ? AND IsReplaced = FALSE";
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    private List<Meal> readMeals(Connection conn, PreparedStatement pstmt) throws SQLException {
+        return readMeals(conn, pstmt, true);
+    }
+
+    /**
+     * Runs a MEAL_LOG query and builds the meals, attaching their resolved ingredients and,
+     * if requested and where they match the current CNF version, their stored nutrient totals.
+     * Journal pages skip the totals, since the table never shows them.
+     */
+    private List<Meal> readMeals(Connection conn, PreparedStatement pstmt, boolean withNutrients) throws SQLException {
+        int cnfVersion = withNutrients ? getCnfVersion(conn) : 0;
+        List<Meal> meals = new ArrayList<>();
+        List<Meal> currentMeals = new ArrayList<>();
+        ResultSet rs = pstmt.executeQuery();
+        while (rs.next()) {
+            Meal meal = new Meal();
+            meal.setMealId(rs.getInt("MealID"));
+            meal.setDate(rs.getTimestamp("MealDate"));
+            meal.setMealType(rs.getString("MealType"));
+            meal.setIngredients(rs.getString("Ingredients"));
+            meal.setEstimatedCalories(rs.getDouble("EstimatedCalories"));
+            meal.setSwapped(rs.getBoolean("IsSwapped"));
+            meal.setOriginalMealId((Integer) rs.getObject("OriginalMealID"));
+            meals.add(meal);
+            if (withNutrients && Integer.valueOf(cnfVersion).equals(rs.getObject("NutrientCnfVersion"))) {
+                currentMeals.add(meal);
+            }
+        }
+        attachResolvedIngredients(conn, meals);
+        attachNutrientBreakdowns(conn, currentMeals);
         return meals;
     }
 
@@ -289,19 +999,12 @@ public class DBManager {
      */
     public Meal getMealById(int mealId) {
         String sql = "SELECT * FROM MEAL_LOG WHERE MealID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, mealId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                Meal meal = new Meal();
-                meal.setMealId(rs.getInt("MealID"));
-                meal.setDate(rs.getTimestamp("MealDate"));
-                meal.setMealType(rs.getString("MealType"));
-                meal.setIngredients(rs.getString("Ingredients"));
-                meal.setEstimatedCalories(rs.getDouble("EstimatedCalories"));
-                meal.setSwapped(rs.getBoolean("IsSwapped"));
-                meal.setOriginalMealId((Integer) rs.getObject("OriginalMealID"));
-                return meal;
+            List<Meal> meals = readMeals(conn, pstmt);
+            if (!meals.isEmpty()) {
+                return meals.get(0);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -310,12 +1013,29 @@ public class DBManager {
     }
 
 
+    /**
+     * Checks whether the user already logged a meal of this type on the given day.
+     * The day is matched as a [midnight, next midnight) range on MealDate rather than DATE(MealDate),
+     * so the (UserID, MealType, MealDate) index can be used.
+     */
     public boolean hasUserLoggedMealTypeOnDate(int userId, String mealType, java.util.Date date) {
-        String sql = "SELECT COUNT(*) FROM MEAL_LOG WHERE UserID = ? AND MealType = ? AND DATE(MealDate) = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = "SELECT COUNT(*) FROM MEAL_LOG WHERE UserID = ? AND MealType = ? AND MealDate >= ? AND MealDate < ?";
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        Timestamp dayStart = new Timestamp(calendar.getTimeInMillis());
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        Timestamp nextDayStart = new Timestamp(calendar.getTimeInMillis());
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
             pstmt.setString(2, mealType);
-            pstmt.setDate(3, new java.sql.Date(date.getTime()));
+            pstmt.setTimestamp(3, dayStart);
+            pstmt.setTimestamp(4, nextDayStart);
 
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -328,8 +1048,14 @@ public class DBManager {
     }
 
     public double getCaloriesPer100g(int foodId) {
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getCaloriesPer100g(foodId);
+        }
+
         String sql = "SELECT NutrientValue FROM NUTRIENT_AMOUNT WHERE FoodID = ? AND NutrientID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, foodId);
             pstmt.setInt(2, CALORIE_NUTRIENT_ID);
             ResultSet rs = pstmt.executeQuery();
@@ -342,9 +1068,36 @@ public class DBManager {
         return 0.0;
     }
 
+    /**
+     * Returns every food in FOOD_NAME, for building in-memory search structures.
+     * @throws RuntimeException if the foods cannot be read, so no empty index gets built by mistake.
+     */
+    public List<FoodItem> getAllFoods() {
+        List<FoodItem> foods = new ArrayList<>();
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (int ordinal = 0; ordinal < catalog.getFoodCount(); ordinal++) {
+                foods.add(new FoodItem(catalog.getFoodId(ordinal), catalog.getFoodDescription(ordinal)));
+            }
+            return foods;
+        }
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT FoodID, FoodDescription FROM FOOD_NAME ORDER BY FoodID")) {
+            while (rs.next()) {
+                foods.add(new FoodItem(rs.getInt("FoodID"), rs.getString("FoodDescription")));
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read FOOD_NAME.", e);
+        }
+        return foods;
+    }
+
     /**
      * Searches the database for food items matching a description and returns a ranked list.
      * This method REPLACES the old findFoodId method.
+     * FoodSearchService answers the same search from memory and only falls back to this query.
      *
      * @param description The user-entered food description (e.g., "brown rice").
      * @param limit The maximum number of suggestions to return.
@@ -376,7 +1129,8 @@ public class DBManager {
         sql.append("LENGTH(FoodDescription) ASC ");
         sql.append("LIMIT ?");
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql.toString())) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
             int paramIndex = 1;
             for (int i = 0; i < wordsToUse; i++) {
                 String sanitizedWord = words[i].replaceAll("([\\\\\\.\\[\\]\\{\\}\\(\\)\\*\\+\\?\\^\\$\\|])", "\\\\$1");
@@ -400,7 +1154,8 @@ public class DBManager {
 
     private int findFoodIdByExactDescription(String description) {
         String sql = "SELECT FoodID FROM FOOD_NAME WHERE FoodDescription = ? LIMIT 1";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, description);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -413,17 +1168,23 @@ public class DBManager {
     }
 
     public String getFoodGroup(String fullIngredientLine) {
-        Matcher matcher = ingredientPattern.matcher(fullIngredientLine.trim());
-        if (!matcher.matches()) {
+        ParsedIngredient ingredient = IngredientParser.parseLine(fullIngredientLine);
+        if (ingredient == null) {
             return null;
         }
-        String description = matcher.group(2).trim();
+        String description = ingredient.getDescription();
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getFoodGroup(description);
+        }
+
         int foodId = findFoodIdByExactDescription(description);
 
         if (foodId == -1) return null;
 
         String sql = "SELECT FG.FoodGroupName FROM FOOD_NAME FN JOIN FOOD_GROUP FG ON FN.FoodGroupID = FG.FoodGroupID WHERE FN.FoodID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, foodId);
             ResultSet rs = pstmt.executeQuery();
             if (rs.next()) {
@@ -436,9 +1197,15 @@ public class DBManager {
     }
 
     public List<String> getFoodsFromGroup(String foodGroup) {
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getFoodsFromGroup(foodGroup);
+        }
+
         List<String> foods = new ArrayList<>();
         String sql = "SELECT FN.FoodDescription FROM FOOD_NAME FN JOIN FOOD_GROUP FG ON FN.FoodGroupID = FG.FoodGroupID WHERE FG.FoodGroupName = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, foodGroup);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -451,6 +1218,11 @@ public class DBManager {
     }
 
     public Map<String, Double> getNutrientProfile(String foodDescription) {
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getNutrientProfile(foodDescription);
+        }
+
         int foodId = findFoodIdByExactDescription(foodDescription);
         if (foodId == -1) return new HashMap<>();
         return getNutrientProfileById(foodId);
@@ -459,7 +1231,8 @@ public class DBManager {
     private Map<String, Double> getNutrientProfileById(int foodId) {
         Map<String, Double> nutrients = new HashMap<>();
         String sql = "SELECT NutrientID, NutrientValue FROM NUTRIENT_AMOUNT WHERE FoodID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, foodId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -476,6 +1249,11 @@ public class DBManager {
     }
 
     public Map<String, Double> getComprehensiveNutrientProfile(String foodDescription) {
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            return catalog.getComprehensiveNutrientProfile(foodDescription);
+        }
+
         int foodId = findFoodIdByExactDescription(foodDescription);
         if (foodId == -1) return new HashMap<>();
 
@@ -485,7 +1263,8 @@ public class DBManager {
                 "JOIN NUTRIENT_NAME nn ON na.NutrientID = nn.NutrientID " +
                 "WHERE na.FoodID = ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, foodId);
             ResultSet rs = pstmt.executeQuery();
             while (rs.next()) {
@@ -499,9 +1278,242 @@ public class DBManager {
         }
         return nutrients;
     }
+
+    // --- Batch lookups ---
+    // Each method takes the whole set of foods a caller needs and answers with one or two
+    // IN (...) queries (chunked for very large sets), instead of one query per ingredient line.
+
+    /**
+     * Resolves many exact food descriptions to FoodIDs at once.
+     * @param descriptions The descriptions to resolve.
+     * @return A map from each requested description to its FoodID; unknown descriptions are absent.
+     */
+    public Map<String, Integer> findFoodIdsByDescriptions(Collection<String> descriptions) {
+        Map<String, Integer> foodIds = new HashMap<>();
+        // MySQL compares FoodDescription case-insensitively, so match results back the same way.
+        Map<String, List<String>> requestedByKey = new HashMap<>();
+        for (String description : descriptions) {
+            if (description == null) continue;
+            requestedByKey.computeIfAbsent(description.trim().toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(description);
+        }
+        if (requestedByKey.isEmpty()) return foodIds;
+
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (List<String> requested : requestedByKey.values()) {
+                int ordinal = catalog.findFoodOrdinalByDescription(requested.get(0));
+                if (ordinal != -1) {
+                    requested.forEach(d -> foodIds.put(d, catalog.getFoodId(ordinal)));
+                }
+            }
+            return foodIds;
+        }
+
+        List<String> distinct = new ArrayList<>();
+        requestedByKey.values().forEach(requested -> distinct.add(requested.get(0).trim()));
+        for (List<String> chunk : chunk(distinct)) {
+            String sql = "SELECT FoodID, FoodDescription FROM FOOD_NAME WHERE FoodDescription IN (" + placeholders(chunk.size()) + ") ORDER BY FoodID";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    List<String> requested = requestedByKey.get(rs.getString("FoodDescription").toLowerCase(Locale.ROOT));
+                    if (requested == null) continue;
+                    int foodId = rs.getInt("FoodID");
+                    // Keep the first match per description, like findFoodIdByExactDescription.
+                    requested.forEach(d -> foodIds.putIfAbsent(d, foodId));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return foodIds;
+    }
+
+    /**
+     * Fetches the full nutrient profile (per 100g) of many foods at once.
+     * @param foodIds The FoodIDs to look up.
+     * @return A map from FoodID to its profile; foods without nutrient rows are absent.
+     */
+    public Map<Integer, NutrientVector> getComprehensiveNutrientProfilesByIds(Collection<Integer> foodIds) {
+        Map<Integer, NutrientVector> profiles = new HashMap<>();
+        Set<Integer> distinct = new LinkedHashSet<>(foodIds);
+        if (distinct.isEmpty()) return profiles;
+
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (int foodId : distinct) {
+                int ordinal = catalog.getFoodOrdinal(foodId);
+                if (ordinal != -1) {
+                    profiles.put(foodId, catalog.getNutrientVector(ordinal));
+                }
+            }
+            return profiles;
+        }
+
+        NutrientRegistry registry = getNutrientRegistry();
+        for (List<Integer> chunk : chunk(new ArrayList<>(distinct))) {
+            String sql = "SELECT FoodID, NutrientID, NutrientValue FROM NUTRIENT_AMOUNT WHERE FoodID IN (" + placeholders(chunk.size()) + ")";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int ordinal = registry.ordinalOf(rs.getInt("NutrientID"));
+                    if (ordinal >= 0) {
+                        profiles.computeIfAbsent(rs.getInt("FoodID"), k -> new NutrientVector(registry)).setAt(ordinal, rs.getDouble("NutrientValue"));
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * Batch version of {@link #getComprehensiveNutrientProfile(String)}.
+     * @return A map from each requested description to its profile; unknown foods are absent.
+     */
+    public Map<String, NutrientVector> getComprehensiveNutrientProfiles(Collection<String> descriptions) {
+        Map<String, Integer> foodIds = findFoodIdsByDescriptions(descriptions);
+        Map<Integer, NutrientVector> byId = getComprehensiveNutrientProfilesByIds(foodIds.values());
+        NutrientRegistry registry = getNutrientRegistry();
+        Map<String, NutrientVector> profiles = new HashMap<>();
+        foodIds.forEach((description, foodId) -> profiles.put(description, byId.getOrDefault(foodId, new NutrientVector(registry))));
+        return profiles;
+    }
+
+    /**
+     * Batch version of {@link #getNutrientProfile(String)}: "Calories", "Protein" and "Fiber" per 100g.
+     * @return A map from each requested description to its profile; unknown foods are absent.
+     */
+    public Map<String, Map<String, Double>> getNutrientProfiles(Collection<String> descriptions) {
+        Map<String, Map<String, Double>> profiles = new HashMap<>();
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (String description : descriptions) {
+                Map<String, Double> profile = catalog.getNutrientProfile(description);
+                if (!profile.isEmpty()) profiles.put(description, profile);
+            }
+            return profiles;
+        }
+
+        Map<String, Integer> foodIds = findFoodIdsByDescriptions(descriptions);
+        Map<Integer, Map<String, Double>> byId = new HashMap<>();
+        for (List<Integer> chunk : chunk(new ArrayList<>(new LinkedHashSet<>(foodIds.values())))) {
+            String sql = "SELECT FoodID, NutrientID, NutrientValue FROM NUTRIENT_AMOUNT " +
+                    "WHERE NutrientID IN (?, ?, ?) AND FoodID IN (" + placeholders(chunk.size()) + ")";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, CALORIE_NUTRIENT_ID);
+                pstmt.setInt(2, PROTEIN_NUTRIENT_ID);
+                pstmt.setInt(3, FIBER_NUTRIENT_ID);
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 4, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    int nutrientId = rs.getInt("NutrientID");
+                    String name = nutrientId == CALORIE_NUTRIENT_ID ? "Calories" : nutrientId == PROTEIN_NUTRIENT_ID ? "Protein" : "Fiber";
+                    byId.computeIfAbsent(rs.getInt("FoodID"), k -> new HashMap<>()).put(name, rs.getDouble("NutrientValue"));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        foodIds.forEach((description, foodId) -> {
+            Map<String, Double> profile = byId.get(foodId);
+            if (profile != null) profiles.put(description, profile);
+        });
+        return profiles;
+    }
+
+    /**
+     * Batch lookup of food group names by exact food description.
+     * @return A map from each requested description to its food group; unknown foods are absent.
+     */
+    public Map<String, String> getFoodGroups(Collection<String> descriptions) {
+        Map<String, String> groups = new HashMap<>();
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (String description : descriptions) {
+                String group = catalog.getFoodGroup(description);
+                if (group != null) groups.put(description, group);
+            }
+            return groups;
+        }
+
+        Map<String, Integer> foodIds = findFoodIdsByDescriptions(descriptions);
+        Map<Integer, String> byId = getFoodGroupsByIds(foodIds.values());
+        foodIds.forEach((description, foodId) -> {
+            String group = byId.get(foodId);
+            if (group != null) groups.put(description, group);
+        });
+        return groups;
+    }
+
+    /**
+     * Batch lookup of food group names by FoodID.
+     * @return A map from each FoodID to its food group; unknown foods are absent.
+     */
+    public Map<Integer, String> getFoodGroupsByIds(Collection<Integer> foodIds) {
+        Map<Integer, String> groups = new HashMap<>();
+        Set<Integer> distinct = new LinkedHashSet<>(foodIds);
+        NutrientCatalog catalog = catalogIfEnabled();
+        if (catalog != null) {
+            for (int foodId : distinct) {
+                int ordinal = catalog.getFoodOrdinal(foodId);
+                String group = ordinal == -1 ? null : catalog.getFoodGroupName(ordinal);
+                if (group != null) groups.put(foodId, group);
+            }
+            return groups;
+        }
+
+        for (List<Integer> chunk : chunk(new ArrayList<>(distinct))) {
+            String sql = "SELECT FN.FoodID, FG.FoodGroupName FROM FOOD_NAME FN JOIN FOOD_GROUP FG ON FN.FoodGroupID = FG.FoodGroupID " +
+                    "WHERE FN.FoodID IN (" + placeholders(chunk.size()) + ")";
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setInt(i + 1, chunk.get(i));
+                }
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    groups.put(rs.getInt("FoodID"), rs.getString("FoodGroupName"));
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return groups;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static <T> List<List<T>> chunk(List<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += IN_CLAUSE_CHUNK_SIZE) {
+            chunks.add(values.subList(i, Math.min(values.size(), i + IN_CLAUSE_CHUNK_SIZE)));
+        }
+        return chunks;
+    }
+
     public boolean updateProfile(UserProfile profile) {
         String sql = "UPDATE USER_PROFILE SET ProfileName = ?, Sex = ?, DateOfBirth = ?, HeightCM = ?, WeightKG = ?, MeasurementUnit = ? WHERE UserID = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, profile.getName());
             pstmt.setString(2, profile.getSex());
             pstmt.setDate(3, new java.sql.Date(profile.getDateOfBirth().getTime()));
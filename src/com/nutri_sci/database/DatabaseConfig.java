@@ -0,0 +1,224 @@
+package com.nutri_sci.database;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Reads the database settings from external configuration instead of hard-coded constants.
+ * Values are resolved in this order: JVM system property, environment variable,
+ * the properties file, and finally the built-in default.
+ * The properties file defaults to "nutrisci.properties" in the working directory
+ * and can be moved with -Dnutrisci.config=/path/to/file.
+ */
+public class DatabaseConfig {
+    private static final String CONFIG_PATH_PROPERTY = "nutrisci.config";
+    private static final String DEFAULT_CONFIG_FILE = "nutrisci.properties";
+
+    private static DatabaseConfig instance;
+    private final Properties properties = new Properties();
+
+    private DatabaseConfig() {
+        Path configPath = Paths.get(System.getProperty(CONFIG_PATH_PROPERTY, DEFAULT_CONFIG_FILE));
+        if (Files.isRegularFile(configPath)) {
+            try (InputStream in = new FileInputStream(configPath.toFile())) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Could not read configuration file " + configPath + ", using defaults.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static synchronized DatabaseConfig getInstance() {
+        if (instance == null) {
+            instance = new DatabaseConfig();
+        }
+        return instance;
+    }
+
+    /**
+     * Looks up a key such as "db.pool.maxSize". The matching environment variable is
+     * the key upper-cased with dots replaced by underscores and a NUTRISCI_ prefix
+     * (e.g. NUTRISCI_DB_POOL_MAXSIZE).
+     */
+    public String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv("NUTRISCI_" + key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    public int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for '" + key + "', using " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(get(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for '" + key + "', using " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+    }
+
+    // Storage backend.
+
+    /** "mysql" (the default) or "memory" to run without a database server; see Repositories. */
+    public String getRepositoryBackend() {
+        return get("repository.backend", "mysql");
+    }
+
+    // Connection details.
+
+    /** JDBC URL of the MySQL server without a schema, used by DatabaseLoader to create the database. */
+    public String getServerUrl() {
+        return get("db.serverUrl", "jdbc:mysql://localhost/");
+    }
+
+    public String getDatabaseName() {
+        return get("db.name", "nutrisci_db");
+    }
+
+    /** JDBC URL of the application schema. */
+    public String getUrl() {
+        return get("db.url", getServerUrl() + getDatabaseName());
+    }
+
+    public String getUser() {
+        return get("db.user", "root");
+    }
+
+    public String getPassword() {
+        return get("db.password", "root");
+    }
+
+    // Connection pool settings.
+
+    public int getPoolMinSize() {
+        return getInt("db.pool.minSize", 2);
+    }
+
+    public int getPoolMaxSize() {
+        return getInt("db.pool.maxSize", 10);
+    }
+
+    public long getPoolBorrowTimeoutMillis() {
+        return getLong("db.pool.borrowTimeoutMs", 5000);
+    }
+
+    public int getPoolValidationTimeoutSeconds() {
+        return getInt("db.pool.validationTimeoutSec", 2);
+    }
+
+    /** Idle connections older than this are validated before being handed out again. */
+    public long getPoolValidationIntervalMillis() {
+        return getLong("db.pool.validationIntervalMs", 30000);
+    }
+
+    /** Time after which an AsyncRepositories query fails with a TimeoutException (0 disables it). */
+    public long getAsyncTimeoutMillis() {
+        return getLong("repository.async.timeoutMs", 30000);
+    }
+
+    // Nutrient data.
+
+    /** When false, CNF lookups always go to the database instead of the in-memory NutrientCatalog. */
+    public boolean isNutrientCatalogEnabled() {
+        return getBoolean("cnf.catalog.enabled", true);
+    }
+
+    /** When true, the catalog is memory-mapped from the CNF snapshot file if it matches CNF_VERSION. */
+    public boolean isCnfSnapshotEnabled() {
+        return getBoolean("cnf.snapshot.enabled", true);
+    }
+
+    /** Binary CNF snapshot written by DatabaseLoader and mapped by the application at startup. */
+    public String getCnfSnapshotPath() {
+        return get("cnf.snapshot.path", "cnf-snapshot.bin");
+    }
+
+    /** Maximum number of meal nutrient totals kept by the NutrientMemo cache (0 disables it). */
+    public int getNutrientMemoSize() {
+        return getInt("nutrient.memo.maxEntries", 5000);
+    }
+
+    /** Directory holding the CNF CSV files read by DatabaseLoader. */
+    public String getCnfCsvDirectory() {
+        return get("cnf.csvDirectory", "cnf");
+    }
+
+    /**
+     * How DatabaseLoader inserts rows: "jdbc" (batched prepared inserts), "infile" (LOAD DATA LOCAL INFILE,
+     * falling back to jdbc if the server refuses it) or "compare" (both, printing the timings).
+     */
+    public String getLoadMode() {
+        return get("cnf.load.mode", "infile");
+    }
+
+    /**
+     * When true, DatabaseLoader skips CSV files whose checksum matches LOAD_MANIFEST and applies
+     * only changed rows; when false every table is reloaded with INSERT IGNORE.
+     */
+    public boolean isIncrementalLoadEnabled() {
+        return getBoolean("cnf.load.incremental", true);
+    }
+
+    /** Rows sent per executeBatch call (and per commit) when DatabaseLoader loads a table. */
+    public int getLoadBatchSize() {
+        return getInt("cnf.load.batchSize", 5000);
+    }
+
+    /** Number of tables DatabaseLoader loads at the same time, each on its own connection. */
+    public int getLoadThreads() {
+        return getInt("cnf.load.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Swaps applied over time.
+
+    /** Number of worker threads computing swapped meals when a swap is applied over a date range. */
+    public int getSwapThreads() {
+        return getInt("swap.bulk.threads", Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Meals handed to a worker at a time; the swapped meals of each chunk are committed together. */
+    public int getSwapChunkSize() {
+        return getInt("swap.bulk.chunkSize", 200);
+    }
+
+    // Visualizations.
+
+    /** When false, the per-user nutrient time series are rebuilt from MEAL_LOG on every start instead of saved to files. */
+    public boolean isTimeSeriesPersisted() {
+        return getBoolean("timeseries.persist", true);
+    }
+
+    /** Directory holding one nutrient time series file per user. */
+    public String getTimeSeriesDirectory() {
+        return get("timeseries.directory", "timeseries");
+    }
+
+    // Meal journal.
+
+    /** Number of meals fetched per page when the journal table scrolls. */
+    public int getMealPageSize() {
+        return getInt("ui.mealPageSize", 100);
+    }
+}
@@ -2,23 +2,47 @@ package com.nutri_sci.database;
 
 import java.io.BufferedReader;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class DatabaseLoader {
 
-    private static final String DB_URL = "jdbc:mysql://localhost/";
-    private static final String DB_NAME = "nutrisci_db";
-    private static final String USER = "root";
-    private static final String PASS = "root";
-    private static final String CSV_FILE_PATH = "route to csv files";
+    // Connection details come from the same external configuration as DBManager.
+    private static final DatabaseConfig CONFIG = DatabaseConfig.getInstance();
+    private static final String DB_NAME = CONFIG.getDatabaseName();
+    // Set once the server rejects LOAD DATA LOCAL INFILE, so the remaining tables go straight to JDBC.
+    private static volatile boolean localInfileRefused = false;
 
     public static void main(String[] args) {
-        try (Connection conn = DriverManager.getConnection(DB_URL, USER, PASS);
+        try (Connection conn = DriverManager.getConnection(CONFIG.getServerUrl(), CONFIG.getUser(), CONFIG.getPassword());
              Statement stmt = conn.createStatement()) {
 
             System.out.println("Connecting to database...");
@@ -32,9 +56,17 @@ public class DatabaseLoader {
 
             // Create tables
             createTables(stmt);
+            createManifestTables(stmt);
 
             // Load data
-            loadAllData(stmt);
+            loadAllData();
+
+            // Build the secondary indexes after loading, which is faster than maintaining them row by row
+            System.out.println("Creating indexes...");
+            SchemaMigrator.createQueryIndexes(conn);
+
+            // Write the binary snapshot the application maps at startup
+            writeSnapshot();
 
             System.out.println("Database setup and data loading complete.");
 
@@ -137,105 +169,758 @@ public class DatabaseLoader {
         System.out.println("Tables created successfully.");
     }
 
-    private static void loadAllData(Statement stmt) {
+    // --- CSV Loading ---
+
+    /**
+     * One CNF CSV file and the tables it references. A table is only loaded after the tables it
+     * depends on, so the foreign keys of the CNF schema are always satisfied; tables whose
+     * dependencies are done load in parallel.
+     */
+    private static final class TableFile {
+        final String fileName;
+        final String tableName;
+        final int numColumns;
+        // The primary key is the first keyColumns columns of the file.
+        final int keyColumns;
+        final String[] dependsOn;
+
+        TableFile(String fileName, String tableName, int numColumns, int keyColumns, String... dependsOn) {
+            this.fileName = fileName;
+            this.tableName = tableName;
+            this.numColumns = numColumns;
+            this.keyColumns = keyColumns;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    // Listed in dependency order.
+    private static final List<TableFile> TABLE_FILES = Arrays.asList(
+            new TableFile("FOOD GROUP.csv", "FOOD_GROUP", 4, 1),
+            new TableFile("FOOD SOURCE.csv", "FOOD_SOURCE", 4, 1),
+            new TableFile("NUTRIENT NAME.csv", "NUTRIENT_NAME", 8, 1),
+            new TableFile("NUTRIENT SOURCE.csv", "NUTRIENT_SOURCE", 4, 1),
+            new TableFile("MEASURE NAME.csv", "MEASURE_NAME", 3, 1),
+            new TableFile("REFUSE NAME.csv", "REFUSE_NAME", 3, 1),
+            new TableFile("YIELD NAME.csv", "YIELD_NAME", 3, 1),
+            new TableFile("FOOD NAME.csv", "FOOD_NAME", 10, 1, "FOOD_GROUP", "FOOD_SOURCE"),
+            new TableFile("NUTRIENT AMOUNT.csv", "NUTRIENT_AMOUNT", 7, 2, "FOOD_NAME", "NUTRIENT_NAME", "NUTRIENT_SOURCE"),
+            new TableFile("CONVERSION FACTOR.csv", "CONVERSION_FACTOR", 4, 2, "FOOD_NAME", "MEASURE_NAME"),
+            new TableFile("REFUSE AMOUNT.csv", "REFUSE_AMOUNT", 4, 2, "FOOD_NAME", "REFUSE_NAME"),
+            new TableFile("YIELD AMOUNT.csv", "YIELD_AMOUNT", 4, 2, "FOOD_NAME", "YIELD_NAME"));
+
+    private static void loadAllData() {
         System.out.println("Loading data from CSV files...");
-        loadData(stmt, "FOOD GROUP.csv", "FOOD_GROUP", 4);
-        loadData(stmt, "FOOD SOURCE.csv", "FOOD_SOURCE", 4);
-        loadData(stmt, "NUTRIENT NAME.csv", "NUTRIENT_NAME", 8);
-        loadData(stmt, "NUTRIENT SOURCE.csv", "NUTRIENT_SOURCE", 4);
-        loadData(stmt, "MEASURE NAME.csv", "MEASURE_NAME", 3);
-        loadData(stmt, "REFUSE NAME.csv", "REFUSE_NAME", 3);
-        loadData(stmt, "YIELD NAME.csv", "YIELD_NAME", 3);
-        loadData(stmt, "FOOD NAME.csv", "FOOD_NAME", 10);
-        loadData(stmt, "NUTRIENT AMOUNT.csv", "NUTRIENT_AMOUNT", 7);
-        loadData(stmt, "CONVERSION FACTOR.csv", "CONVERSION_FACTOR", 4);
-        loadData(stmt, "REFUSE AMOUNT.csv", "REFUSE_AMOUNT", 4);
-        loadData(stmt, "YIELD AMOUNT.csv", "YIELD_AMOUNT", 4);
-        System.out.println("Data loading complete.");
-    }
-
-    private static void loadData(Statement stmt, String fileName, String tableName, int numColumns) {
-        String csvFile = CSV_FILE_PATH + fileName;
-        String line = "";
-        String cvsSplitBy = ",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)"; // Regex to handle commas inside quotes
-        int batchSize = 1000;
-        int count = 0;
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, CONFIG.getLoadThreads()));
+        Map<String, CompletableFuture<TableChanges>> loads = new LinkedHashMap<>();
+        try {
+            for (TableFile table : TABLE_FILES) {
+                CompletableFuture<?>[] dependencies = Arrays.stream(table.dependsOn)
+                        .map(loads::get)
+                        .toArray(CompletableFuture<?>[]::new);
+                loads.put(table.tableName,
+                        CompletableFuture.allOf(dependencies).thenApplyAsync(v -> refreshTable(table), executor));
+            }
+            CompletableFuture.allOf(loads.values().toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            executor.shutdown();
+        }
+        System.out.println("Data loading complete in " + (System.currentTimeMillis() - start) + " ms.");
+
+        List<TableChanges> changes = new ArrayList<>();
+        loads.values().forEach(load -> changes.add(load.join()));
+        reportChanges(changes);
+    }
 
-        System.out.println("Loading " + fileName + " into " + tableName + "...");
+    // --- Incremental Refresh ---
+
+    /**
+     * What a refresh did to one table, for the change report.
+     */
+    private static final class TableChanges {
+        final String tableName;
+        final String action;
+        final int inserted;
+        final int updated;
+        final int deleted;
+
+        TableChanges(String tableName, String action, int inserted, int updated, int deleted) {
+            this.tableName = tableName;
+            this.action = action;
+            this.inserted = inserted;
+            this.updated = updated;
+            this.deleted = deleted;
+        }
 
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), "latin1"))) {
-            br.readLine(); // Skip header line
+        boolean changedData() {
+            // A failed load may have committed some batches before it stopped.
+            return "full load".equals(action) || "failed".equals(action) || inserted + updated + deleted > 0;
+        }
+    }
 
-            while ((line = br.readLine()) != null) {
-                // Skip empty or malformed lines
-                if (line.trim().isEmpty() || line.trim().equals(",")) {
-                    continue;
-                }
+    /**
+     * LOAD_MANIFEST records the SHA-256 of the last file loaded into each table, and
+     * LOAD_MANIFEST_ROW a 64-bit hash of every row by its primary key. CNF_VERSION is the data
+     * version shared with the application (see DBManager), bumped whenever a refresh changes rows.
+     */
+    private static void createManifestTables(Statement stmt) throws SQLException {
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS LOAD_MANIFEST (" +
+                "TableName VARCHAR(64) PRIMARY KEY," +
+                "FileName VARCHAR(255) NOT NULL," +
+                "FileHash CHAR(64) NOT NULL," +
+                "RowCount INT NOT NULL," +
+                "LoadedAt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS LOAD_MANIFEST_ROW (" +
+                "TableName VARCHAR(64)," +
+                "RowKey VARCHAR(255)," +
+                "RowHash BIGINT NOT NULL," +
+                "PRIMARY KEY (TableName, RowKey))");
+
+        stmt.executeUpdate("CREATE TABLE IF NOT EXISTS CNF_VERSION (" +
+                "Id TINYINT PRIMARY KEY," +
+                "Version INT NOT NULL," +
+                "UpdatedAt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        stmt.executeUpdate("INSERT IGNORE INTO CNF_VERSION (Id, Version) VALUES (1, 1)");
+    }
 
-                String[] data = line.split(cvsSplitBy, -1);
+    /**
+     * Brings one table up to date with its CSV file. An unchanged file (same SHA-256 as the manifest)
+     * is skipped without being parsed. An empty table gets a full bulk load. Otherwise only the rows
+     * whose hash differs from the manifest are upserted and rows missing from the file are deleted.
+     */
+    private static TableChanges refreshTable(TableFile table) {
+        if (!CONFIG.isIncrementalLoadEnabled()) {
+            boolean loaded = loadTable(table);
+            return new TableChanges(table.tableName, loaded ? "full load" : "failed", 0, 0, 0);
+        }
 
-                // Skip row if the primary key is empty
-                if (data[0].trim().isEmpty() || data[0].trim().equalsIgnoreCase("null")) {
-                    continue;
+        try (Connection conn = openLoadConnection()) {
+            String fileHash = hashFile(table);
+            String recordedHash = getRecordedFileHash(conn, table);
+            boolean tableHasRows = hasRows(conn, table);
+
+            if (fileHash.equals(recordedHash) && tableHasRows) {
+                System.out.println(table.fileName + " is unchanged, skipping " + table.tableName + ".");
+                return new TableChanges(table.tableName, "unchanged", 0, 0, 0);
+            }
+
+            if (!tableHasRows) {
+                // The manifest is only written for a complete load; after a failed one the next run
+                // finds rows without hashes and upserts every row of the file.
+                if (!loadTable(table)) {
+                    return new TableChanges(table.tableName, "failed", 0, 0, 0);
                 }
+                int rows = recordRowManifest(conn, table);
+                recordFileHash(conn, table, fileHash, rows);
+                return new TableChanges(table.tableName, "full load", rows, 0, 0);
+            }
 
-                // Use INSERT IGNORE to skip duplicate primary key errors
-                StringBuilder sql = new StringBuilder("INSERT IGNORE INTO " + tableName + " VALUES (");
+            // Rows loaded before the manifest existed have no hashes; the delta then upserts every row once.
+            return applyDelta(conn, table, fileHash);
+        } catch (Exception e) {
+            System.err.println("An error occurred while refreshing " + table.tableName);
+            e.printStackTrace();
+            return new TableChanges(table.tableName, "failed", 0, 0, 0);
+        }
+    }
 
-                for (int i = 0; i < numColumns; i++) {
-                    // Check if data array has this index
-                    String value = (i < data.length) ? data[i].trim() : "";
+    /**
+     * Compares every row of the file with the manifest and applies the difference in one transaction.
+     */
+    private static TableChanges applyDelta(Connection conn, TableFile table, String fileHash) throws SQLException, IOException {
+        long start = System.currentTimeMillis();
+        Map<String, Long> recordedRows = getRecordedRowHashes(conn, table);
+        Set<String> seenKeys = new HashSet<>(recordedRows.size() * 2);
+        List<String> columns = getColumnNames(conn, table);
+        int batchSize = Math.max(1, CONFIG.getLoadBatchSize());
+        int inserted = 0;
+        int updated = 0;
+        int pending = 0;
+
+        StringBuilder upsertSql = new StringBuilder("INSERT INTO " + table.tableName + " (" + String.join(", ", columns)
+                + ") VALUES (" + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") ON DUPLICATE KEY UPDATE ");
+        for (int i = table.keyColumns; i < columns.size(); i++) {
+            if (i > table.keyColumns) upsertSql.append(", ");
+            upsertSql.append(columns.get(i)).append(" = VALUES(").append(columns.get(i)).append(")");
+        }
+        StringBuilder deleteSql = new StringBuilder("DELETE FROM " + table.tableName + " WHERE ");
+        for (int i = 0; i < table.keyColumns; i++) {
+            if (i > 0) deleteSql.append(" AND ");
+            deleteSql.append(columns.get(i)).append(" = ?");
+        }
 
-                    // Clean up quotes safely
-                    if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
-                        value = value.substring(1, value.length() - 1);
-                    }
-                    // Escape single quotes for SQL
-                    value = value.replace("'", "''");
+        conn.setAutoCommit(false);
+        try (PreparedStatement upsert = conn.prepareStatement(upsertSql.toString());
+             PreparedStatement upsertManifest = conn.prepareStatement(
+                     "INSERT INTO LOAD_MANIFEST_ROW (TableName, RowKey, RowHash) VALUES (?, ?, ?) "
+                             + "ON DUPLICATE KEY UPDATE RowHash = VALUES(RowHash)");
+             CsvReader reader = openCsv(table)) {
+            String[] data;
+            while ((data = reader.next()) != null) {
+                String[] values = normalizeRecord(data, table.numColumns);
+                if (values == null) {
+                    continue;
+                }
+                String key = rowKey(values, table.keyColumns);
+                // Like INSERT IGNORE, the first row with a given key wins.
+                if (!seenKeys.add(key)) {
+                    continue;
+                }
+                long hash = rowHash(values);
+                Long recordedHash = recordedRows.get(key);
+                if (recordedHash != null && recordedHash == hash) {
+                    continue;
+                }
+                if (recordedHash == null) inserted++; else updated++;
 
-                    if (value.isEmpty() || value.equalsIgnoreCase("null")) {
-                        sql.append("NULL");
-                    } else if (isNumeric(value)) {
-                        sql.append(value);
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == null) {
+                        upsert.setNull(i + 1, Types.NULL);
                     } else {
-                        sql.append("'").append(value).append("'");
+                        upsert.setString(i + 1, values[i]);
                     }
+                }
+                upsert.addBatch();
+                upsertManifest.setString(1, table.tableName);
+                upsertManifest.setString(2, key);
+                upsertManifest.setLong(3, hash);
+                upsertManifest.addBatch();
+                if (++pending == batchSize) {
+                    upsert.executeBatch();
+                    upsertManifest.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                upsert.executeBatch();
+                upsertManifest.executeBatch();
+            }
 
-                    if (i < numColumns - 1) {
-                        sql.append(", ");
+            int deleted = 0;
+            try (PreparedStatement delete = conn.prepareStatement(deleteSql.toString());
+                 PreparedStatement deleteManifest = conn.prepareStatement(
+                         "DELETE FROM LOAD_MANIFEST_ROW WHERE TableName = ? AND RowKey = ?")) {
+                for (String key : recordedRows.keySet()) {
+                    if (seenKeys.contains(key)) {
+                        continue;
+                    }
+                    String[] keyValues = key.split("\\|", -1);
+                    for (int i = 0; i < table.keyColumns; i++) {
+                        delete.setString(i + 1, keyValues[i]);
                     }
+                    delete.addBatch();
+                    deleteManifest.setString(1, table.tableName);
+                    deleteManifest.setString(2, key);
+                    deleteManifest.addBatch();
+                    deleted++;
+                }
+                if (deleted > 0) {
+                    delete.executeBatch();
+                    deleteManifest.executeBatch();
                 }
-                sql.append(")");
+            }
 
-                try {
-                    stmt.addBatch(sql.toString());
-                    count++;
-                    if (count % batchSize == 0) {
-                        stmt.executeBatch();
+            recordFileHash(conn, table, fileHash, seenKeys.size());
+            conn.commit();
+            System.out.printf("Applied delta to %s in %d ms: %d inserted, %d updated, %d deleted.%n",
+                    table.tableName, System.currentTimeMillis() - start, inserted, updated, deleted);
+            return new TableChanges(table.tableName, "delta", inserted, updated, deleted);
+        } catch (SQLException | IOException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Replaces the row hashes of a table after a full load.
+     *
+     * @return The number of distinct row keys in the file.
+     */
+    private static int recordRowManifest(Connection conn, TableFile table) throws SQLException, IOException {
+        int batchSize = Math.max(1, CONFIG.getLoadBatchSize());
+        Set<String> seenKeys = new HashSet<>();
+        int pending = 0;
+
+        conn.setAutoCommit(false);
+        try (PreparedStatement clear = conn.prepareStatement("DELETE FROM LOAD_MANIFEST_ROW WHERE TableName = ?");
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO LOAD_MANIFEST_ROW (TableName, RowKey, RowHash) VALUES (?, ?, ?)");
+             CsvReader reader = openCsv(table)) {
+            clear.setString(1, table.tableName);
+            clear.executeUpdate();
+
+            String[] data;
+            while ((data = reader.next()) != null) {
+                String[] values = normalizeRecord(data, table.numColumns);
+                if (values == null) {
+                    continue;
+                }
+                String key = rowKey(values, table.keyColumns);
+                if (!seenKeys.add(key)) {
+                    continue;
+                }
+                insert.setString(1, table.tableName);
+                insert.setString(2, key);
+                insert.setLong(3, rowHash(values));
+                insert.addBatch();
+                if (++pending == batchSize) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+            conn.commit();
+            return seenKeys.size();
+        } catch (SQLException | IOException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static void recordFileHash(Connection conn, TableFile table, String fileHash, int rowCount) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO LOAD_MANIFEST (TableName, FileName, FileHash, RowCount, LoadedAt) VALUES (?, ?, ?, ?, NOW()) "
+                        + "ON DUPLICATE KEY UPDATE FileName = VALUES(FileName), FileHash = VALUES(FileHash), "
+                        + "RowCount = VALUES(RowCount), LoadedAt = VALUES(LoadedAt)")) {
+            pstmt.setString(1, table.tableName);
+            pstmt.setString(2, table.fileName);
+            pstmt.setString(3, fileHash);
+            pstmt.setInt(4, rowCount);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static String getRecordedFileHash(Connection conn, TableFile table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT FileHash FROM LOAD_MANIFEST WHERE TableName = ?")) {
+            pstmt.setString(1, table.tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("FileHash") : null;
+            }
+        }
+    }
+
+    private static Map<String, Long> getRecordedRowHashes(Connection conn, TableFile table) throws SQLException {
+        Map<String, Long> hashes = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT RowKey, RowHash FROM LOAD_MANIFEST_ROW WHERE TableName = ?")) {
+            pstmt.setString(1, table.tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    hashes.put(rs.getString("RowKey"), rs.getLong("RowHash"));
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static boolean hasRows(Connection conn, TableFile table) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM " + table.tableName + " LIMIT 1")) {
+            return rs.next();
+        }
+    }
+
+    private static List<String> getColumnNames(Connection conn, TableFile table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table.tableName + " WHERE 1 = 0")) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+        }
+        return columns;
+    }
+
+    private static String hashFile(TableFile table) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        try (InputStream in = new FileInputStream(Paths.get(CONFIG.getCnfCsvDirectory(), table.fileName).toFile())) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String rowKey(String[] values, int keyColumns) {
+        return String.join("|", Arrays.asList(values).subList(0, keyColumns));
+    }
+
+    /**
+     * 64-bit FNV-1a over the cleaned values, with separators so that ("ab", "c") and ("a", "bc") differ.
+     */
+    private static long rowHash(String[] values) {
+        long hash = 0xcbf29ce484222325L;
+        for (String value : values) {
+            String text = value == null ? "\u0000" : value;
+            for (int i = 0; i < text.length(); i++) {
+                hash ^= text.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= 0x1f;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Prints what changed in each table and bumps CNF_VERSION if any rows changed,
+     * so caches keyed on the version (stored meal nutrients, daily rollups) are rebuilt.
+     */
+    private static void reportChanges(List<TableChanges> changes) {
+        System.out.println("CNF refresh report:");
+        boolean changed = false;
+        for (TableChanges change : changes) {
+            System.out.printf("  %-18s %-10s %8d inserted %8d updated %8d deleted%n", change.tableName,
+                    change.action, change.inserted, change.updated, change.deleted);
+            changed |= change.changedData();
+        }
+        if (!changed) {
+            System.out.println("No CNF data changed; the data version is unchanged.");
+            return;
+        }
+        try (Connection conn = openLoadConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE CNF_VERSION SET Version = Version + 1, UpdatedAt = NOW() WHERE Id = 1");
+            try (ResultSet rs = stmt.executeQuery("SELECT Version FROM CNF_VERSION WHERE Id = 1")) {
+                if (rs.next()) {
+                    System.out.println("CNF data version is now " + rs.getInt("Version") + ".");
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // --- Snapshot ---
+
+    /**
+     * Writes the CNF snapshot for the current CNF_VERSION, unless an up-to-date one already exists.
+     */
+    private static void writeSnapshot() {
+        if (!CONFIG.isCnfSnapshotEnabled()) {
+            return;
+        }
+        Path path = Paths.get(CONFIG.getCnfSnapshotPath());
+        try (Connection conn = openLoadConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT Version FROM CNF_VERSION WHERE Id = 1")) {
+            int version = rs.next() ? rs.getInt("Version") : 0;
+            if (CnfSnapshot.readVersion(path) == version) {
+                System.out.println("CNF snapshot " + path + " is already at version " + version + ".");
+                return;
+            }
+            long start = System.currentTimeMillis();
+            NutrientCatalog catalog = NutrientCatalog.load(conn);
+            CnfSnapshot.write(catalog, version, path);
+            System.out.println("Wrote CNF snapshot " + path + " (version " + version + ", " + Files.size(path) / 1024
+                    + " KB) in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (SQLException | IOException e) {
+            System.err.println("Could not write the CNF snapshot; the application will load from the database.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads one table in the configured mode (cnf.load.mode):
+     * "jdbc" uses batched prepared inserts, "infile" uses LOAD DATA LOCAL INFILE and falls back
+     * to jdbc if the server refuses it, and "compare" loads the table both ways and prints the timings.
+     *
+     * @return true if every record of the file was loaded, false if the load failed part way.
+     */
+    private static boolean loadTable(TableFile table) {
+        String mode = CONFIG.getLoadMode();
+        if ("compare".equalsIgnoreCase(mode)) {
+            long infileMillis = loadDataInfile(table);
+            truncate(table);
+            long jdbcMillis = loadData(table);
+            if (infileMillis >= 0 && jdbcMillis >= 0) {
+                System.out.printf("%s: LOAD DATA INFILE %d ms, JDBC batches %d ms (%.1fx).%n", table.tableName,
+                        infileMillis, jdbcMillis, jdbcMillis / (double) Math.max(1, infileMillis));
+            }
+            // The table is left with the JDBC load.
+            return jdbcMillis >= 0;
+        } else if ("infile".equalsIgnoreCase(mode)) {
+            if (loadDataInfile(table) >= 0) {
+                return true;
+            }
+            System.out.println("Falling back to JDBC batches for " + table.tableName + ".");
+            truncate(table);
+            return loadData(table) >= 0;
+        } else {
+            return loadData(table) >= 0;
+        }
+    }
+
+    /**
+     * Streams one CSV file into its table through a prepared INSERT IGNORE. Each load uses its own
+     * connection with rewriteBatchedStatements, so the driver sends every batch as multi-row inserts.
+     *
+     * @return The elapsed milliseconds, or -1 if the load failed.
+     */
+    private static long loadData(TableFile table) {
+        int batchSize = Math.max(1, CONFIG.getLoadBatchSize());
+        int count = 0;
+        int pending = 0;
+        long start = System.currentTimeMillis();
+
+        System.out.println("Loading " + table.fileName + " into " + table.tableName + "...");
+
+        String sql = "INSERT IGNORE INTO " + table.tableName + " VALUES ("
+                + String.join(", ", Collections.nCopies(table.numColumns, "?")) + ")";
+
+        try (Connection conn = openLoadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             CsvReader reader = openCsv(table)) {
+            conn.setAutoCommit(false);
+
+            String[] data;
+            while ((data = reader.next()) != null) {
+                String[] values = normalizeRecord(data, table.numColumns);
+                if (values == null) {
+                    continue;
+                }
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == null) {
+                        pstmt.setNull(i + 1, Types.NULL);
+                    } else {
+                        pstmt.setString(i + 1, values[i]);
                     }
-                } catch (SQLException e) {
-                    System.err.println("Batch execution error on SQL: " + sql.toString());
-                    e.printStackTrace();
+                }
+                pstmt.addBatch();
+                count++;
+                if (++pending == batchSize) {
+                    executeBatch(conn, pstmt, table.tableName, count);
+                    pending = 0;
                 }
             }
-            stmt.executeBatch(); // Insert remaining records
-            System.out.println("Successfully loaded " + count + " records into " + tableName + ".");
+            if (pending > 0) {
+                executeBatch(conn, pstmt, table.tableName, count); // Insert remaining records
+            }
+
+            return reportLoaded(table, count, start, "JDBC batches");
         } catch (Exception e) {
-            System.err.println("An error occurred while loading " + fileName);
+            System.err.println("An error occurred while loading " + table.fileName);
             e.printStackTrace();
+            return -1;
         }
     }
 
-    // A simple check to see if a string is numeric
-    private static boolean isNumeric(String str) {
-        if (str == null) {
-            return false;
+    /**
+     * Bulk-loads one table with LOAD DATA LOCAL INFILE. The CSV is first rewritten into a UTF-8,
+     * tab-separated staging file using the same cleaning rules as {@link #loadData}, with \N for NULL.
+     * Unique and foreign key checks are disabled for the load, and the table's query indexes are
+     * dropped before it and rebuilt once afterwards (InnoDB ignores DISABLE KEYS).
+     *
+     * @return The elapsed milliseconds, or -1 if the load failed or the server does not allow local infile.
+     */
+    private static long loadDataInfile(TableFile table) {
+        if (localInfileRefused) {
+            return -1;
         }
+        long start = System.currentTimeMillis();
+        System.out.println("Bulk loading " + table.fileName + " into " + table.tableName + "...");
+
+        Path stagingFile = null;
         try {
-            Double.parseDouble(str);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+            stagingFile = Files.createTempFile("nutrisci-" + table.tableName.toLowerCase() + "-", ".tsv");
+            int count = writeStagingFile(table, stagingFile);
+
+            try (Connection conn = openLoadConnection();
+                 Statement stmt = conn.createStatement()) {
+                SchemaMigrator.dropQueryIndexes(conn, table.tableName);
+                stmt.execute("SET unique_checks = 0");
+                stmt.execute("SET foreign_key_checks = 0");
+                try {
+                    stmt.execute("LOAD DATA LOCAL INFILE '" + stagingFile.toAbsolutePath().toString().replace('\\', '/') + "'"
+                            + " IGNORE INTO TABLE " + table.tableName
+                            + " CHARACTER SET utf8mb4"
+                            + " FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\'"
+                            + " LINES TERMINATED BY '\\n'");
+                } finally {
+                    stmt.execute("SET unique_checks = 1");
+                    stmt.execute("SET foreign_key_checks = 1");
+                    SchemaMigrator.createQueryIndexes(conn, table.tableName);
+                }
+            }
+            return reportLoaded(table, count, start, "LOAD DATA INFILE");
+        } catch (SQLException e) {
+            // Error 1148 (older servers) / 3948 (8.0+): local infile is disabled on the server or the client.
+            if (e.getErrorCode() == 1148 || e.getErrorCode() == 3948) {
+                localInfileRefused = true;
+                System.err.println("The server does not allow LOAD DATA LOCAL INFILE: " + e.getMessage());
+            } else {
+                System.err.println("An error occurred while bulk loading " + table.fileName);
+                e.printStackTrace();
+            }
+            return -1;
+        } catch (IOException e) {
+            System.err.println("An error occurred while staging " + table.fileName);
+            e.printStackTrace();
+            return -1;
+        } finally {
+            if (stagingFile != null) {
+                try {
+                    Files.deleteIfExists(stagingFile);
+                } catch (IOException e) {
+                    stagingFile.toFile().deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the cleaned records of a CSV file in LOAD DATA's default text format.
+     *
+     * @return The number of records written.
+     */
+    private static int writeStagingFile(TableFile table, Path stagingFile) throws IOException {
+        int count = 0;
+        try (CsvReader reader = openCsv(table);
+             Writer out = Files.newBufferedWriter(stagingFile, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(256);
+            String[] data;
+            while ((data = reader.next()) != null) {
+                String[] values = normalizeRecord(data, table.numColumns);
+                if (values == null) {
+                    continue;
+                }
+                line.setLength(0);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) line.append('\t');
+                    appendEscaped(line, values[i]);
+                }
+                line.append('\n');
+                out.write(line.toString());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void appendEscaped(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': line.append("\\\\"); break;
+                case '\t': line.append("\\t"); break;
+                case '\n': line.append("\\n"); break;
+                case '\r': line.append("\\r"); break;
+                default: line.append(c);
+            }
+        }
+    }
+
+    /**
+     * Applies the cleaning rules shared by both load modes.
+     *
+     * @return Exactly numColumns trimmed values with null for empty or "null" cells,
+     *         or null if the record should be skipped (blank line or no primary key).
+     */
+    static String[] normalizeRecord(String[] data, int numColumns) {
+        // Skip empty or malformed lines
+        if (isBlankRecord(data)) {
+            return null;
+        }
+        // Skip row if the primary key is empty
+        String key = data[0].trim();
+        if (key.isEmpty() || key.equalsIgnoreCase("null")) {
+            return null;
+        }
+
+        String[] values = new String[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            String value = (i < data.length) ? data[i].trim() : "";
+            values[i] = (value.isEmpty() || value.equalsIgnoreCase("null")) ? null : value;
+        }
+        return values;
+    }
+
+    /**
+     * Opens a CNF CSV file (latin1) positioned after its header line.
+     */
+    private static CsvReader openCsv(TableFile table) throws IOException {
+        Path csvFile = Paths.get(CONFIG.getCnfCsvDirectory(), table.fileName);
+        CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(csvFile.toFile()), StandardCharsets.ISO_8859_1)));
+        reader.next(); // Skip header line
+        return reader;
+    }
+
+    private static long reportLoaded(TableFile table, int count, long start, String mode) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.printf("Successfully loaded %d records into %s in %d ms (%.0f rows/sec, %s).%n",
+                count, table.tableName, elapsed, count * 1000.0 / elapsed, mode);
+        return elapsed;
+    }
+
+    private static void truncate(TableFile table) {
+        try (Connection conn = openLoadConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE " + table.tableName);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Executes and commits one batch. A failed batch is rolled back and rethrown, so the load is
+     * reported as failed instead of being recorded in the manifest with rows missing.
+     */
+    private static void executeBatch(Connection conn, PreparedStatement pstmt, String tableName, int rowsRead) throws SQLException {
+        try {
+            pstmt.executeBatch();
+        } catch (SQLException e) {
+            System.err.println("Batch execution error in " + tableName + " ending at row " + rowsRead);
+            conn.rollback();
+            throw e;
+        }
+        conn.commit();
+    }
+
+    /**
+     * Opens a connection for loading with multi-row batch rewriting and (for the infile mode)
+     * client-side local infile enabled.
+     */
+    private static Connection openLoadConnection() throws SQLException {
+        String url = CONFIG.getUrl();
+        if (!url.contains("rewriteBatchedStatements")) {
+            url += (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+        }
+        if (!url.contains("allowLoadLocalInfile")) {
+            url += "&allowLoadLocalInfile=true";
+        }
+        return DriverManager.getConnection(url, CONFIG.getUser(), CONFIG.getPassword());
+    }
+
+    private static boolean isBlankRecord(String[] data) {
+        for (String value : data) {
+            if (!value.trim().isEmpty()) {
+                return false;
+            }
         }
+        return true;
     }
 }
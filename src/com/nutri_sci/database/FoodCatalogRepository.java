@@ -0,0 +1,97 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only access to the Canadian Nutrient File: foods, food groups and nutrient amounts.
+ * Nutrient amounts are per 100g. Full profiles are {@link NutrientVector}s over {@link #getNutrientRegistry()};
+ * the remaining maps are keyed by "NAME (UNIT)" unless stated otherwise.
+ * Implemented by {@link DBManager} (MySQL) and {@link InMemoryRepository} (CSV files).
+ */
+public interface FoodCatalogRepository {
+
+    /** @return every food, for building in-memory search structures. */
+    List<FoodItem> getAllFoods();
+
+    /** @return foods containing every word of the description (first four words), best match first. */
+    List<FoodItem> findFoodSuggestions(String description, int limit);
+
+    /** @return the 300 foods with the highest ("HIGH") or lowest values of "Calories", "Protein" or "Fiber". */
+    List<String> getFoodsByNutrientRank(String nutrientName, String rank);
+
+    double getCaloriesPer100g(int foodId);
+
+    /** @return the food group of an ingredient line such as "100g Apple, raw", or null. */
+    String getFoodGroup(String fullIngredientLine);
+
+    List<String> getFoodsFromGroup(String foodGroup);
+
+    /** @return "Calories", "Protein" and "Fiber" of the food. */
+    Map<String, Double> getNutrientProfile(String foodDescription);
+
+    Map<String, Double> getComprehensiveNutrientProfile(String foodDescription);
+
+    /** @return each requested description (case-insensitive exact match) mapped to its FoodID; unknown ones are absent. */
+    Map<String, Integer> findFoodIdsByDescriptions(Collection<String> descriptions);
+
+    /** @return the full profile of each requested food; unknown foods are absent. */
+    Map<Integer, NutrientVector> getComprehensiveNutrientProfilesByIds(Collection<Integer> foodIds);
+
+    /** @return the full profile of each requested description; unknown foods are absent. */
+    Map<String, NutrientVector> getComprehensiveNutrientProfiles(Collection<String> descriptions);
+
+    Map<String, Map<String, Double>> getNutrientProfiles(Collection<String> descriptions);
+
+    Map<String, String> getFoodGroups(Collection<String> descriptions);
+
+    Map<Integer, String> getFoodGroupsByIds(Collection<Integer> foodIds);
+
+    /** @return the nutrient dictionary that every nutrient vector of this repository is indexed by. */
+    NutrientRegistry getNutrientRegistry();
+
+    /** @return the version of the CNF data; stored meal nutrient totals are only valid for this version. */
+    int getCnfVersion();
+
+    /**
+     * Resolves the description of every parsed ingredient line to a FoodID with one batch lookup.
+     * Lines whose description matches no food are skipped.
+     */
+    default List<MealIngredient> resolveIngredients(List<ParsedIngredient> ingredients) {
+        return resolveMealIngredients(Collections.singletonList(ingredients)).get(0);
+    }
+
+    /**
+     * Resolves the parsed ingredients of several meals with a single batch lookup of all their descriptions.
+     * @return the resolved ingredients of each meal, in the same order as the input.
+     */
+    default List<List<MealIngredient>> resolveMealIngredients(List<List<ParsedIngredient>> mealIngredients) {
+        Set<String> descriptions = new HashSet<>();
+        mealIngredients.forEach(ingredients -> ingredients.forEach(ingredient -> descriptions.add(ingredient.getDescription())));
+        Map<String, Integer> foodIds = descriptions.isEmpty() ? Collections.emptyMap() : findFoodIdsByDescriptions(descriptions);
+
+        List<List<MealIngredient>> results = new ArrayList<>();
+        for (List<ParsedIngredient> ingredients : mealIngredients) {
+            List<MealIngredient> resolved = new ArrayList<>();
+            for (ParsedIngredient ingredient : ingredients) {
+                Integer foodId = foodIds.get(ingredient.getDescription());
+                if (foodId != null) {
+                    resolved.add(new MealIngredient(ingredient.getLineNo(), foodId, ingredient.getGrams()));
+                }
+            }
+            results.add(resolved);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,508 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.IngredientParser;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
+import com.nutri_sci.model.UserProfile;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Repository backend that needs no database server: the CNF is read straight from the CSV files
+ * into a {@link NutrientCatalog}, and meals and profiles live in memory for the lifetime of the
+ * instance. Used by benchmarks and for running the application logic on a machine without MySQL
+ * (repository.backend=memory). All methods are synchronized, so one instance can be shared by threads.
+ */
+public class InMemoryRepository implements FoodCatalogRepository, MealRepository, ProfileRepository {
+    // The in-memory CNF never changes, so stored nutrient totals never go stale.
+    private static final int CNF_VERSION = 1;
+    private static final Comparator<Meal> NEWEST_FIRST = Comparator.comparing(Meal::getDate)
+            .thenComparingInt(Meal::getMealId).reversed();
+
+    private final NutrientCatalog catalog;
+
+    // Meals by MealID, with the owner and replaced flag that MEAL_LOG keeps in its own columns.
+    private final Map<Integer, StoredMeal> meals = new HashMap<>();
+    private int nextMealId = 1;
+
+    private final Map<Integer, UserProfile> profiles = new HashMap<>();
+    private int nextUserId = 1;
+
+    private static final class StoredMeal {
+        final int userId;
+        final Meal meal;
+        boolean replaced;
+
+        StoredMeal(int userId, Meal meal) {
+            this.userId = userId;
+            this.meal = meal;
+        }
+    }
+
+    public InMemoryRepository(NutrientCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Reads FOOD GROUP, NUTRIENT NAME, FOOD NAME and NUTRIENT AMOUNT from the CNF CSV directory,
+     * applying the same row cleaning as DatabaseLoader (the first row with a given key wins).
+     */
+    public static InMemoryRepository fromCsv(Path directory) throws IOException {
+        long start = System.nanoTime();
+
+        TreeMap<Integer, String> nutrientKeys = new TreeMap<>();
+        readCsv(directory.resolve("NUTRIENT NAME.csv"), 8, row ->
+                nutrientKeys.putIfAbsent(parseId(row[0]), row[4] + " (" + row[3] + ")"));
+
+        TreeMap<Integer, String> groupNames = new TreeMap<>();
+        readCsv(directory.resolve("FOOD GROUP.csv"), 4, row -> groupNames.putIfAbsent(parseId(row[0]), row[2]));
+
+        TreeMap<Integer, String[]> foods = new TreeMap<>();
+        readCsv(directory.resolve("FOOD NAME.csv"), 10, row -> foods.putIfAbsent(parseId(row[0]), row));
+
+        int[] nutrientIds = nutrientKeys.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] groupIds = groupNames.keySet().stream().mapToInt(Integer::intValue).toArray();
+        int[] foodIds = foods.keySet().stream().mapToInt(Integer::intValue).toArray();
+        String[] descriptions = new String[foodIds.length];
+        int[] groupOrdinals = new int[foodIds.length];
+        int f = 0;
+        for (String[] row : foods.values()) {
+            descriptions[f] = row[4];
+            groupOrdinals[f] = row[2] == null ? -1 : Math.max(-1, Arrays.binarySearch(groupIds, parseId(row[2])));
+            f++;
+        }
+
+        // Column-major, like NutrientCatalog.load; NaN marks pairs without a row.
+        double[] amounts = new double[nutrientIds.length * foodIds.length];
+        Arrays.fill(amounts, Double.NaN);
+        int[] rowCount = {0};
+        readCsv(directory.resolve("NUTRIENT AMOUNT.csv"), 7, row -> {
+            int food = Arrays.binarySearch(foodIds, parseId(row[0]));
+            int nutrient = row[1] == null ? -1 : Arrays.binarySearch(nutrientIds, parseId(row[1]));
+            if (food >= 0 && nutrient >= 0 && Double.isNaN(amounts[nutrient * foodIds.length + food])) {
+                amounts[nutrient * foodIds.length + food] = row[2] == null ? 0.0 : Double.parseDouble(row[2]);
+                rowCount[0]++;
+            }
+        });
+
+        NutrientCatalog catalog = new NutrientCatalog(foodIds, descriptions, groupOrdinals,
+                groupNames.values().toArray(new String[0]), nutrientIds, nutrientKeys.values().toArray(new String[0]),
+                DoubleBuffer.wrap(amounts), rowCount[0]);
+        System.out.println("In-memory CNF read from " + directory + " in " + (System.nanoTime() - start) / 1_000_000
+                + " ms: " + catalog.getFoodCount() + " foods, " + rowCount[0] + " amounts.");
+        return new InMemoryRepository(catalog);
+    }
+
+    private static void readCsv(Path file, int numColumns, Consumer<String[]> consumer) throws IOException {
+        try (CsvReader reader = new CsvReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file.toFile()), StandardCharsets.ISO_8859_1)))) {
+            reader.next(); // Skip header line
+            String[] data;
+            while ((data = reader.next()) != null) {
+                String[] values = DatabaseLoader.normalizeRecord(data, numColumns);
+                if (values == null) continue;
+                try {
+                    consumer.accept(values);
+                } catch (NumberFormatException e) {
+                    // A key or value that is not a number; MySQL would have rejected the row as well.
+                }
+            }
+        }
+    }
+
+    private static int parseId(String value) {
+        return (int) Double.parseDouble(value);
+    }
+
+    public NutrientCatalog getCatalog() {
+        return catalog;
+    }
+
+    // --- FoodCatalogRepository ---
+
+    public synchronized List<FoodItem> getAllFoods() {
+        List<FoodItem> foods = new ArrayList<>();
+        for (int ordinal = 0; ordinal < catalog.getFoodCount(); ordinal++) {
+            foods.add(new FoodItem(catalog.getFoodId(ordinal), catalog.getFoodDescription(ordinal)));
+        }
+        return foods;
+    }
+
+    /**
+     * Same matching and ordering as the SQL search in DBManager: every word (first four) as a whole
+     * word, then exact match, "raw", unprocessed foods, everything else, and shorter descriptions first.
+     */
+    public synchronized List<FoodItem> findFoodSuggestions(String description, int limit) {
+        String[] words = description.trim().replace(",", "").split("\\s+");
+        List<Pattern> patterns = new ArrayList<>();
+        for (int i = 0; i < Math.min(words.length, 4); i++) {
+            if (words[i].isEmpty()) continue;
+            patterns.add(Pattern.compile("\\b" + Pattern.quote(words[i]) + "\\b", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+        }
+        if (patterns.isEmpty()) return new ArrayList<>();
+
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < catalog.getFoodCount(); ordinal++) {
+            String food = catalog.getFoodDescription(ordinal);
+            if (food != null && patterns.stream().allMatch(p -> p.matcher(food).find())) {
+                matches.add(ordinal);
+            }
+        }
+        matches.sort(Comparator.comparingInt((Integer ordinal) -> matchClass(catalog.getFoodDescription(ordinal), description))
+                .thenComparingInt(ordinal -> catalog.getFoodDescription(ordinal).length()));
+        return matches.stream().limit(limit)
+                .map(ordinal -> new FoodItem(catalog.getFoodId(ordinal), catalog.getFoodDescription(ordinal)))
+                .collect(Collectors.toList());
+    }
+
+    private static int matchClass(String food, String description) {
+        String lower = food.toLowerCase(Locale.ROOT);
+        if (lower.equals(description.toLowerCase(Locale.ROOT))) return 0;
+        if (lower.contains("raw")) return 1;
+        for (String processed : new String[]{"cooked", "canned", "frozen", "sauce", "soup", "dish"}) {
+            if (lower.contains(processed)) return 3;
+        }
+        return 2;
+    }
+
+    public synchronized List<String> getFoodsByNutrientRank(String nutrientName, String rank) {
+        return catalog.getFoodsByNutrientRank(nutrientName, rank);
+    }
+
+    public synchronized double getCaloriesPer100g(int foodId) {
+        return catalog.getCaloriesPer100g(foodId);
+    }
+
+    public synchronized String getFoodGroup(String fullIngredientLine) {
+        ParsedIngredient ingredient = IngredientParser.parseLine(fullIngredientLine);
+        return ingredient != null ? catalog.getFoodGroup(ingredient.getDescription()) : null;
+    }
+
+    public synchronized List<String> getFoodsFromGroup(String foodGroup) {
+        return catalog.getFoodsFromGroup(foodGroup);
+    }
+
+    public synchronized Map<String, Double> getNutrientProfile(String foodDescription) {
+        return catalog.getNutrientProfile(foodDescription);
+    }
+
+    public synchronized Map<String, Double> getComprehensiveNutrientProfile(String foodDescription) {
+        return catalog.getComprehensiveNutrientProfile(foodDescription);
+    }
+
+    public synchronized Map<String, Integer> findFoodIdsByDescriptions(Collection<String> descriptions) {
+        Map<String, Integer> foodIds = new HashMap<>();
+        for (String description : descriptions) {
+            int ordinal = catalog.findFoodOrdinalByDescription(description);
+            if (ordinal != -1) {
+                foodIds.put(description, catalog.getFoodId(ordinal));
+            }
+        }
+        return foodIds;
+    }
+
+    public synchronized Map<Integer, NutrientVector> getComprehensiveNutrientProfilesByIds(Collection<Integer> foodIds) {
+        Map<Integer, NutrientVector> profiles = new HashMap<>();
+        for (int foodId : new LinkedHashSet<>(foodIds)) {
+            int ordinal = catalog.getFoodOrdinal(foodId);
+            if (ordinal != -1) {
+                profiles.put(foodId, catalog.getNutrientVector(ordinal));
+            }
+        }
+        return profiles;
+    }
+
+    public synchronized Map<String, NutrientVector> getComprehensiveNutrientProfiles(Collection<String> descriptions) {
+        Map<String, NutrientVector> profiles = new HashMap<>();
+        for (String description : descriptions) {
+            int ordinal = catalog.findFoodOrdinalByDescription(description);
+            if (ordinal != -1) {
+                profiles.put(description, catalog.getNutrientVector(ordinal));
+            }
+        }
+        return profiles;
+    }
+
+    public synchronized Map<String, Map<String, Double>> getNutrientProfiles(Collection<String> descriptions) {
+        Map<String, Map<String, Double>> profiles = new HashMap<>();
+        for (String description : descriptions) {
+            Map<String, Double> profile = catalog.getNutrientProfile(description);
+            if (!profile.isEmpty()) profiles.put(description, profile);
+        }
+        return profiles;
+    }
+
+    public synchronized Map<String, String> getFoodGroups(Collection<String> descriptions) {
+        Map<String, String> groups = new HashMap<>();
+        for (String description : descriptions) {
+            String group = catalog.getFoodGroup(description);
+            if (group != null) groups.put(description, group);
+        }
+        return groups;
+    }
+
+    public synchronized Map<Integer, String> getFoodGroupsByIds(Collection<Integer> foodIds) {
+        Map<Integer, String> groups = new HashMap<>();
+        for (int foodId : new LinkedHashSet<>(foodIds)) {
+            int ordinal = catalog.getFoodOrdinal(foodId);
+            String group = ordinal == -1 ? null : catalog.getFoodGroupName(ordinal);
+            if (group != null) groups.put(foodId, group);
+        }
+        return groups;
+    }
+
+    public NutrientRegistry getNutrientRegistry() {
+        return catalog.getNutrientRegistry();
+    }
+
+    public int getCnfVersion() {
+        return CNF_VERSION;
+    }
+
+    // --- MealRepository ---
+
+    public synchronized boolean saveMeal(int userId, Meal meal) {
+        if (meal.getResolvedIngredients() == null) {
+            meal.setResolvedIngredients(resolveIngredients(meal.getParsedIngredients()));
+        }
+        meal.setMealId(nextMealId++);
+        meals.put(meal.getMealId(), new StoredMeal(userId, copyOf(meal)));
+        if (meal.getOriginalMealId() != null) {
+            StoredMeal original = meals.get(meal.getOriginalMealId());
+            if (original != null) original.replaced = true;
+        }
+        return true;
+    }
+
+    public synchronized boolean saveMeals(int userId, List<Meal> batch) {
+        // Saving in memory cannot fail part way, so the batch is simply saved meal by meal.
+        batch.forEach(meal -> saveMeal(userId, meal));
+        return true;
+    }
+
+    public synchronized boolean saveMealNutrients(List<Meal> updated) {
+        for (Meal meal : updated) {
+            StoredMeal stored = meals.get(meal.getMealId());
+            if (stored != null && meal.getNutrientBreakdown() != null) {
+                stored.meal.setNutrientBreakdown(meal.getNutrientBreakdown().copy());
+            }
+        }
+        return true;
+    }
+
+    public List<Meal> getMealsForUser(int userId) {
+        return getMealsForUser(userId, null, null, false);
+    }
+
+    public List<Meal> getMealsForUser(int userId, Date startDate, Date endDate) {
+        return getMealsForUser(userId, startDate, endDate, false);
+    }
+
+    public synchronized List<Meal> getMealsForUser(int userId, Date startDate, Date endDate, boolean includeReplacedMeals) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId && (includeReplacedMeals || !stored.replaced))
+                .map(stored -> stored.meal)
+                .filter(meal -> (startDate == null || !meal.getDate().before(startDate))
+                        && (endDate == null || !meal.getDate().after(endDate)))
+                .sorted(NEWEST_FIRST)
+                .map(InMemoryRepository::copyOf)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized List<Meal> getMealPage(int userId, Meal after, int pageSize) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId && !stored.replaced)
+                .map(stored -> stored.meal)
+                .filter(meal -> after == null || NEWEST_FIRST.compare(meal, after) > 0)
+                .sorted(NEWEST_FIRST)
+                .limit(pageSize)
+                .map(InMemoryRepository::journalCopyOf)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized List<Meal> getMealPage(int userId, int offset, int pageSize) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId && !stored.replaced)
+                .map(stored -> stored.meal)
+                .sorted(NEWEST_FIRST)
+                .skip(offset)
+                .limit(pageSize)
+                .map(InMemoryRepository::journalCopyOf)
+                .collect(Collectors.toList());
+    }
+
+    public synchronized int countMealsForUser(int userId) {
+        return (int) meals.values().stream().filter(stored -> stored.userId == userId && !stored.replaced).count();
+    }
+
+    public synchronized Meal getMealById(int mealId) {
+        StoredMeal stored = meals.get(mealId);
+        return stored == null ? null : copyOf(stored.meal);
+    }
+
+    public synchronized Date getMostRecentMealDate(int userId) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId)
+                .map(stored -> stored.meal.getDate())
+                .max(Comparator.naturalOrder())
+                .map(date -> new Date(date.getTime()))
+                .orElse(null);
+    }
+
+    public synchronized int getMaxMealId(int userId) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId)
+                .mapToInt(stored -> stored.meal.getMealId())
+                .max()
+                .orElse(0);
+    }
+
+    public synchronized boolean hasUserLoggedMealTypeOnDate(int userId, String mealType, Date date) {
+        long dayStart = startOfDay(date, 0);
+        long nextDayStart = startOfDay(date, 1);
+        return meals.values().stream().anyMatch(stored -> stored.userId == userId
+                && stored.meal.getMealType().equals(mealType)
+                && stored.meal.getDate().getTime() >= dayStart
+                && stored.meal.getDate().getTime() < nextDayStart);
+    }
+
+    /**
+     * There is no stored rollup; the totals are summed from the meals on each read. They are
+     * "current" as long as every journal meal has its nutrient totals, like the SQL rollup's invariant.
+     */
+    public synchronized boolean isDailyNutrientSummaryCurrent(int userId) {
+        return meals.values().stream()
+                .filter(stored -> stored.userId == userId && !stored.replaced)
+                .allMatch(stored -> stored.meal.getNutrientBreakdown() != null);
+    }
+
+    public boolean rebuildDailyNutrientSummary(int userId) {
+        return true;
+    }
+
+    public synchronized NutrientVector getNutrientTotalsFromDailySummary(int userId, Date startDate, Date endDate) {
+        long rangeStart = startOfDay(startDate, 0);
+        long rangeEnd = startOfDay(endDate, 1);
+        NutrientVector totals = new NutrientVector(catalog.getNutrientRegistry());
+        for (StoredMeal stored : meals.values()) {
+            long time = stored.meal.getDate().getTime();
+            if (stored.userId != userId || stored.replaced || stored.meal.getNutrientBreakdown() == null
+                    || time < rangeStart || time >= rangeEnd) {
+                continue;
+            }
+            totals.add(stored.meal.getNutrientBreakdown());
+        }
+        return totals;
+    }
+
+    private static long startOfDay(Date date, int daysToAdd) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_MONTH, daysToAdd);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Meals are mutable, so the repository stores and hands out copies, as a database would.
+     */
+    private static Meal copyOf(Meal meal) {
+        Meal copy = new Meal();
+        copy.setMealId(meal.getMealId());
+        copy.setDate(meal.getDate() == null ? null : new Date(meal.getDate().getTime()));
+        copy.setMealType(meal.getMealType());
+        copy.setIngredients(meal.getIngredients());
+        copy.setEstimatedCalories(meal.getEstimatedCalories());
+        copy.setSwapped(meal.isSwapped());
+        copy.setOriginalMealId(meal.getOriginalMealId());
+        if (meal.getResolvedIngredients() != null) {
+            copy.setResolvedIngredients(new ArrayList<>(meal.getResolvedIngredients()));
+        }
+        if (meal.getNutrientBreakdown() != null) {
+            copy.setNutrientBreakdown(meal.getNutrientBreakdown().copy());
+        }
+        return copy;
+    }
+
+    /** Journal pages carry no nutrient totals, as with DBManager. */
+    private static Meal journalCopyOf(Meal meal) {
+        Meal copy = copyOf(meal);
+        copy.setNutrientBreakdown(null);
+        return copy;
+    }
+
+    // --- ProfileRepository ---
+
+    public synchronized UserProfile saveProfile(UserProfile profile) {
+        if (getProfile(profile.getName()) != null) {
+            return null; // ProfileName is unique
+        }
+        profile.setId(nextUserId++);
+        profiles.put(profile.getId(), copyOf(profile));
+        return profile;
+    }
+
+    public synchronized UserProfile getProfile(String profileName) {
+        for (UserProfile profile : profiles.values()) {
+            if (profile.getName().equals(profileName)) {
+                return copyOf(profile);
+            }
+        }
+        return null;
+    }
+
+    public synchronized Set<String> getAllUserNames() {
+        Set<String> names = new HashSet<>();
+        profiles.values().forEach(profile -> names.add(profile.getName()));
+        return names;
+    }
+
+    public synchronized boolean updateProfile(UserProfile profile) {
+        if (!profiles.containsKey(profile.getId())) {
+            return false;
+        }
+        profiles.put(profile.getId(), copyOf(profile));
+        return true;
+    }
+
+    private static UserProfile copyOf(UserProfile profile) {
+        UserProfile copy = new UserProfile();
+        copy.setId(profile.getId());
+        copy.setName(profile.getName());
+        copy.setSex(profile.getSex());
+        copy.setDateOfBirth(profile.getDateOfBirth());
+        copy.setHeight(profile.getHeight());
+        copy.setWeight(profile.getWeight());
+        copy.setMeasurementUnit(profile.getMeasurementUnit());
+        return copy;
+    }
+}
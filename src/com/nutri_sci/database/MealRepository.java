@@ -0,0 +1,74 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.NutrientVector;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Stores the meal log, the per-meal nutrient totals and the per-user daily nutrient rollup.
+ * Meals replaced by a swap are hidden from the journal queries unless stated otherwise.
+ * Implemented by {@link DBManager} (MySQL) and {@link InMemoryRepository}.
+ */
+public interface MealRepository {
+
+    /**
+     * Saves a meal with its resolved ingredients and nutrient breakdown (if calculated), updates the
+     * daily rollup and, for a swap, marks the original meal as replaced. Sets the new MealID on the meal.
+     */
+    boolean saveMeal(int userId, Meal meal);
+
+    /**
+     * Saves several meals like {@link #saveMeal}, all or nothing: if one cannot be saved, none are.
+     * Sets the new MealIDs on the meals.
+     */
+    boolean saveMeals(int userId, List<Meal> meals);
+
+    /** Replaces the stored nutrient totals of already saved meals. */
+    boolean saveMealNutrients(List<Meal> meals);
+
+    List<Meal> getMealsForUser(int userId);
+
+    List<Meal> getMealsForUser(int userId, Date startDate, Date endDate);
+
+    /** @return the user's meals in the date range (either bound may be null), newest first. */
+    List<Meal> getMealsForUser(int userId, Date startDate, Date endDate, boolean includeReplacedMeals);
+
+    /**
+     * @param after The last meal of the previous page, or null for the first page.
+     * @return Up to pageSize journal meals following {@code after}, newest first, without nutrient totals.
+     */
+    List<Meal> getMealPage(int userId, Meal after, int pageSize);
+
+    /**
+     * @param offset The journal row of the first meal, 0 being the newest.
+     * @return Up to pageSize journal meals starting at the offset, newest first, without nutrient totals.
+     */
+    List<Meal> getMealPage(int userId, int offset, int pageSize);
+
+    int countMealsForUser(int userId);
+
+    /** @return the meal, or null if not found. */
+    Meal getMealById(int mealId);
+
+    /** @return the date of the user's latest meal, or null if nothing was logged. */
+    Date getMostRecentMealDate(int userId);
+
+    /**
+     * @return the highest MealID of the user's meals, replaced meals included, or 0 if nothing was logged.
+     * Every save (a swap too) inserts a new meal, so this changes whenever the user's meals do.
+     */
+    int getMaxMealId(int userId);
+
+    boolean hasUserLoggedMealTypeOnDate(int userId, String mealType, Date date);
+
+    /** @return true if the user's daily rollup matches the current CNF data and can be queried directly. */
+    boolean isDailyNutrientSummaryCurrent(int userId);
+
+    /** Rebuilds the user's daily rollup from the stored nutrient totals of every meal that has not been replaced. */
+    boolean rebuildDailyNutrientSummary(int userId);
+
+    /** @return the nutrient totals of the days in the range, all 0 if nothing was logged. */
+    NutrientVector getNutrientTotalsFromDailySummary(int userId, Date startDate, Date endDate);
+}
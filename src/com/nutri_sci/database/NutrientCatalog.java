@@ -0,0 +1,471 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read-only, in-memory copy of the Canadian Nutrient File.
+ * FOOD_NAME, FOOD_GROUP, NUTRIENT_NAME and NUTRIENT_AMOUNT are read once and the amounts are kept
+ * in a dense food x nutrient matrix, so nutrient lookups no longer need a database round trip.
+ * Foods and nutrients are addressed by ordinals (their position in the sorted ID arrays).
+ * Implements the Singleton pattern; the first call to {@link #getInstance()} performs the load,
+ * preferring the memory-mapped {@link CnfSnapshot} when it was written for the current CNF_VERSION.
+ */
+public class NutrientCatalog {
+    private static NutrientCatalog instance;
+    private static boolean snapshotChecked = false;
+
+    // Marks a food/nutrient pair that has no row in NUTRIENT_AMOUNT.
+    private static final double MISSING = Double.NaN;
+
+    // Foods, indexed by food ordinal. foodIds is sorted so ordinals can be found by binary search.
+    private final int[] foodIds;
+    private final String[] foodDescriptions;
+    private final int[] foodGroupOrdinals;
+
+    // Food groups, indexed by group ordinal.
+    private final String[] foodGroupNames;
+
+    // Nutrients, indexed by nutrient ordinal. nutrientIds is sorted as well.
+    private final int[] nutrientIds;
+    private final String[] nutrientKeys; // "NAME (UNIT)", the same keys NutrientCalculator has always produced
+    private final NutrientRegistry nutrientRegistry;
+
+    // Column-major matrix: the amount per 100g of nutrient n in food f is at [n * foodCount + f].
+    // A heap buffer when loaded over JDBC, a view over the mapped file when read from a snapshot.
+    private final DoubleBuffer amounts;
+    private final int nutrientCount;
+    private final int foodCount;
+
+    // Case-insensitive description -> food ordinal, mirroring the collation used by FOOD_NAME lookups.
+    private final Map<String, Integer> ordinalByDescription;
+
+    private final int amountRowCount;
+    private long loadTimeMillis;
+    private boolean fromSnapshot = false;
+
+    NutrientCatalog(int[] foodIds, String[] foodDescriptions, int[] foodGroupOrdinals, String[] foodGroupNames,
+                    int[] nutrientIds, String[] nutrientKeys, DoubleBuffer amounts, int amountRowCount) {
+        this.foodIds = foodIds;
+        this.foodDescriptions = foodDescriptions;
+        this.foodGroupOrdinals = foodGroupOrdinals;
+        this.foodGroupNames = foodGroupNames;
+        this.nutrientIds = nutrientIds;
+        this.nutrientKeys = nutrientKeys;
+        this.nutrientRegistry = new NutrientRegistry(nutrientIds, nutrientKeys);
+        this.amounts = amounts;
+        this.nutrientCount = nutrientIds.length;
+        this.foodCount = foodIds.length;
+        this.amountRowCount = amountRowCount;
+
+        this.ordinalByDescription = new HashMap<>(foodDescriptions.length * 2);
+        for (int f = 0; f < foodDescriptions.length; f++) {
+            if (foodDescriptions[f] != null) {
+                ordinalByDescription.putIfAbsent(foodDescriptions[f].toLowerCase(Locale.ROOT), f);
+            }
+        }
+    }
+
+    /**
+     * Provides global access to the catalog, loading it from the database on first use.
+     */
+    public static synchronized NutrientCatalog getInstance() {
+        if (instance == null) {
+            instance = openSnapshot();
+        }
+        if (instance == null) {
+            try (Connection conn = DBManager.getInstance().getConnection()) {
+                instance = load(conn);
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new RuntimeException("Failed to load the nutrient catalog.", e);
+            }
+            System.out.println("Nutrient catalog loaded: " + instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the catalog only if it can come from a current snapshot (or is already loaded), without
+     * falling back to the JDBC load. DBManager uses this when the full catalog is disabled.
+     *
+     * @return The catalog, or null if there is no snapshot matching CNF_VERSION.
+     */
+    public static synchronized NutrientCatalog getSnapshotInstance() {
+        if (instance == null) {
+            instance = openSnapshot();
+        }
+        return instance;
+    }
+
+    /**
+     * Maps the snapshot file if it exists and was written for the database's current CNF_VERSION.
+     * Checked once per run; a stale or missing snapshot means the caller uses the database.
+     */
+    private static NutrientCatalog openSnapshot() {
+        if (snapshotChecked || !DatabaseConfig.getInstance().isCnfSnapshotEnabled()) {
+            return null;
+        }
+        snapshotChecked = true;
+        Path path = Paths.get(DatabaseConfig.getInstance().getCnfSnapshotPath());
+        int snapshotVersion = CnfSnapshot.readVersion(path);
+        if (snapshotVersion < 0) {
+            return null;
+        }
+        int cnfVersion = DBManager.getInstance().getCnfVersion();
+        if (snapshotVersion != cnfVersion) {
+            System.out.println("CNF snapshot " + path + " is for version " + snapshotVersion
+                    + " but the database is at " + cnfVersion + "; using the database.");
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            NutrientCatalog catalog = CnfSnapshot.read(path);
+            catalog.loadTimeMillis = (System.nanoTime() - start) / 1_000_000;
+            catalog.fromSnapshot = true;
+            System.out.println("Nutrient catalog mapped from snapshot: " + catalog);
+            return catalog;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not read CNF snapshot " + path + "; using the database.");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Reads the CNF tables over the given connection and builds the matrix.
+     */
+    static NutrientCatalog load(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+
+        // Nutrient dictionary.
+        List<Integer> nutrientIdList = new ArrayList<>();
+        List<String> nutrientKeyList = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT NutrientID, NutrientName, NutrientUnit FROM NUTRIENT_NAME ORDER BY NutrientID")) {
+            while (rs.next()) {
+                nutrientIdList.add(rs.getInt("NutrientID"));
+                nutrientKeyList.add(rs.getString("NutrientName") + " (" + rs.getString("NutrientUnit") + ")");
+            }
+        }
+        int[] nutrientIds = nutrientIdList.stream().mapToInt(Integer::intValue).toArray();
+        String[] nutrientKeys = nutrientKeyList.toArray(new String[0]);
+
+        // Food groups.
+        List<Integer> groupIdList = new ArrayList<>();
+        List<String> groupNameList = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT FoodGroupID, FoodGroupName FROM FOOD_GROUP ORDER BY FoodGroupID")) {
+            while (rs.next()) {
+                groupIdList.add(rs.getInt("FoodGroupID"));
+                groupNameList.add(rs.getString("FoodGroupName"));
+            }
+        }
+        int[] groupIds = groupIdList.stream().mapToInt(Integer::intValue).toArray();
+        String[] groupNames = groupNameList.toArray(new String[0]);
+
+        // Foods.
+        List<Integer> foodIdList = new ArrayList<>();
+        List<String> descriptionList = new ArrayList<>();
+        List<Integer> groupOrdinalList = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT FoodID, FoodDescription, FoodGroupID FROM FOOD_NAME ORDER BY FoodID")) {
+            while (rs.next()) {
+                foodIdList.add(rs.getInt("FoodID"));
+                descriptionList.add(rs.getString("FoodDescription"));
+                int groupId = rs.getInt("FoodGroupID");
+                groupOrdinalList.add(rs.wasNull() ? -1 : Math.max(-1, Arrays.binarySearch(groupIds, groupId)));
+            }
+        }
+        int[] foodIds = foodIdList.stream().mapToInt(Integer::intValue).toArray();
+        String[] descriptions = descriptionList.toArray(new String[0]);
+        int[] groupOrdinals = groupOrdinalList.stream().mapToInt(Integer::intValue).toArray();
+
+        // Nutrient amounts, streamed row by row so the driver does not buffer the whole table.
+        double[] amounts = new double[nutrientIds.length * foodIds.length];
+        Arrays.fill(amounts, MISSING);
+        int rowCount = 0;
+        try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery("SELECT FoodID, NutrientID, NutrientValue FROM NUTRIENT_AMOUNT")) {
+                while (rs.next()) {
+                    int f = Arrays.binarySearch(foodIds, rs.getInt(1));
+                    int n = Arrays.binarySearch(nutrientIds, rs.getInt(2));
+                    if (f >= 0 && n >= 0) {
+                        amounts[n * foodIds.length + f] = rs.getDouble(3);
+                        rowCount++;
+                    }
+                }
+            }
+        }
+
+        NutrientCatalog catalog = new NutrientCatalog(foodIds, descriptions, groupOrdinals, groupNames,
+                nutrientIds, nutrientKeys, DoubleBuffer.wrap(amounts), rowCount);
+        catalog.loadTimeMillis = (System.nanoTime() - start) / 1_000_000;
+        return catalog;
+    }
+
+    // --- Ordinal lookups ---
+
+    public int getFoodCount() {
+        return foodIds.length;
+    }
+
+    public int getNutrientCount() {
+        return nutrientCount;
+    }
+
+    /** @return the food ordinal for a FoodID, or -1 if the food is unknown. */
+    public int getFoodOrdinal(int foodId) {
+        int ordinal = Arrays.binarySearch(foodIds, foodId);
+        return ordinal >= 0 ? ordinal : -1;
+    }
+
+    /** @return the food ordinal for an exact (case-insensitive) description, or -1 if none matches. */
+    public int findFoodOrdinalByDescription(String description) {
+        if (description == null) return -1;
+        Integer ordinal = ordinalByDescription.get(description.trim().toLowerCase(Locale.ROOT));
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /** @return the nutrient ordinal for a NutrientID, or -1 if the nutrient is unknown. */
+    public int getNutrientOrdinal(int nutrientId) {
+        int ordinal = Arrays.binarySearch(nutrientIds, nutrientId);
+        return ordinal >= 0 ? ordinal : -1;
+    }
+
+    public int getFoodId(int foodOrdinal) {
+        return foodIds[foodOrdinal];
+    }
+
+    public String getFoodDescription(int foodOrdinal) {
+        return foodDescriptions[foodOrdinal];
+    }
+
+    public String getFoodGroupName(int foodOrdinal) {
+        int group = foodGroupOrdinals[foodOrdinal];
+        return group >= 0 ? foodGroupNames[group] : null;
+    }
+
+    public int getNutrientId(int nutrientOrdinal) {
+        return nutrientIds[nutrientOrdinal];
+    }
+
+    /** @return the display key of a nutrient, e.g. "PROTEIN (g)". */
+    public String getNutrientKey(int nutrientOrdinal) {
+        return nutrientKeys[nutrientOrdinal];
+    }
+
+    /** @return the nutrient dictionary; its ordinals are the nutrient ordinals of this catalog. */
+    public NutrientRegistry getNutrientRegistry() {
+        return nutrientRegistry;
+    }
+
+    /** @return true if NUTRIENT_AMOUNT has a row for this food and nutrient. */
+    public boolean hasAmount(int foodOrdinal, int nutrientOrdinal) {
+        return !Double.isNaN(getRawAmount(foodOrdinal, nutrientOrdinal));
+    }
+
+    /** @return the amount per 100g, or 0.0 if the food has no value for this nutrient. */
+    public double getAmountPer100g(int foodOrdinal, int nutrientOrdinal) {
+        double value = getRawAmount(foodOrdinal, nutrientOrdinal);
+        return Double.isNaN(value) ? 0.0 : value;
+    }
+
+    /** @return the stored amount, NaN if NUTRIENT_AMOUNT has no row for the pair. */
+    double getRawAmount(int foodOrdinal, int nutrientOrdinal) {
+        return amounts.get(nutrientOrdinal * foodCount + foodOrdinal);
+    }
+
+    int getFoodGroupOrdinal(int foodOrdinal) {
+        return foodGroupOrdinals[foodOrdinal];
+    }
+
+    String[] getFoodGroupNames() {
+        return foodGroupNames;
+    }
+
+    // --- Lookups mirroring the DBManager queries ---
+
+    /**
+     * Equivalent of DBManager.getComprehensiveNutrientProfile: every nutrient recorded for the food,
+     * keyed by "NAME (UNIT)", per 100g.
+     */
+    public Map<String, Double> getComprehensiveNutrientProfile(String foodDescription) {
+        Map<String, Double> nutrients = new HashMap<>();
+        int f = findFoodOrdinalByDescription(foodDescription);
+        if (f == -1) return nutrients;
+        for (int n = 0; n < nutrientCount; n++) {
+            double value = getRawAmount(f, n);
+            if (!Double.isNaN(value)) {
+                nutrients.put(nutrientKeys[n], value);
+            }
+        }
+        return nutrients;
+    }
+
+    /**
+     * @return every nutrient of the food per 100g, as a vector over {@link #getNutrientRegistry()};
+     * nutrients without a NUTRIENT_AMOUNT row are 0.
+     */
+    public NutrientVector getNutrientVector(int foodOrdinal) {
+        NutrientVector vector = new NutrientVector(nutrientRegistry);
+        for (int n = 0; n < nutrientCount; n++) {
+            vector.setAt(n, getAmountPer100g(foodOrdinal, n));
+        }
+        return vector;
+    }
+
+    /**
+     * Equivalent of DBManager.getNutrientProfile: only "Calories", "Protein" and "Fiber", per 100g.
+     */
+    public Map<String, Double> getNutrientProfile(String foodDescription) {
+        Map<String, Double> nutrients = new HashMap<>();
+        int f = findFoodOrdinalByDescription(foodDescription);
+        if (f == -1) return nutrients;
+        putIfPresent(nutrients, "Calories", f, DBManager.CALORIE_NUTRIENT_ID);
+        putIfPresent(nutrients, "Protein", f, DBManager.PROTEIN_NUTRIENT_ID);
+        putIfPresent(nutrients, "Fiber", f, DBManager.FIBER_NUTRIENT_ID);
+        return nutrients;
+    }
+
+    private void putIfPresent(Map<String, Double> nutrients, String name, int foodOrdinal, int nutrientId) {
+        int n = getNutrientOrdinal(nutrientId);
+        if (n != -1 && hasAmount(foodOrdinal, n)) {
+            nutrients.put(name, getRawAmount(foodOrdinal, n));
+        }
+    }
+
+    public double getCaloriesPer100g(int foodId) {
+        int f = getFoodOrdinal(foodId);
+        int n = getNutrientOrdinal(DBManager.CALORIE_NUTRIENT_ID);
+        return (f == -1 || n == -1) ? 0.0 : getAmountPer100g(f, n);
+    }
+
+    public String getFoodGroup(String foodDescription) {
+        int f = findFoodOrdinalByDescription(foodDescription);
+        return f == -1 ? null : getFoodGroupName(f);
+    }
+
+    public List<String> getFoodsFromGroup(String foodGroup) {
+        List<String> foods = new ArrayList<>();
+        for (int f = 0; f < foodIds.length; f++) {
+            String group = getFoodGroupName(f);
+            if (group != null && group.equalsIgnoreCase(foodGroup)) {
+                foods.add(foodDescriptions[f]);
+            }
+        }
+        return foods;
+    }
+
+    /**
+     * Equivalent of DBManager.getFoodsByNutrientRank: the 300 foods with the highest ("HIGH")
+     * or lowest values of Calories, Protein or Fiber.
+     */
+    public List<String> getFoodsByNutrientRank(String nutrientName, String rank) {
+        int nutrientId;
+        switch (nutrientName) {
+            case "Protein":
+                nutrientId = DBManager.PROTEIN_NUTRIENT_ID;
+                break;
+            case "Fiber":
+                nutrientId = DBManager.FIBER_NUTRIENT_ID;
+                break;
+            case "Calories":
+            default:
+                nutrientId = DBManager.CALORIE_NUTRIENT_ID;
+                break;
+        }
+        List<String> foods = new ArrayList<>();
+        int n = getNutrientOrdinal(nutrientId);
+        if (n == -1) return foods;
+
+        List<Integer> ranked = new ArrayList<>();
+        for (int f = 0; f < foodIds.length; f++) {
+            if (hasAmount(f, n)) ranked.add(f);
+        }
+        boolean descending = rank.equalsIgnoreCase("HIGH");
+        ranked.sort((a, b) -> descending
+                ? Double.compare(getAmountPer100g(b, n), getAmountPer100g(a, n))
+                : Double.compare(getAmountPer100g(a, n), getAmountPer100g(b, n)));
+        for (int i = 0; i < Math.min(300, ranked.size()); i++) {
+            foods.add(foodDescriptions[ranked.get(i)]);
+        }
+        return foods;
+    }
+
+    // --- Diagnostics ---
+
+    /** @return how long the initial load took, in milliseconds. */
+    public long getLoadTimeMillis() {
+        return loadTimeMillis;
+    }
+
+    /** @return true if the matrix is mapped from a snapshot file rather than loaded over JDBC. */
+    public boolean isFromSnapshot() {
+        return fromSnapshot;
+    }
+
+    /** @return the number of NUTRIENT_AMOUNT rows stored in the matrix. */
+    public int getAmountRowCount() {
+        return amountRowCount;
+    }
+
+    /**
+     * Estimates the heap used by the catalog, assuming a 64-bit JVM with compressed references
+     * (16-byte array headers, 4-byte references) and compact Latin-1 strings.
+     */
+    public long getMemoryFootprintBytes() {
+        long bytes = 0;
+        // A mapped matrix lives in the page cache, not on the heap.
+        if (!amounts.isDirect()) {
+            bytes += 16L + 8L * amounts.capacity();
+        }
+        bytes += 16L + 4L * foodIds.length;
+        bytes += 16L + 4L * foodGroupOrdinals.length;
+        bytes += 16L + 4L * nutrientIds.length;
+        bytes += stringArrayBytes(foodDescriptions);
+        bytes += stringArrayBytes(foodGroupNames);
+        bytes += stringArrayBytes(nutrientKeys);
+        // HashMap table slot + node (32 bytes) + lower-cased key string per description.
+        for (String key : ordinalByDescription.keySet()) {
+            bytes += 4 + 32 + stringBytes(key);
+        }
+        return bytes;
+    }
+
+    private static long stringArrayBytes(String[] strings) {
+        long bytes = 16L + 4L * strings.length;
+        for (String s : strings) {
+            bytes += stringBytes(s);
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String s) {
+        // String object (24) + backing byte[] header (16) + one byte per character.
+        return s == null ? 0 : 40L + s.length();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d foods x %d nutrients (%d amounts), %s in %d ms, ~%.1f MB heap",
+                foodIds.length, nutrientCount, amountRowCount, fromSnapshot ? "mapped" : "loaded", loadTimeMillis,
+                getMemoryFootprintBytes() / (1024.0 * 1024.0));
+    }
+}
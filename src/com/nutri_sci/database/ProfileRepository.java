@@ -0,0 +1,21 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.UserProfile;
+
+import java.util.Set;
+
+/**
+ * Stores user profiles. Implemented by {@link DBManager} (MySQL) and {@link InMemoryRepository}.
+ */
+public interface ProfileRepository {
+
+    /** @return the saved profile with its generated ID, or null if it could not be saved. */
+    UserProfile saveProfile(UserProfile profile);
+
+    /** @return the profile with this name, or null if there is none. */
+    UserProfile getProfile(String profileName);
+
+    Set<String> getAllUserNames();
+
+    boolean updateProfile(UserProfile profile);
+}
@@ -0,0 +1,66 @@
+package com.nutri_sci.database;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Hands out the repository implementations the rest of the application uses. The backend is
+ * chosen by repository.backend: "mysql" (default, {@link DBManager}) or "memory"
+ * ({@link InMemoryRepository} reading the CNF CSVs from cnf.csvDirectory).
+ * Benchmarks and tests can install a backend explicitly with {@link #use}.
+ */
+public final class Repositories {
+    private static FoodCatalogRepository foodCatalog;
+    private static MealRepository meals;
+    private static ProfileRepository profiles;
+
+    private Repositories() {
+    }
+
+    public static synchronized FoodCatalogRepository getFoodCatalog() {
+        initialize();
+        return foodCatalog;
+    }
+
+    public static synchronized MealRepository getMeals() {
+        initialize();
+        return meals;
+    }
+
+    public static synchronized ProfileRepository getProfiles() {
+        initialize();
+        return profiles;
+    }
+
+    /**
+     * Installs a backend. Must be called before the services and controllers are first created,
+     * since they keep the repositories they were constructed with.
+     */
+    public static synchronized void use(FoodCatalogRepository foodCatalog, MealRepository meals, ProfileRepository profiles) {
+        Repositories.foodCatalog = foodCatalog;
+        Repositories.meals = meals;
+        Repositories.profiles = profiles;
+    }
+
+    /** @return true when the in-memory backend is configured, i.e. no MySQL server is used. */
+    public static boolean isInMemoryBackend() {
+        return "memory".equalsIgnoreCase(DatabaseConfig.getInstance().getRepositoryBackend());
+    }
+
+    private static void initialize() {
+        if (foodCatalog != null) return;
+        if (isInMemoryBackend()) {
+            InMemoryRepository repository;
+            try {
+                repository = InMemoryRepository.fromCsv(Paths.get(DatabaseConfig.getInstance().getCnfCsvDirectory()));
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new RuntimeException("Failed to read the CNF CSV files for the in-memory backend.", e);
+            }
+            use(repository, repository, repository);
+        } else {
+            DBManager dbManager = DBManager.getInstance();
+            use(dbManager, dbManager, dbManager);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.nutri_sci.database;
+
+import com.nutri_sci.model.IngredientParser;
+import com.nutri_sci.model.ParsedIngredient;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies versioned schema and data migrations to the application tables.
+ * Every migration runs once, in its own transaction, and is recorded in SCHEMA_VERSION
+ * so restarting the application does not repeat it.
+ * MySQL commits DDL statements implicitly, so steps that change the schema must be safe to re-run.
+ */
+class SchemaMigrator {
+
+    /**
+     * A single migration step. Steps run with auto-commit disabled on the given connection.
+     */
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Ordered list of migrations. Append new ones with the next version number; never renumber.
+    private final List<Migration> migrations = Arrays.asList(
+            new Migration(1, "Back-fill MEAL_INGREDIENT from MEAL_LOG.Ingredients", this::backfillMealIngredients),
+            new Migration(2, "Add MEAL_LOG.NutrientCnfVersion", conn -> addColumnIfMissing(conn, "MEAL_LOG", "NutrientCnfVersion", "INT NULL")),
+            new Migration(3, "Flag replaced meals with MEAL_LOG.IsReplaced/SupersededBy", this::addReplacedFlag),
+            new Migration(4, "Add indexes for the CNF lookup and meal-type queries", SchemaMigrator::createQueryIndexes)
+    );
+
+    private final ConnectionPool pool;
+
+    SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Runs every migration that has not been recorded in SCHEMA_VERSION yet.
+     */
+    void migrate() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("CREATE TABLE IF NOT EXISTS SCHEMA_VERSION ("
+                        + "Version INT PRIMARY KEY,"
+                        + "Description VARCHAR(255) NOT NULL,"
+                        + "AppliedAt DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP"
+                        + ");");
+            }
+
+            Set<Integer> applied = new HashSet<>();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT Version FROM SCHEMA_VERSION")) {
+                while (rs.next()) {
+                    applied.add(rs.getInt("Version"));
+                }
+            }
+
+            for (Migration migration : migrations) {
+                if (applied.contains(migration.version)) continue;
+                long start = System.currentTimeMillis();
+                conn.setAutoCommit(false);
+                try {
+                    migration.step.apply(conn);
+                    try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO SCHEMA_VERSION (Version, Description) VALUES (?, ?)")) {
+                        pstmt.setInt(1, migration.version);
+                        pstmt.setString(2, migration.description);
+                        pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                    System.out.println("Applied migration " + migration.version + " (" + migration.description + ") in "
+                            + (System.currentTimeMillis() - start) + " ms.");
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw new SQLException("Migration " + migration.version + " failed: " + migration.description, e);
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the free-text ingredients of every meal that has no MEAL_INGREDIENT rows yet,
+     * resolves each description to a FoodID by exact match, and stores the resolved lines.
+     * Lines that cannot be parsed or matched are skipped, exactly as the text readers skip them.
+     */
+    private void backfillMealIngredients(Connection conn) throws SQLException {
+        Map<Integer, String> ingredientsByMeal = new HashMap<>();
+        String selectMeals = "SELECT ml.MealID, ml.Ingredients FROM MEAL_LOG ml "
+                + "WHERE NOT EXISTS (SELECT 1 FROM MEAL_INGREDIENT mi WHERE mi.MealID = ml.MealID)";
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(selectMeals)) {
+            while (rs.next()) {
+                ingredientsByMeal.put(rs.getInt("MealID"), rs.getString("Ingredients"));
+            }
+        }
+        if (ingredientsByMeal.isEmpty()) return;
+
+        Map<String, Integer> foodIdByDescription = loadFoodIdsByDescription(conn);
+
+        String insert = "INSERT INTO MEAL_INGREDIENT (MealID, LineNo, FoodID, Grams) VALUES (?, ?, ?, ?)";
+        int rows = 0;
+        try (PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            for (Map.Entry<Integer, String> meal : ingredientsByMeal.entrySet()) {
+                // LineNo is the line index in the ingredient text, the same as for meals saved by DBManager.
+                for (ParsedIngredient ingredient : IngredientParser.parse(meal.getValue())) {
+                    Integer foodId = foodIdByDescription.get(ingredient.getDescription().toLowerCase(Locale.ROOT));
+                    if (foodId == null) continue;
+
+                    pstmt.setInt(1, meal.getKey());
+                    pstmt.setInt(2, ingredient.getLineNo());
+                    pstmt.setInt(3, foodId);
+                    pstmt.setDouble(4, ingredient.getGrams());
+                    pstmt.addBatch();
+                    if (++rows % 1000 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+            }
+            pstmt.executeBatch();
+        }
+        System.out.println("Back-filled " + rows + " ingredient rows for " + ingredientsByMeal.size() + " meals.");
+    }
+
+    /**
+     * Replaces the "MealID NOT IN (SELECT OriginalMealID ...)" filter with an explicit flag.
+     * Existing swaps are back-filled; a meal swapped more than once points at its latest replacement.
+     */
+    private void addReplacedFlag(Connection conn) throws SQLException {
+        addColumnIfMissing(conn, "MEAL_LOG", "IsReplaced", "BOOLEAN NOT NULL DEFAULT FALSE");
+        addColumnIfMissing(conn, "MEAL_LOG", "SupersededBy", "INT NULL");
+        try (Statement stmt = conn.createStatement()) {
+            int updated = stmt.executeUpdate("UPDATE MEAL_LOG o JOIN ("
+                    + "SELECT OriginalMealID, MAX(MealID) AS SupersededBy FROM MEAL_LOG WHERE OriginalMealID IS NOT NULL GROUP BY OriginalMealID"
+                    + ") s ON o.MealID = s.OriginalMealID SET o.IsReplaced = TRUE, o.SupersededBy = s.SupersededBy");
+            System.out.println("Flagged " + updated + " replaced meals.");
+        }
+        addIndexIfMissing(conn, "MEAL_LOG", "idx_meal_log_user_current", "(UserID, IsReplaced, MealDate)");
+    }
+
+    // {table, index, columns}
+    private static final String[][] QUERY_INDEXES = {
+            {"NUTRIENT_AMOUNT", "idx_nutrient_amount_rank", "(NutrientID, NutrientValue)"},
+            {"FOOD_NAME", "idx_food_name_group", "(FoodGroupID)"},
+            {"FOOD_NAME", "idx_food_name_description", "(FoodDescription(255))"},
+            {"FOOD_GROUP", "idx_food_group_name", "(FoodGroupName)"},
+            {"MEAL_LOG", "idx_meal_log_user_type_date", "(UserID, MealType, MealDate)"}};
+
+    /**
+     * Creates the secondary indexes behind the hot lookup queries. DatabaseLoader calls this as well
+     * after loading the CNF tables, since those may not exist yet when the application first starts.
+     * <ul>
+     *   <li>NUTRIENT_AMOUNT (NutrientID, NutrientValue): getFoodsByNutrientRank reads the top/bottom foods
+     *       of one nutrient straight from the index instead of sorting every amount row.</li>
+     *   <li>FOOD_NAME (FoodGroupID): getFoodsFromGroup and food-group joins.</li>
+     *   <li>FOOD_NAME (FoodDescription(255)): exact description lookups; a prefix index, as the column is TEXT.</li>
+     *   <li>FOOD_GROUP (FoodGroupName): the group-name filter in getFoodsFromGroup.</li>
+     *   <li>MEAL_LOG (UserID, MealType, MealDate): hasUserLoggedMealTypeOnDate with a MealDate range.</li>
+     * </ul>
+     */
+    static void createQueryIndexes(Connection conn) throws SQLException {
+        for (String[] index : QUERY_INDEXES) {
+            addIndexIfMissing(conn, index[0], index[1], index[2]);
+        }
+    }
+
+    /** Creates the query indexes of one table, e.g. after DatabaseLoader has bulk-loaded it. */
+    static void createQueryIndexes(Connection conn, String table) throws SQLException {
+        for (String[] index : QUERY_INDEXES) {
+            if (index[0].equals(table)) addIndexIfMissing(conn, index[0], index[1], index[2]);
+        }
+    }
+
+    /**
+     * Drops the query indexes of one table, so a bulk load does not maintain them row by row.
+     * InnoDB ignores ALTER TABLE ... DISABLE KEYS, so dropping and recreating them is the only way.
+     */
+    static void dropQueryIndexes(Connection conn, String table) throws SQLException {
+        for (String[] index : QUERY_INDEXES) {
+            if (index[0].equals(table) && indexExists(conn, index[0], index[1])) {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DROP INDEX " + index[1] + " ON " + index[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds an index unless one with the same name already exists. Tables that do not exist
+     * (e.g. CNF tables that have not been loaded yet) are skipped.
+     */
+    private static void addIndexIfMissing(Connection conn, String table, String index, String columns) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            pstmt.setString(1, table);
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next() || rs.getInt(1) == 0) return;
+        }
+        if (indexExists(conn, table, index)) return;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("CREATE INDEX " + index + " ON " + table + " " + columns);
+        }
+    }
+
+    private static boolean indexExists(Connection conn, String table, String index) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, index);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Adds a column unless it already exists, so the step is safe to re-run after a partial failure
+     * and on databases whose tables were created with the column already present.
+     */
+    private void addColumnIfMissing(Connection conn, String table, String column, String definition) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next() && rs.getInt(1) > 0) return;
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Reads FOOD_NAME once into a case-insensitive description -> FoodID map (first FoodID wins).
+     * The back-fill cannot use NutrientCatalog because it runs while DBManager is being constructed.
+     */
+    private Map<String, Integer> loadFoodIdsByDescription(Connection conn) throws SQLException {
+        Map<String, Integer> foodIds = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT FoodID, FoodDescription FROM FOOD_NAME ORDER BY FoodID")) {
+            while (rs.next()) {
+                String description = rs.getString("FoodDescription");
+                if (description != null) {
+                    foodIds.putIfAbsent(description.trim().toLowerCase(Locale.ROOT), rs.getInt("FoodID"));
+                }
+            }
+        }
+        return foodIds;
+    }
+}
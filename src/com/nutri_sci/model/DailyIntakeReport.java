@@ -0,0 +1,63 @@
+package com.nutri_sci.model;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The daily intake report for a date range: the average daily intake, aggregated once, and the three
+ * views the Visualization Hub shows from it (macronutrient split, top micronutrients and the RDA comparison).
+ * Immutable, so it can be built on a background thread and handed to the EDT as is.
+ */
+public final class DailyIntakeReport {
+    private final Date startDate;
+    private final Date endDate;
+    private final int days;
+    private final NutrientVector averageDailyNutrients;
+    private final Map<String, Double> macroNutrients;
+    private final Map<String, Double> microNutrients;
+    private final String rdaComparisonMessage;
+
+    public DailyIntakeReport(Date startDate, Date endDate, int days, NutrientVector averageDailyNutrients,
+                             Map<String, Double> macroNutrients, Map<String, Double> microNutrients, String rdaComparisonMessage) {
+        this.startDate = new Date(startDate.getTime());
+        this.endDate = new Date(endDate.getTime());
+        this.days = days;
+        this.averageDailyNutrients = averageDailyNutrients.copy();
+        this.macroNutrients = Collections.unmodifiableMap(new LinkedHashMap<>(macroNutrients));
+        this.microNutrients = Collections.unmodifiableMap(new LinkedHashMap<>(microNutrients));
+        this.rdaComparisonMessage = rdaComparisonMessage;
+    }
+
+    // Getters
+    public Date getStartDate() { return new Date(startDate.getTime()); }
+    public Date getEndDate() { return new Date(endDate.getTime()); }
+    public int getDays() { return days; }
+    public String getRdaComparisonMessage() { return rdaComparisonMessage; }
+
+    /** @return false if nothing was logged in the range. */
+    public boolean hasData() {
+        return !averageDailyNutrients.isZero();
+    }
+
+    /** @return the average daily amount of a nutrient by NutrientID, 0 if it has no value. */
+    public double getAverageDailyAmount(int nutrientId) {
+        return averageDailyNutrients.get(nutrientId);
+    }
+
+    /** @return a copy of the average daily intake of every nutrient. */
+    public NutrientVector getAverageDailyNutrients() {
+        return averageDailyNutrients.copy();
+    }
+
+    /** @return average grams of protein, carbohydrates and fat per day, by chart label. */
+    public Map<String, Double> getMacroNutrients() {
+        return macroNutrients;
+    }
+
+    /** @return the five largest other nutrients by average daily amount, plus "Other Nutrients" for the rest. */
+    public Map<String, Double> getMicroNutrients() {
+        return microNutrients;
+    }
+}
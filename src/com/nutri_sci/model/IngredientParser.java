@@ -0,0 +1,122 @@
+package com.nutri_sci.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses meal ingredient text: one "[amount]g [description]" line per ingredient, e.g. "150g Apple, raw".
+ * A line is accepted exactly when the trimmed line matches {@code (\d+\.?\d*)\s*g\s*(.+)} (case-insensitive),
+ * but the text is scanned by hand, without the regex engine, String.split or trimmed copies of each line;
+ * only the amount and description strings of accepted lines are allocated.
+ */
+public final class IngredientParser {
+
+    private IngredientParser() {
+    }
+
+    /** @return The ingredients of every parseable line, in order; blank and malformed lines are skipped. */
+    public static List<ParsedIngredient> parse(String ingredients) {
+        return parse(ingredients, null);
+    }
+
+    /**
+     * Parses ingredient text like {@link #parse(String)}.
+     * @param invalidLines If not null, receives every non-blank line that could not be parsed.
+     */
+    public static List<ParsedIngredient> parse(String ingredients, Consumer<String> invalidLines) {
+        if (ingredients == null || ingredients.isEmpty()) return Collections.emptyList();
+        List<ParsedIngredient> parsed = new ArrayList<>();
+        int lineStart = 0;
+        for (int lineNo = 0; lineStart <= ingredients.length(); lineNo++) {
+            int lineEnd = ingredients.indexOf('\n', lineStart);
+            if (lineEnd < 0) lineEnd = ingredients.length();
+            ParsedIngredient ingredient = parse(ingredients, lineStart, lineEnd, lineNo);
+            if (ingredient != null) {
+                parsed.add(ingredient);
+            } else if (invalidLines != null && !isBlank(ingredients, lineStart, lineEnd)) {
+                invalidLines.accept(ingredients.substring(lineStart, lineEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return parsed;
+    }
+
+    /** @return The parsed line (line index 0), or null if it is not an "[amount]g [description]" line. */
+    public static ParsedIngredient parseLine(String line) {
+        return line == null ? null : parse(line, 0, line.length(), 0);
+    }
+
+    /**
+     * For a line that is still being typed: the length of its "[amount]g" prefix including the whitespace
+     * around it, so the rest is the (possibly empty) description. Leading whitespace is allowed.
+     * @return The prefix length, or -1 if the line does not start with an amount in grams.
+     */
+    public static int amountPrefixLength(CharSequence line) {
+        int end = line.length();
+        int pos = skipWhitespace(line, 0, end);
+        pos = scanAmount(line, pos, end);
+        if (pos < 0) return -1;
+        pos = skipWhitespace(line, pos, end);
+        if (pos == end || (line.charAt(pos) != 'g' && line.charAt(pos) != 'G')) return -1;
+        return skipWhitespace(line, pos + 1, end);
+    }
+
+    private static ParsedIngredient parse(String text, int start, int end, int lineNo) {
+        // Trim the line the way String.trim does.
+        while (start < end && text.charAt(start) <= ' ') start++;
+        while (end > start && text.charAt(end - 1) <= ' ') end--;
+
+        int amountEnd = scanAmount(text, start, end);
+        if (amountEnd < 0) return null;
+        int pos = skipWhitespace(text, amountEnd, end);
+        if (pos == end || (text.charAt(pos) != 'g' && text.charAt(pos) != 'G')) return null;
+        pos = skipWhitespace(text, pos + 1, end);
+        if (pos == end) return null;
+        for (int i = pos; i < end; i++) {
+            if (isLineTerminator(text.charAt(i))) return null;
+        }
+
+        String amount = text.substring(start, amountEnd);
+        return new ParsedIngredient(amount, Double.parseDouble(amount), text.substring(pos, end), lineNo);
+    }
+
+    /** @return The end of "digits[.digits]" starting at pos, or -1 if there is no leading digit. */
+    private static int scanAmount(CharSequence text, int pos, int end) {
+        int digitsStart = pos;
+        while (pos < end && isDigit(text.charAt(pos))) pos++;
+        if (pos == digitsStart) return -1;
+        if (pos < end && text.charAt(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(text.charAt(pos))) pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWhitespace(CharSequence text, int pos, int end) {
+        while (pos < end && isWhitespace(text.charAt(pos))) pos++;
+        return pos;
+    }
+
+    private static boolean isBlank(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // The characters matched by \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // The characters not matched by .
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+}
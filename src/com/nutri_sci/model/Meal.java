@@ -1,15 +1,18 @@
 package com.nutri_sci.model;
 
+import java.util.Collections;
 import java.util.Date;
-import java.util.Map;
+import java.util.List;
 
 public class Meal {
     private int mealId;
     private Date date;
     private String mealType;
     private String ingredients;
+    private List<ParsedIngredient> parsedIngredients; // parsed from the text on first use
+    private List<MealIngredient> resolvedIngredients; // null when only the ingredient text is known
     private double estimatedCalories;
-    private Map<String, Double> nutrientBreakdown;
+    private NutrientVector nutrientBreakdown;
     private boolean isSwapped = false;
     private Integer originalMealId = null;
 
@@ -21,11 +24,27 @@ public class Meal {
     public String getMealType() { return mealType; }
     public void setMealType(String mealType) { this.mealType = mealType; }
     public String getIngredients() { return ingredients; }
-    public void setIngredients(String ingredients) { this.ingredients = ingredients; }
+    public void setIngredients(String ingredients) {
+        this.ingredients = ingredients;
+        this.parsedIngredients = null;
+    }
+
+    /** @return The parsed ingredient lines; the text is parsed once and cached until it changes. */
+    public List<ParsedIngredient> getParsedIngredients() {
+        List<ParsedIngredient> parsed = parsedIngredients;
+        if (parsed == null) {
+            parsed = Collections.unmodifiableList(IngredientParser.parse(ingredients));
+            parsedIngredients = parsed;
+        }
+        return parsed;
+    }
+
+    public List<MealIngredient> getResolvedIngredients() { return resolvedIngredients; }
+    public void setResolvedIngredients(List<MealIngredient> resolvedIngredients) { this.resolvedIngredients = resolvedIngredients; }
     public double getEstimatedCalories() { return estimatedCalories; }
     public void setEstimatedCalories(double estimatedCalories) { this.estimatedCalories = estimatedCalories; }
-    public Map<String, Double> getNutrientBreakdown() { return nutrientBreakdown; }
-    public void setNutrientBreakdown(Map<String, Double> nutrientBreakdown) { this.nutrientBreakdown = nutrientBreakdown; }
+    public NutrientVector getNutrientBreakdown() { return nutrientBreakdown; }
+    public void setNutrientBreakdown(NutrientVector nutrientBreakdown) { this.nutrientBreakdown = nutrientBreakdown; }
     public boolean isSwapped() { return isSwapped; }
     public void setSwapped(boolean swapped) { isSwapped = swapped; }
     public Integer getOriginalMealId() { return originalMealId; }
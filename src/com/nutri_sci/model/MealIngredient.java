@@ -0,0 +1,24 @@
+package com.nutri_sci.model;
+
+/**
+ * One resolved ingredient line of a meal: the CNF FoodID and the amount in grams, and the index of the
+ * line in the meal's ingredient text (the LineNo of its MEAL_INGREDIENT row).
+ * Persisted in the MEAL_INGREDIENT table so readers can work with integer keys
+ * instead of re-parsing and re-matching the ingredient text.
+ */
+public class MealIngredient {
+    private final int lineNo;
+    private final int foodId;
+    private final double grams;
+
+    public MealIngredient(int lineNo, int foodId, double grams) {
+        this.lineNo = lineNo;
+        this.foodId = foodId;
+        this.grams = grams;
+    }
+
+    // Getters
+    public int getLineNo() { return lineNo; }
+    public int getFoodId() { return foodId; }
+    public double getGrams() { return grams; }
+}
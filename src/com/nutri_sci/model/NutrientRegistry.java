@@ -0,0 +1,83 @@
+package com.nutri_sci.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The CNF nutrient dictionary (NUTRIENT_NAME), giving every nutrient a dense ordinal so nutrient
+ * amounts can be held in a {@link NutrientVector}. Ordinals follow ascending NutrientID, the same
+ * order {@code NutrientCatalog} uses for its matrix columns. Immutable.
+ */
+public final class NutrientRegistry {
+    // Well-known CNF NutrientIDs.
+    public static final int PROTEIN = 203;
+    public static final int FAT = 204;
+    public static final int CARBOHYDRATE = 205;
+    public static final int ENERGY_KCAL = 208;
+    public static final int MOISTURE = 255;
+    public static final int ENERGY_KJ = 268;
+    public static final int FIBRE = 291;
+
+    private final int[] nutrientIds;
+    private final String[] keys;
+    private final int[] ordinalById; // NutrientID -> ordinal, -1 for unused IDs
+    private final Map<String, Integer> ordinalByKey;
+
+    /**
+     * @param nutrientIds The NutrientIDs, sorted ascending.
+     * @param keys The "NAME (UNIT)" key of each nutrient, e.g. "PROTEIN (g)".
+     */
+    public NutrientRegistry(int[] nutrientIds, String[] keys) {
+        if (nutrientIds.length != keys.length) {
+            throw new IllegalArgumentException("Expected one key per nutrient, got " + keys.length + " for " + nutrientIds.length);
+        }
+        this.nutrientIds = nutrientIds.clone();
+        this.keys = keys.clone();
+        int maxId = -1;
+        for (int i = 0; i < nutrientIds.length; i++) {
+            if (i > 0 && nutrientIds[i] <= nutrientIds[i - 1]) {
+                throw new IllegalArgumentException("NutrientIDs must be sorted and unique");
+            }
+            maxId = Math.max(maxId, nutrientIds[i]);
+        }
+        // CNF NutrientIDs are small (below 1000), so a direct table is cheaper than hashing.
+        this.ordinalById = new int[maxId + 1];
+        Arrays.fill(ordinalById, -1);
+        this.ordinalByKey = new HashMap<>(keys.length * 2);
+        for (int n = 0; n < nutrientIds.length; n++) {
+            ordinalById[nutrientIds[n]] = n;
+            ordinalByKey.put(keys[n], n);
+        }
+    }
+
+    /** @return the number of nutrients, which is the length of every vector over this registry. */
+    public int size() {
+        return nutrientIds.length;
+    }
+
+    /** @return the ordinal of a NutrientID, or -1 if the nutrient is unknown. */
+    public int ordinalOf(int nutrientId) {
+        return nutrientId >= 0 && nutrientId < ordinalById.length ? ordinalById[nutrientId] : -1;
+    }
+
+    /** @return the ordinal of a "NAME (UNIT)" key, or -1 if no nutrient has that key. */
+    public int ordinalOfKey(String key) {
+        Integer ordinal = ordinalByKey.get(key);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    public int getNutrientId(int ordinal) {
+        return nutrientIds[ordinal];
+    }
+
+    /** @return the display key of a nutrient, e.g. "PROTEIN (g)". */
+    public String getKey(int ordinal) {
+        return keys[ordinal];
+    }
+
+    /** @return true if both registries assign the same ordinals to the same nutrients. */
+    public boolean isCompatibleWith(NutrientRegistry other) {
+        return this == other || (Arrays.equals(nutrientIds, other.nutrientIds) && Arrays.equals(keys, other.keys));
+    }
+}
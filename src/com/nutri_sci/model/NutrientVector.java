@@ -0,0 +1,158 @@
+package com.nutri_sci.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Nutrient amounts indexed by {@link NutrientRegistry} ordinal, e.g. a food's profile per 100g or a
+ * meal's totals. Nutrients without a value are 0. The arithmetic works in place on the backing
+ * array, so summing many ingredients allocates nothing; use {@link #copy()} to keep an operand.
+ * Not thread-safe.
+ */
+public final class NutrientVector {
+    private final NutrientRegistry registry;
+    private final double[] values;
+
+    /** Creates a vector with every nutrient at 0. */
+    public NutrientVector(NutrientRegistry registry) {
+        this.registry = registry;
+        this.values = new double[registry.size()];
+    }
+
+    private NutrientVector(NutrientRegistry registry, double[] values) {
+        this.registry = registry;
+        this.values = values;
+    }
+
+    /**
+     * @return a vector backed by the given array (not copied), e.g. totals accumulated with {@link #addTo(double[])}.
+     */
+    public static NutrientVector wrap(NutrientRegistry registry, double[] values) {
+        if (values.length != registry.size()) {
+            throw new IllegalArgumentException("Expected " + registry.size() + " values, got " + values.length);
+        }
+        return new NutrientVector(registry, values);
+    }
+
+    public NutrientRegistry getRegistry() {
+        return registry;
+    }
+
+    // --- Lookups ---
+
+    /** @return the amount of a nutrient by NutrientID, or 0 if it is unknown or has no value. */
+    public double get(int nutrientId) {
+        int ordinal = registry.ordinalOf(nutrientId);
+        return ordinal >= 0 ? values[ordinal] : 0.0;
+    }
+
+    public double getAt(int ordinal) {
+        return values[ordinal];
+    }
+
+    public void set(int nutrientId, double value) {
+        int ordinal = registry.ordinalOf(nutrientId);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Unknown NutrientID " + nutrientId);
+        }
+        values[ordinal] = value;
+    }
+
+    public void setAt(int ordinal, double value) {
+        values[ordinal] = value;
+    }
+
+    /** @return true if every nutrient is 0, e.g. for a meal whose foods are all unknown. */
+    public boolean isZero() {
+        for (double value : values) {
+            if (value != 0.0) return false;
+        }
+        return true;
+    }
+
+    // --- In-place arithmetic ---
+
+    /** Adds the other vector to this one. @return this vector. */
+    public NutrientVector add(NutrientVector other) {
+        double[] otherValues = valuesOf(other);
+        for (int i = 0; i < values.length; i++) {
+            values[i] += otherValues[i];
+        }
+        return this;
+    }
+
+    /** Adds {@code factor * other} to this vector, e.g. a profile per 100g scaled to an ingredient's grams. @return this vector. */
+    public NutrientVector addScaled(NutrientVector other, double factor) {
+        double[] otherValues = valuesOf(other);
+        for (int i = 0; i < values.length; i++) {
+            values[i] += otherValues[i] * factor;
+        }
+        return this;
+    }
+
+    /** Subtracts the other vector from this one, leaving the difference here. @return this vector. */
+    public NutrientVector subtract(NutrientVector other) {
+        double[] otherValues = valuesOf(other);
+        for (int i = 0; i < values.length; i++) {
+            values[i] -= otherValues[i];
+        }
+        return this;
+    }
+
+    /** Adds this vector to a plain accumulator indexed by the same ordinals, e.g. a per-thread running total. */
+    public void addTo(double[] totals) {
+        if (totals.length != values.length) {
+            throw new IllegalArgumentException("Expected " + values.length + " totals, got " + totals.length);
+        }
+        for (int i = 0; i < values.length; i++) {
+            totals[i] += values[i];
+        }
+    }
+
+    /** Multiplies every amount by the factor. @return this vector. */
+    public NutrientVector scale(double factor) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] *= factor;
+        }
+        return this;
+    }
+
+    /** Sets every amount to 0 so the vector can be reused as an accumulator. @return this vector. */
+    public NutrientVector clear() {
+        Arrays.fill(values, 0.0);
+        return this;
+    }
+
+    public NutrientVector copy() {
+        return new NutrientVector(registry, values.clone());
+    }
+
+    private double[] valuesOf(NutrientVector other) {
+        if (other.registry != registry && !registry.isCompatibleWith(other.registry)) {
+            throw new IllegalArgumentException("Nutrient vectors use different nutrient registries");
+        }
+        return other.values;
+    }
+
+    // --- UI boundary ---
+
+    /**
+     * @return the non-zero amounts keyed by "NAME (UNIT)", in NutrientID order. Meant for display only;
+     * calculations should stay on the vector.
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (int n = 0; n < values.length; n++) {
+            if (values[n] != 0.0) {
+                map.put(registry.getKey(n), values[n]);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
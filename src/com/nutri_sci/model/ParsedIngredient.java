@@ -0,0 +1,37 @@
+package com.nutri_sci.model;
+
+/**
+ * One "[amount]g [description]" line of a meal's ingredient text, as parsed by {@link IngredientParser}.
+ * Unlike {@link MealIngredient} the food is only known by its description; the amount keeps the
+ * text the user wrote so the line can be rebuilt exactly, and the line index ties it to its MEAL_INGREDIENT row.
+ */
+public final class ParsedIngredient {
+    private final String amount;
+    private final double grams;
+    private final String description;
+    private final int lineNo;
+
+    /** @param lineNo The index of the line in the ingredient text, counting blank and malformed lines. */
+    public ParsedIngredient(String amount, double grams, String description, int lineNo) {
+        this.amount = amount;
+        this.grams = grams;
+        this.description = description;
+        this.lineNo = lineNo;
+    }
+
+    // Getters
+    public String getAmount() { return amount; }
+    public double getGrams() { return grams; }
+    public String getDescription() { return description; }
+    public int getLineNo() { return lineNo; }
+
+    /** @return This line with another food and the same amount, e.g. "150g Apple, raw" to "150g Pear, raw". */
+    public String withDescription(String newDescription) {
+        return amount + "g " + newDescription;
+    }
+
+    @Override
+    public String toString() {
+        return withDescription(description);
+    }
+}
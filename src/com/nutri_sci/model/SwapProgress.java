@@ -0,0 +1,39 @@
+package com.nutri_sci.model;
+
+/**
+ * A snapshot of a swap being applied over time: how many meals in the range were processed,
+ * how many contained the swapped item and how many swapped meals have been committed so far.
+ */
+public class SwapProgress {
+    private final int mealsProcessed;
+    private final int totalMeals;
+    private final int mealsMatched;
+    private final int mealsSaved;
+    private final long elapsedMillis;
+    private final boolean saveFailed;
+
+    public SwapProgress(int mealsProcessed, int totalMeals, int mealsMatched, int mealsSaved, long elapsedMillis, boolean saveFailed) {
+        this.mealsProcessed = mealsProcessed;
+        this.totalMeals = totalMeals;
+        this.mealsMatched = mealsMatched;
+        this.mealsSaved = mealsSaved;
+        this.elapsedMillis = elapsedMillis;
+        this.saveFailed = saveFailed;
+    }
+
+    // Getters
+    public int getMealsProcessed() { return mealsProcessed; }
+    public int getTotalMeals() { return totalMeals; }
+    public int getMealsMatched() { return mealsMatched; }
+    public int getMealsSaved() { return mealsSaved; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public boolean isSaveFailed() { return saveFailed; }
+
+    /**
+     * @return The estimated time left, extrapolated from the rate so far, or -1 before the first meals are processed.
+     */
+    public long getEtaMillis() {
+        if (mealsProcessed == 0) return -1;
+        return elapsedMillis * (totalMeals - mealsProcessed) / mealsProcessed;
+    }
+}
@@ -0,0 +1,166 @@
+package com.nutri_sci.service;
+
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Fork/join aggregation over long meal lists, e.g. a year of logged meals.
+ * Lists are split in halves down to blocks of {@link #BLOCK_SIZE} items; each block is summed into its own
+ * primitive accumulator and the accumulators are merged pairwise on the way back up. The split depends
+ * only on the list size, never on the number of threads, so every pool (including {@link #sequential()})
+ * adds the same numbers in the same order and produces bit-identical results.
+ * Implements the Singleton pattern for the shared instance on the common pool.
+ */
+public class MealAggregator {
+    private static MealAggregator instance;
+
+    // Items handled by one task without splitting further.
+    static final int BLOCK_SIZE = 256;
+
+    private final ForkJoinPool pool; // null runs every task on the calling thread
+
+    /** Adds one item to a block's running totals. */
+    public interface Accumulator<T> {
+        void accumulate(T item, double[] totals);
+    }
+
+    public MealAggregator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public static synchronized MealAggregator getInstance() {
+        if (instance == null) {
+            instance = new MealAggregator(ForkJoinPool.commonPool());
+        }
+        return instance;
+    }
+
+    /** @return an aggregator that runs on the calling thread; the reference for the parallel results. */
+    public static MealAggregator sequential() {
+        return new MealAggregator(null);
+    }
+
+    /**
+     * Sums the contributions of every item into {@code width} totals.
+     * @return The totals; all 0 for an empty list.
+     */
+    public <T> double[] sum(List<T> items, int width, Accumulator<T> accumulator) {
+        SumTask<T> task = new SumTask<>(items, 0, items.size(), width, accumulator);
+        return runsHere(items.size()) ? task.compute() : pool.invoke(task);
+    }
+
+    /** @return the sum of the vectors, all 0 for an empty list. */
+    public NutrientVector sumNutrients(NutrientRegistry registry, List<NutrientVector> vectors) {
+        return NutrientVector.wrap(registry, sum(vectors, registry.size(), NutrientVector::addTo));
+    }
+
+    /**
+     * Applies the function to every item, in parallel for long lists. The function must not depend on
+     * the order of the calls, e.g. a pure calculation over data that is no longer modified.
+     * @return The results in the order of the input.
+     */
+    public <T, R> List<R> map(List<T> items, Function<T, R> function) {
+        Object[] results = new Object[items.size()];
+        MapTask<T, R> task = new MapTask<>(items, 0, items.size(), function, results);
+        if (runsHere(items.size())) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        List<R> list = new ArrayList<>(items.size());
+        for (Object result : results) {
+            @SuppressWarnings("unchecked")
+            R typed = (R) result;
+            list.add(typed);
+        }
+        return list;
+    }
+
+    // Short lists are a single block, which is cheaper to compute than to hand to the pool.
+    private boolean runsHere(int size) {
+        return pool == null || size <= BLOCK_SIZE;
+    }
+
+    // --- Tasks ---
+
+    private static final class SumTask<T> extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int width;
+        private final Accumulator<T> accumulator;
+
+        SumTask(List<T> items, int from, int to, int width, Accumulator<T> accumulator) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.width = width;
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from <= BLOCK_SIZE) {
+                double[] totals = new double[width];
+                for (int i = from; i < to; i++) {
+                    accumulator.accumulate(items.get(i), totals);
+                }
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask<T> left = new SumTask<>(items, from, middle, width, accumulator);
+            SumTask<T> right = new SumTask<>(items, middle, to, width, accumulator);
+            right.fork();
+            double[] totals = left.compute();
+            double[] rightTotals = right.join();
+            for (int i = 0; i < width; i++) {
+                totals[i] += rightTotals[i];
+            }
+            return totals;
+        }
+    }
+
+    private static final class MapTask<T, R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final Function<T, R> function;
+        private final Object[] results;
+
+        MapTask(List<T> items, int from, int to, Function<T, R> function, Object[] results) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.function = function;
+            this.results = results;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    results[i] = function.apply(items.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapTask<>(items, from, middle, function, results), new MapTask<>(items, middle, to, function, results));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return pool == null ? "sequential" : "parallelism " + pool.getParallelism();
+    }
+}
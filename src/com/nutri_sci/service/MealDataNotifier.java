@@ -1,7 +1,12 @@
 package com.nutri_sci.service;
 
+import com.nutri_sci.model.Meal;
+
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Implements the Subject part of the Observer pattern using PropertyChangeSupport.
@@ -33,10 +38,19 @@ public class MealDataNotifier {
 
     /**
      * Notifies all registered listeners that a change has occurred.
+     * Prefer {@link #notifyMealsSaved(List)} when the changed meals are known.
      */
     public void notifyMealDataChanged() {
         // The property name "mealData" can be used by listeners to identify the change.
         // Old and new values are null as we are just signaling a generic change.
         support.firePropertyChange("mealData", null, null);
     }
+
+    /**
+     * Notifies all registered listeners that these meals were saved. The event's new value is the list of
+     * meals, so listeners can update just the affected days instead of reloading everything.
+     */
+    public void notifyMealsSaved(List<Meal> meals) {
+        support.firePropertyChange("mealData", null, Collections.unmodifiableList(new ArrayList<>(meals)));
+    }
 }
\ No newline at end of file
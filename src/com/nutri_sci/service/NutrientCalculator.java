@@ -1,54 +1,209 @@
 package com.nutri_sci.service;
 
-import com.nutri_sci.database.DBManager;
-import java.util.HashMap;
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.model.IngredientParser;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.function.Function;
 
 public class NutrientCalculator {
 
-    private final DBManager dbManager;
-    private final Pattern ingredientPattern = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
+    private final FoodCatalogRepository foodCatalog;
+    private final MealRepository mealRepository;
+    private final NutrientMemo memo;
+    private final MealAggregator aggregator;
 
     public NutrientCalculator() {
-        this.dbManager = DBManager.getInstance();
+        this(Repositories.getFoodCatalog(), Repositories.getMeals(), NutrientMemo.getInstance(), MealAggregator.getInstance());
     }
 
-    public Map<String, Double> calculateNutrientsForMeal(String ingredients) {
-        Map<String, Double> totalNutrients = new HashMap<>();
-        if (ingredients == null || ingredients.trim().isEmpty()) {
+    public NutrientCalculator(FoodCatalogRepository foodCatalog, MealRepository mealRepository,
+                              NutrientMemo memo, MealAggregator aggregator) {
+        this.foodCatalog = foodCatalog;
+        this.mealRepository = mealRepository;
+        this.memo = memo;
+        this.aggregator = aggregator;
+    }
+
+    public NutrientVector calculateNutrientsForMeal(String ingredients) {
+        return calculateNutrientsForMeals(Collections.singletonList(ingredients)).get(0);
+    }
+
+    /**
+     * Calculates the nutrient totals of several meals at once.
+     * The profiles of all distinct foods across every meal are fetched in one batch,
+     * so the number of lookups grows with the number of distinct foods, not ingredient lines.
+     * Meals with the same ingredients as a recent calculation are answered from the {@link NutrientMemo}.
+     *
+     * @param mealIngredients The ingredient text of each meal.
+     * @return The nutrient totals of each meal, in the same order as the input.
+     */
+    public List<NutrientVector> calculateNutrientsForMeals(List<String> mealIngredients) {
+        List<List<ParsedIngredient>> parsedMeals = new ArrayList<>();
+        for (String ingredients : mealIngredients) {
+            parsedMeals.add(IngredientParser.parse(ingredients, line ->
+                    System.err.println("Could not parse ingredient line: '" + line + "'. Expected format: '[amount]g [description]'")));
+        }
+        int cnfVersion = foodCatalog.getCnfVersion();
+        return memoized(parsedMeals, ingredients -> NutrientMemo.keyOfParsed(ingredients, cnfVersion), this::calculateParsedNutrients);
+    }
+
+    private List<NutrientVector> calculateParsedNutrients(List<List<ParsedIngredient>> parsedMeals) {
+        Set<String> descriptions = new HashSet<>();
+        parsedMeals.forEach(lines -> lines.forEach(line -> descriptions.add(line.getDescription())));
+
+        Map<String, NutrientVector> profiles = descriptions.isEmpty() ? Collections.emptyMap() : foodCatalog.getComprehensiveNutrientProfiles(descriptions);
+        NutrientRegistry registry = foodCatalog.getNutrientRegistry();
+
+        // The profiles are only read from here on, so long lists of meals are summed in parallel.
+        return aggregator.map(parsedMeals, lines -> {
+            NutrientVector totalNutrients = new NutrientVector(registry);
+            for (ParsedIngredient line : lines) {
+                NutrientVector nutrientsPer100g = profiles.get(line.getDescription());
+                if (nutrientsPer100g != null) {
+                    totalNutrients.addScaled(nutrientsPer100g, line.getGrams() / 100.0);
+                }
+            }
             return totalNutrients;
+        });
+    }
+
+    public NutrientVector calculateNutrientsForMeal(Meal meal) {
+        return calculateMealNutrients(Collections.singletonList(meal)).get(0);
+    }
+
+    /**
+     * Calculates the nutrient totals of several logged meals at once.
+     * Meals with resolved ingredients are looked up by FoodID; the rest fall back to their parsed ingredient text.
+     * Meals with the same ingredients as a recent calculation are answered from the {@link NutrientMemo}.
+     *
+     * @return The nutrient totals of each meal, in the same order as the input.
+     */
+    public List<NutrientVector> calculateMealNutrients(List<Meal> meals) {
+        int cnfVersion = foodCatalog.getCnfVersion();
+        return memoized(meals, meal -> meal.getResolvedIngredients() != null
+                ? NutrientMemo.keyOfResolved(meal.getResolvedIngredients(), cnfVersion)
+                : NutrientMemo.keyOfParsed(meal.getParsedIngredients(), cnfVersion), this::computeMealNutrients);
+    }
+
+    private List<NutrientVector> computeMealNutrients(List<Meal> meals) {
+        Set<Integer> foodIds = new HashSet<>();
+        List<List<ParsedIngredient>> unresolvedIngredients = new ArrayList<>();
+        for (Meal meal : meals) {
+            if (meal.getResolvedIngredients() != null) {
+                meal.getResolvedIngredients().forEach(ingredient -> foodIds.add(ingredient.getFoodId()));
+            } else {
+                unresolvedIngredients.add(meal.getParsedIngredients());
+            }
         }
 
-        String[] ingredientLines = ingredients.split("\\n");
+        Map<Integer, NutrientVector> profiles = foodIds.isEmpty() ? Collections.emptyMap() : foodCatalog.getComprehensiveNutrientProfilesByIds(foodIds);
+        List<NutrientVector> textResults = calculateParsedNutrients(unresolvedIngredients);
+        NutrientRegistry registry = foodCatalog.getNutrientRegistry();
 
-        for (String line : ingredientLines) {
-            if (line.trim().isEmpty()) {
-                continue;
+        List<NutrientVector> resolvedResults = aggregator.map(meals, meal -> {
+            if (meal.getResolvedIngredients() == null) return null;
+            NutrientVector totalNutrients = new NutrientVector(registry);
+            for (MealIngredient ingredient : meal.getResolvedIngredients()) {
+                NutrientVector nutrientsPer100g = profiles.get(ingredient.getFoodId());
+                if (nutrientsPer100g != null) {
+                    totalNutrients.addScaled(nutrientsPer100g, ingredient.getGrams() / 100.0);
+                }
             }
+            return totalNutrients;
+        });
 
-            Matcher matcher = ingredientPattern.matcher(line.trim());
+        List<NutrientVector> results = new ArrayList<>();
+        int nextTextResult = 0;
+        for (NutrientVector resolved : resolvedResults) {
+            results.add(resolved != null ? resolved : textResults.get(nextTextResult++));
+        }
+        return results;
+    }
 
-            if (matcher.matches()) {
-                try {
-                    double grams = Double.parseDouble(matcher.group(1));
-                    String description = matcher.group(2).trim();
+    /**
+     * Answers each meal from the memo where possible and calculates the rest in one batch,
+     * once per distinct key, caching the results. Every meal gets its own copy of the totals.
+     */
+    private <T> List<NutrientVector> memoized(List<T> meals, Function<T, NutrientMemo.Key> keyOf,
+                                              Function<List<T>, List<NutrientVector>> calculate) {
+        NutrientRegistry registry = foodCatalog.getNutrientRegistry();
+        NutrientVector[] results = new NutrientVector[meals.size()];
+        Map<NutrientMemo.Key, List<Integer>> missing = new LinkedHashMap<>();
+        List<T> toCalculate = new ArrayList<>();
+        for (int i = 0; i < meals.size(); i++) {
+            NutrientMemo.Key key = keyOf.apply(meals.get(i));
+            List<Integer> waiting = missing.get(key);
+            if (waiting != null) {
+                waiting.add(i);
+                continue;
+            }
+            results[i] = memo.get(key, registry);
+            if (results[i] == null) {
+                missing.put(key, new ArrayList<>(Collections.singletonList(i)));
+                toCalculate.add(meals.get(i));
+            }
+        }
 
-                    // Use the comprehensive profile for detailed view
-                    Map<String, Double> nutrientsPer100g = dbManager.getComprehensiveNutrientProfile(description);
+        if (!toCalculate.isEmpty()) {
+            List<NutrientVector> calculated = calculate.apply(toCalculate);
+            int next = 0;
+            for (Map.Entry<NutrientMemo.Key, List<Integer>> entry : missing.entrySet()) {
+                NutrientVector nutrients = calculated.get(next++);
+                memo.put(entry.getKey(), nutrients);
+                List<Integer> indexes = entry.getValue();
+                results[indexes.get(0)] = nutrients;
+                for (int j = 1; j < indexes.size(); j++) {
+                    results[indexes.get(j)] = nutrients.copy();
+                }
+            }
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
 
-                    for (Map.Entry<String, Double> entry : nutrientsPer100g.entrySet()) {
-                        double ingredientNutrientValue = (entry.getValue() / 100.0) * grams;
-                        totalNutrients.merge(entry.getKey(), ingredientNutrientValue, Double::sum);
-                    }
-                } catch (NumberFormatException e) {
-                    System.err.println("Could not parse weight from line: " + line);
+    /**
+     * Returns the nutrient totals of logged meals, using the totals stored with each meal where they exist.
+     * Meals without current totals (never stored, or stored before the CNF data changed) are calculated,
+     * and the results are written back so the next read can load them directly.
+     *
+     * @return The nutrient totals of each meal, in the same order as the input.
+     */
+    public List<NutrientVector> getMealNutrients(List<Meal> meals) {
+        List<Meal> stale = new ArrayList<>();
+        for (Meal meal : meals) {
+            if (meal.getNutrientBreakdown() == null) {
+                stale.add(meal);
+            }
+        }
+        if (!stale.isEmpty()) {
+            List<NutrientVector> calculated = calculateMealNutrients(stale);
+            List<Meal> saved = new ArrayList<>();
+            for (int i = 0; i < stale.size(); i++) {
+                stale.get(i).setNutrientBreakdown(calculated.get(i));
+                if (stale.get(i).getMealId() > 0) {
+                    saved.add(stale.get(i));
                 }
-            } else {
-                System.err.println("Could not parse ingredient line: '" + line + "'. Expected format: '[amount]g [description]'");
+            }
+            if (!saved.isEmpty()) {
+                mealRepository.saveMealNutrients(saved);
             }
         }
-        return totalNutrients;
+
+        List<NutrientVector> results = new ArrayList<>();
+        meals.forEach(meal -> results.add(meal.getNutrientBreakdown()));
+        return results;
     }
-}
\ No newline at end of file
+}
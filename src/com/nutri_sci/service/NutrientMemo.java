@@ -0,0 +1,160 @@
+package com.nutri_sci.service;
+
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded LRU cache of calculated meal nutrient totals, shared by every {@link NutrientCalculator}.
+ * Entries are keyed by the meal's canonical ingredient list (order-independent, duplicate foods summed)
+ * and the CNF version the totals were calculated against, so a CNF reload never serves stale totals;
+ * the old entries simply age out. Implements the Singleton pattern; all methods are thread-safe.
+ */
+public class NutrientMemo {
+    private static NutrientMemo instance;
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, NutrientVector> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** @param maxEntries The cache size; 0 disables caching, e.g. to measure uncached calculations. */
+    public NutrientMemo(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, NutrientVector>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, NutrientVector> eldest) {
+                if (size() > NutrientMemo.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static synchronized NutrientMemo getInstance() {
+        if (instance == null) {
+            instance = new NutrientMemo(DatabaseConfig.getInstance().getNutrientMemoSize());
+        }
+        return instance;
+    }
+
+    // --- Keys ---
+
+    /**
+     * Identifies a meal's ingredients independently of line order, case and how a food's amount is split
+     * across lines, together with the CNF version.
+     */
+    static final class Key {
+        private final int cnfVersion;
+        private final String ingredients;
+
+        private Key(int cnfVersion, String ingredients) {
+            this.cnfVersion = cnfVersion;
+            this.ingredients = ingredients;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return cnfVersion == other.cnfVersion && ingredients.equals(other.ingredients);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * cnfVersion + ingredients.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "v" + cnfVersion + " " + ingredients;
+        }
+    }
+
+    /** @return the key of a meal whose ingredients were resolved to FoodIDs. */
+    static Key keyOfResolved(List<MealIngredient> ingredients, int cnfVersion) {
+        Map<Integer, Double> grams = new TreeMap<>();
+        ingredients.forEach(ingredient -> grams.merge(ingredient.getFoodId(), ingredient.getGrams(), Double::sum));
+        StringBuilder key = new StringBuilder("F");
+        grams.forEach((foodId, total) -> key.append(foodId).append(':').append(total).append(';'));
+        return new Key(cnfVersion, key.toString());
+    }
+
+    /** @return the key of a meal known only by its ingredient text. Descriptions match foods case-insensitively. */
+    static Key keyOfParsed(List<ParsedIngredient> ingredients, int cnfVersion) {
+        Map<String, Double> grams = new TreeMap<>();
+        ingredients.forEach(ingredient -> grams.merge(ingredient.getDescription().toLowerCase(Locale.ROOT), ingredient.getGrams(), Double::sum));
+        StringBuilder key = new StringBuilder("T");
+        // Descriptions may contain ':' and ';', so each is prefixed with its length.
+        grams.forEach((description, total) -> key.append(description.length()).append('#').append(description)
+                .append(':').append(total).append(';'));
+        return new Key(cnfVersion, key.toString());
+    }
+
+    // --- Cache operations ---
+
+    /**
+     * @return a copy of the cached totals, or null if the key is absent or was cached over another
+     * nutrient registry (e.g. after switching repository backends).
+     */
+    synchronized NutrientVector get(Key key, NutrientRegistry registry) {
+        NutrientVector cached = entries.get(key);
+        if (cached == null || !cached.getRegistry().isCompatibleWith(registry)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return cached.copy();
+    }
+
+    /** Caches a copy of the totals, evicting the least recently used entry when the cache is full. */
+    synchronized void put(Key key, NutrientVector nutrients) {
+        if (maxEntries <= 0) return;
+        entries.put(key, nutrients.copy());
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    // --- Statistics ---
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("%d/%d entries, %d hits, %d misses (%.0f%% hit rate), %d evictions",
+                entries.size(), maxEntries, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+}
@@ -0,0 +1,305 @@
+package com.nutri_sci.service;
+
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One user's meal log as a day x nutrient table, stored column by column (one double[] per nutrient,
+ * indexed by day) so a chart reading one nutrient walks a single contiguous array.
+ * Two tables are kept: the meals as eaten (replaced meals left out) and as first logged (swaps left out).
+ * The eaten table also has a prefix sum per nutrient, so the total of any date range is one subtraction
+ * per nutrient however long the range is. Not thread-safe; {@link NutrientTimeSeriesStore} guards it.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *   int magic "NTSS", int format, int userId, int cnfVersion, int nutrientCount, int[nutrientCount] nutrientIds
+ *   long firstDay (epoch day), int days, int maxMealId
+ *   int[days] eatenMealCounts, int[days] swapCounts
+ *   double[nutrientCount * days] eaten, then double[nutrientCount * days] logged, one column per nutrient
+ * </pre>
+ * Prefix sums are not stored; they are rebuilt on reading.
+ */
+final class NutrientTimeSeries {
+    private static final int MAGIC = 0x4E545353; // "NTSS"
+    private static final int FORMAT = 2;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final int userId;
+    private final int cnfVersion;
+    private final NutrientRegistry registry;
+
+    private long firstDay;
+    private int days;
+    private int maxMealId;
+    private int[] eatenMealCounts = new int[0];
+    private int[] swapCounts = new int[0];
+    private double[][] eaten;   // [nutrient][day]
+    private double[][] logged;  // [nutrient][day]
+    private double[][] prefix;  // [nutrient][day + 1], sums of eaten over the days before
+
+    NutrientTimeSeries(int userId, int cnfVersion, NutrientRegistry registry) {
+        this.userId = userId;
+        this.cnfVersion = cnfVersion;
+        this.registry = registry;
+        int width = registry.size();
+        this.eaten = new double[width][0];
+        this.logged = new double[width][0];
+        this.prefix = new double[width][1];
+    }
+
+    // --- Days ---
+
+    static long epochDay(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZONE).toLocalDate().toEpochDay();
+    }
+
+    static Date startOfDay(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant());
+    }
+
+    static Date endOfDay(long epochDay) {
+        return new Date(startOfDay(epochDay + 1).getTime() - 1);
+    }
+
+    // --- Updates ---
+
+    /**
+     * Replaces the days from {@code fromDay} to {@code toDay} (inclusive) with the given meals, which must be
+     * every meal the user logged on those days, replaced meals included, with their nutrient totals.
+     * The table grows to cover the days if needed and the prefix sums are updated from {@code fromDay} on.
+     */
+    void replaceDays(long fromDay, long toDay, List<Meal> meals, List<NutrientVector> nutrients) {
+        for (Meal meal : meals) {
+            long day = epochDay(meal.getDate());
+            fromDay = Math.min(fromDay, day);
+            toDay = Math.max(toDay, day);
+        }
+        cover(fromDay, toDay);
+        int from = (int) (fromDay - firstDay);
+        int to = (int) (toDay - firstDay);
+        for (int n = 0; n < eaten.length; n++) {
+            Arrays.fill(eaten[n], from, to + 1, 0.0);
+            Arrays.fill(logged[n], from, to + 1, 0.0);
+        }
+        Arrays.fill(eatenMealCounts, from, to + 1, 0);
+        Arrays.fill(swapCounts, from, to + 1, 0);
+
+        // A meal is replaced when a swap points back to it; swaps keep their original's date.
+        Set<Integer> replacedMealIds = new HashSet<>();
+        for (Meal meal : meals) {
+            if (meal.isSwapped() && meal.getOriginalMealId() != null) {
+                replacedMealIds.add(meal.getOriginalMealId());
+            }
+        }
+        for (int i = 0; i < meals.size(); i++) {
+            Meal meal = meals.get(i);
+            NutrientVector amounts = nutrients.get(i);
+            int day = (int) (epochDay(meal.getDate()) - firstDay);
+            maxMealId = Math.max(maxMealId, meal.getMealId());
+            if (meal.isSwapped()) {
+                swapCounts[day]++;
+            } else {
+                for (int n = 0; n < logged.length; n++) logged[n][day] += amounts.getAt(n);
+            }
+            if (!replacedMealIds.contains(meal.getMealId())) {
+                eatenMealCounts[day]++;
+                for (int n = 0; n < eaten.length; n++) eaten[n][day] += amounts.getAt(n);
+            }
+        }
+        updatePrefixSums(from);
+    }
+
+    /** Grows the table so it covers both days, keeping the existing rows. */
+    private void cover(long fromDay, long toDay) {
+        if (days > 0 && fromDay >= firstDay && toDay < firstDay + days) return;
+        long newFirstDay = days == 0 ? fromDay : Math.min(firstDay, fromDay);
+        long newLastDay = days == 0 ? toDay : Math.max(firstDay + days - 1, toDay);
+        int newDays = (int) (newLastDay - newFirstDay + 1);
+        int offset = days == 0 ? 0 : (int) (firstDay - newFirstDay);
+        eatenMealCounts = grow(eatenMealCounts, newDays, offset);
+        swapCounts = grow(swapCounts, newDays, offset);
+        for (int n = 0; n < eaten.length; n++) {
+            eaten[n] = grow(eaten[n], newDays, offset);
+            logged[n] = grow(logged[n], newDays, offset);
+            prefix[n] = new double[newDays + 1];
+        }
+        firstDay = newFirstDay;
+        days = newDays;
+        updatePrefixSums(0);
+    }
+
+    private int[] grow(int[] values, int length, int offset) {
+        int[] grown = new int[length];
+        System.arraycopy(values, 0, grown, offset, days);
+        return grown;
+    }
+
+    private double[] grow(double[] values, int length, int offset) {
+        double[] grown = new double[length];
+        System.arraycopy(values, 0, grown, offset, days);
+        return grown;
+    }
+
+    private void updatePrefixSums(int fromIndex) {
+        for (int n = 0; n < eaten.length; n++) {
+            double[] column = eaten[n];
+            double[] sums = prefix[n];
+            for (int d = fromIndex; d < days; d++) {
+                sums[d + 1] = sums[d] + column[d];
+            }
+        }
+    }
+
+    // --- Queries ---
+
+    /** @return the totals of the meals eaten from {@code fromDay} to {@code toDay} (inclusive), all 0 if none. */
+    NutrientVector sum(long fromDay, long toDay) {
+        NutrientVector totals = new NutrientVector(registry);
+        int from = (int) Math.max(fromDay - firstDay, 0);
+        int to = (int) Math.min(toDay - firstDay, days - 1);
+        if (from > to) return totals;
+        for (int n = 0; n < prefix.length; n++) {
+            totals.setAt(n, prefix[n][to + 1] - prefix[n][from]);
+        }
+        return totals;
+    }
+
+    /** @return the amount of a nutrient eaten on the day, after swaps. */
+    double getEaten(int ordinal, long day) {
+        return contains(day) ? eaten[ordinal][(int) (day - firstDay)] : 0.0;
+    }
+
+    /** @return the amount of a nutrient on the day as first logged, before swaps. */
+    double getLogged(int ordinal, long day) {
+        return contains(day) ? logged[ordinal][(int) (day - firstDay)] : 0.0;
+    }
+
+    int getSwapCount(long day) {
+        return contains(day) ? swapCounts[(int) (day - firstDay)] : 0;
+    }
+
+    long getFirstDay() {
+        return firstDay;
+    }
+
+    /** @return the last day the table covers, before {@link #getFirstDay()} if it covers none. */
+    long getLastDay() {
+        return firstDay + days - 1;
+    }
+
+    private boolean contains(long day) {
+        return day >= firstDay && day < firstDay + days;
+    }
+
+    /** @return true if the table was built from the given CNF data and can still be used. */
+    boolean isCurrent(int cnfVersion, NutrientRegistry registry) {
+        return this.cnfVersion == cnfVersion && this.registry.isCompatibleWith(registry);
+    }
+
+    /** @return the number of meals eaten, which matches the repository's count of meals that were not replaced. */
+    int getEatenMealCount() {
+        int count = 0;
+        for (int value : eatenMealCounts) count += value;
+        return count;
+    }
+
+    /** @return the highest MealID in the table, replaced meals included, or 0 if nothing was logged. */
+    int getMaxMealId() {
+        return maxMealId;
+    }
+
+    // --- Persistence ---
+
+    /** Writes the table to a temporary file next to the target and moves it into place. */
+    void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "nutrient-series-", ".tmp");
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(userId);
+            out.writeInt(cnfVersion);
+            out.writeInt(registry.size());
+            for (int n = 0; n < registry.size(); n++) out.writeInt(registry.getNutrientId(n));
+            out.writeLong(firstDay);
+            out.writeInt(days);
+            out.writeInt(maxMealId);
+            for (int d = 0; d < days; d++) out.writeInt(eatenMealCounts[d]);
+            for (int d = 0; d < days; d++) out.writeInt(swapCounts[d]);
+            for (double[] column : eaten) {
+                for (int d = 0; d < days; d++) out.writeDouble(column[d]);
+            }
+            for (double[] column : logged) {
+                for (int d = 0; d < days; d++) out.writeDouble(column[d]);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the user's table, or null if the file is missing or was written for another user,
+     * CNF version or nutrient registry.
+     */
+    static NutrientTimeSeries read(Path path, int userId, int cnfVersion, NutrientRegistry registry) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT) return null;
+            if (in.readInt() != userId || in.readInt() != cnfVersion) return null;
+            int width = in.readInt();
+            if (width != registry.size()) return null;
+            for (int n = 0; n < width; n++) {
+                if (in.readInt() != registry.getNutrientId(n)) return null;
+            }
+
+            NutrientTimeSeries series = new NutrientTimeSeries(userId, cnfVersion, registry);
+            series.firstDay = in.readLong();
+            series.days = in.readInt();
+            series.maxMealId = in.readInt();
+            series.eatenMealCounts = readInts(in, series.days);
+            series.swapCounts = readInts(in, series.days);
+            for (int n = 0; n < width; n++) series.eaten[n] = readDoubles(in, series.days);
+            for (int n = 0; n < width; n++) series.logged[n] = readDoubles(in, series.days);
+            for (int n = 0; n < width; n++) series.prefix[n] = new double[series.days + 1];
+            series.updatePrefixSums(0);
+            return series;
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) values[i] = in.readInt();
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) values[i] = in.readDouble();
+        return values;
+    }
+}
@@ -0,0 +1,259 @@
+package com.nutri_sci.service;
+
+import com.nutri_sci.database.DatabaseConfig;
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Answers the visualizations' "nutrient totals between two days" questions from a per-user
+ * {@link NutrientTimeSeries} instead of reading meals. Each user's table is built once from MEAL_LOG,
+ * saved to a file so the next start can reopen it (checked against the DAILY_NUTRIENT_SUMMARY rollup,
+ * which building a table brings up to date), and kept up to date through {@link MealDataNotifier}
+ * (App registers the instance at startup): only the days of the saved meals are read again. Implements the
+ * Singleton pattern. The queries are thread-safe but block on the repository (and build a table on first use),
+ * so call them off the EDT; {@link #propertyChange} only queues the days and never waits for a query.
+ */
+public class NutrientTimeSeriesStore implements PropertyChangeListener {
+    private static NutrientTimeSeriesStore instance;
+
+    private final MealRepository mealRepository;
+    private final FoodCatalogRepository foodCatalog;
+    private final NutrientCalculator nutrientCalculator;
+    private final Path directory; // null keeps the tables in memory only
+
+    // Filled by propertyChange without taking the store's lock, drained by the next query.
+    private final Set<Long> queuedDays = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean resetQueued = new AtomicBoolean();
+
+    private final Map<Integer, NutrientTimeSeries> seriesByUser = new HashMap<>();
+    // Days changed since each loaded table was last updated.
+    private final Map<Integer, Set<Long>> pendingDaysByUser = new HashMap<>();
+    // Every day changed this session, applied to tables reopened from a file written before the change.
+    private final Set<Long> changedDays = new HashSet<>();
+
+    public NutrientTimeSeriesStore(MealRepository mealRepository, FoodCatalogRepository foodCatalog,
+                                   NutrientCalculator nutrientCalculator, Path directory) {
+        this.mealRepository = mealRepository;
+        this.foodCatalog = foodCatalog;
+        this.nutrientCalculator = nutrientCalculator;
+        this.directory = directory;
+    }
+
+    public static synchronized NutrientTimeSeriesStore getInstance() {
+        if (instance == null) {
+            DatabaseConfig config = DatabaseConfig.getInstance();
+            Path directory = config.isTimeSeriesPersisted() ? Paths.get(config.getTimeSeriesDirectory()) : null;
+            instance = new NutrientTimeSeriesStore(Repositories.getMeals(), Repositories.getFoodCatalog(), new NutrientCalculator(), directory);
+        }
+        return instance;
+    }
+
+    // --- Queries ---
+
+    /** @return the totals of the meals eaten (replaced meals left out) in the date range, all 0 if none. */
+    public synchronized NutrientVector getNutrientTotals(int userId, Date startDate, Date endDate) {
+        return seriesFor(userId).sum(NutrientTimeSeries.epochDay(startDate), NutrientTimeSeries.epochDay(endDate));
+    }
+
+    /**
+     * @return For every day in the range with at least one swap, the day's amount of the nutrient before
+     * the swaps (as first logged) and after them (as eaten), in date order.
+     */
+    public synchronized SortedMap<LocalDate, double[]> getSwapEffect(int userId, Date startDate, Date endDate, int nutrientId) {
+        NutrientTimeSeries series = seriesFor(userId);
+        SortedMap<LocalDate, double[]> effect = new TreeMap<>();
+        int ordinal = foodCatalog.getNutrientRegistry().ordinalOf(nutrientId);
+        if (ordinal < 0) return effect;
+        long lastDay = NutrientTimeSeries.epochDay(endDate);
+        for (long day = NutrientTimeSeries.epochDay(startDate); day <= lastDay; day++) {
+            if (series.getSwapCount(day) > 0) {
+                effect.put(LocalDate.ofEpochDay(day), new double[]{series.getLogged(ordinal, day), series.getEaten(ordinal, day)});
+            }
+        }
+        return effect;
+    }
+
+    // --- Updates ---
+
+    /**
+     * Queues the days of the saved meals so each table reads just those days again on its next query.
+     * An event without meals (a generic change) queues a reset that drops the tables so they are rebuilt.
+     * Fired on the EDT, so it does not take the store's lock: a query building a table may hold it for long.
+     */
+    @Override
+    public void propertyChange(PropertyChangeEvent evt) {
+        if (!"mealData".equals(evt.getPropertyName())) return;
+        if (!(evt.getNewValue() instanceof List)) {
+            resetQueued.set(true);
+            return;
+        }
+        for (Object meal : (List<?>) evt.getNewValue()) {
+            queuedDays.add(NutrientTimeSeries.epochDay(((Meal) meal).getDate()));
+        }
+    }
+
+    /** Applies the changes queued by {@link #propertyChange} to the loaded tables. */
+    private void drainQueuedChanges() {
+        if (resetQueued.getAndSet(false)) {
+            seriesByUser.clear();
+            pendingDaysByUser.clear();
+            changedDays.clear();
+            deleteFiles();
+        }
+        // Meals carry no UserID, so the days are marked on every loaded table; the extra reads find no changes.
+        for (Iterator<Long> days = queuedDays.iterator(); days.hasNext(); ) {
+            long day = days.next();
+            days.remove();
+            changedDays.add(day);
+            pendingDaysByUser.values().forEach(pending -> pending.add(day));
+        }
+    }
+
+    /** Forgets the loaded tables; the next query reopens them from their files or rebuilds them. */
+    public synchronized void clear() {
+        seriesByUser.clear();
+        pendingDaysByUser.clear();
+    }
+
+    private NutrientTimeSeries seriesFor(int userId) {
+        drainQueuedChanges();
+        int cnfVersion = foodCatalog.getCnfVersion();
+        NutrientRegistry registry = foodCatalog.getNutrientRegistry();
+        NutrientTimeSeries series = seriesByUser.get(userId);
+        if (series == null || !series.isCurrent(cnfVersion, registry)) {
+            series = open(userId, cnfVersion, registry);
+            if (series != null) {
+                updateDays(userId, series, changedDays);
+            } else {
+                series = build(userId, cnfVersion, registry);
+            }
+            seriesByUser.put(userId, series);
+            pendingDaysByUser.put(userId, new HashSet<>());
+            return series;
+        }
+        Set<Long> pendingDays = pendingDaysByUser.get(userId);
+        if (!pendingDays.isEmpty()) {
+            updateDays(userId, series, pendingDays);
+            pendingDays.clear();
+        }
+        return series;
+    }
+
+    private NutrientTimeSeries build(int userId, int cnfVersion, NutrientRegistry registry) {
+        List<Meal> meals = mealRepository.getMealsForUser(userId, null, null, true);
+        NutrientTimeSeries series = new NutrientTimeSeries(userId, cnfVersion, registry);
+        if (!meals.isEmpty()) {
+            long firstDay = NutrientTimeSeries.epochDay(meals.get(meals.size() - 1).getDate());
+            series.replaceDays(firstDay, firstDay, meals, nutrientCalculator.getMealNutrients(meals));
+        }
+        // Every meal now has current nutrient totals, which is what the rollup is built from.
+        if (!mealRepository.isDailyNutrientSummaryCurrent(userId)) {
+            mealRepository.rebuildDailyNutrientSummary(userId);
+        }
+        save(userId, series);
+        return series;
+    }
+
+    /** Reads the meals of the span covering the days again, in one query, and saves the table. */
+    private void updateDays(int userId, NutrientTimeSeries series, Set<Long> days) {
+        if (days.isEmpty()) return;
+        long fromDay = Collections.min(days);
+        long toDay = Collections.max(days);
+        List<Meal> meals = mealRepository.getMealsForUser(userId,
+                NutrientTimeSeries.startOfDay(fromDay), NutrientTimeSeries.endOfDay(toDay), true);
+        series.replaceDays(fromDay, toDay, meals, nutrientCalculator.getMealNutrients(meals));
+        save(userId, series);
+    }
+
+    // --- Files ---
+
+    /** @return the user's table from its file, or null if there is none or it does not match the meal log. */
+    private NutrientTimeSeries open(int userId, int cnfVersion, NutrientRegistry registry) {
+        if (directory == null) return null;
+        try {
+            NutrientTimeSeries series = NutrientTimeSeries.read(fileOf(userId), userId, cnfVersion, registry);
+            if (series == null) return null;
+            // Meals saved while the file was not being updated (e.g. by another instance) make it stale.
+            // Swaps keep the eaten count and the original's date, but always insert a meal with a higher MealID.
+            if (series.getEatenMealCount() != mealRepository.countMealsForUser(userId)
+                    || series.getMaxMealId() != mealRepository.getMaxMealId(userId)
+                    || !matchesDailySummary(userId, series)) {
+                return null;
+            }
+            return series;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return false if the user's daily rollup is current and its totals over the table's days differ from
+     * what the table has eaten on them; true otherwise.
+     */
+    private boolean matchesDailySummary(int userId, NutrientTimeSeries series) {
+        long firstDay = series.getFirstDay();
+        long lastDay = series.getLastDay();
+        if (lastDay < firstDay || !mealRepository.isDailyNutrientSummaryCurrent(userId)) return true;
+        NutrientVector expected = mealRepository.getNutrientTotalsFromDailySummary(userId,
+                NutrientTimeSeries.startOfDay(firstDay), NutrientTimeSeries.endOfDay(lastDay));
+        NutrientVector actual = series.sum(firstDay, lastDay);
+        for (int n = 0; n < actual.getRegistry().size(); n++) {
+            double a = actual.getAt(n);
+            double e = expected.getAt(n);
+            // The rollup sums in another order, so allow for rounding.
+            if (Math.abs(a - e) > 1e-6 * Math.max(1.0, Math.max(Math.abs(a), Math.abs(e)))) return false;
+        }
+        return true;
+    }
+
+    private void save(int userId, NutrientTimeSeries series) {
+        if (directory == null) return;
+        try {
+            series.write(fileOf(userId));
+        } catch (IOException e) {
+            // The table still works from memory; the next start rebuilds it.
+            e.printStackTrace();
+        }
+    }
+
+    private void deleteFiles() {
+        if (directory == null || !Files.isDirectory(directory)) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "user-*.bin")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path fileOf(int userId) {
+        return directory.resolve("user-" + userId + ".bin");
+    }
+}
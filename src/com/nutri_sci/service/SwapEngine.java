@@ -1,8 +1,14 @@
 package com.nutri_sci.service;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.Repositories;
 import com.nutri_sci.model.Goal;
+import com.nutri_sci.model.IngredientParser;
 import com.nutri_sci.model.Meal;
+import com.nutri_sci.model.MealIngredient;
+import com.nutri_sci.model.NutrientRegistry;
+import com.nutri_sci.model.NutrientVector;
+import com.nutri_sci.model.ParsedIngredient;
 import com.nutri_sci.model.SwapSuggestion;
 
 import java.util.ArrayList;
@@ -12,15 +18,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class SwapEngine {
 
     private final NutrientCalculator nutrientCalculator;
-    private final DBManager dbManager;
-    private final Pattern ingredientPattern = Pattern.compile("(\\d+\\.?\\d*)\\s*g\\s*(.+)", Pattern.CASE_INSENSITIVE);
+    private final FoodCatalogRepository foodCatalog;
 
     private static final double GOAL_ACHIEVEMENT_WEIGHT = 100.0;
     private static final double NUTRITIONAL_STABILITY_WEIGHT = 50.0;
@@ -28,39 +31,43 @@ public class SwapEngine {
 
     public SwapEngine() {
         this.nutrientCalculator = new NutrientCalculator();
-        this.dbManager = DBManager.getInstance();
+        this.foodCatalog = Repositories.getFoodCatalog();
     }
 
     public List<SwapSuggestion> findSwaps(Meal originalMeal, String itemToSwap, List<Goal> goals, double tolerance, boolean sameGroupOnly, boolean strictTolerance) {
-        Matcher matcher = ingredientPattern.matcher(itemToSwap.trim());
-        if (!matcher.matches() || goals.isEmpty()) {
+        ParsedIngredient originalItem = IngredientParser.parseLine(itemToSwap);
+        if (originalItem == null || goals.isEmpty()) {
             return new ArrayList<>();
         }
 
-        double originalQuantity = Double.parseDouble(matcher.group(1));
-        String originalDescription = matcher.group(2).trim();
-        Map<String, Double> originalItemNutrients = dbManager.getNutrientProfile(originalDescription);
+        double originalQuantity = originalItem.getGrams();
+        String originalDescription = originalItem.getDescription();
+        Map<String, Double> originalItemNutrients = foodCatalog.getNutrientProfile(originalDescription);
         if (originalItemNutrients.isEmpty()) return new ArrayList<>();
 
         Set<String> potentialSwapsSet = new HashSet<>();
-        String originalFoodGroup = dbManager.getFoodGroup(itemToSwap);
+        String originalFoodGroup = foodCatalog.getFoodGroup(itemToSwap);
 
         if (sameGroupOnly) {
-            if (originalFoodGroup != null) potentialSwapsSet.addAll(dbManager.getFoodsFromGroup(originalFoodGroup));
+            if (originalFoodGroup != null) potentialSwapsSet.addAll(foodCatalog.getFoodsFromGroup(originalFoodGroup));
             else return new ArrayList<>();
         } else {
             for (Goal goal : goals) {
                 String rank = goal.getType().equals("Increase") ? "HIGH" : "LOW";
-                potentialSwapsSet.addAll(dbManager.getFoodsByNutrientRank(goal.getNutrient(), rank));
+                potentialSwapsSet.addAll(foodCatalog.getFoodsByNutrientRank(goal.getNutrient(), rank));
             }
-            if (originalFoodGroup != null) potentialSwapsSet.addAll(dbManager.getFoodsFromGroup(originalFoodGroup));
+            if (originalFoodGroup != null) potentialSwapsSet.addAll(foodCatalog.getFoodsFromGroup(originalFoodGroup));
         }
 
+        // Fetch the profiles and food groups of every candidate in one batch each.
+        Map<String, Map<String, Double>> candidateNutrients = foodCatalog.getNutrientProfiles(potentialSwapsSet);
+        Map<String, String> candidateFoodGroups = foodCatalog.getFoodGroups(potentialSwapsSet);
+
         List<SwapSuggestion> scoredSuggestions = new ArrayList<>();
         for (String potentialSwap : new ArrayList<>(potentialSwapsSet)) {
             if (potentialSwap.equalsIgnoreCase(originalDescription)) continue;
 
-            Map<String, Double> newItemNutrients = dbManager.getNutrientProfile(potentialSwap);
+            Map<String, Double> newItemNutrients = candidateNutrients.getOrDefault(potentialSwap, new HashMap<>());
             if (newItemNutrients.isEmpty()) continue;
 
             boolean movesInCorrectDirection = true;
@@ -79,7 +86,7 @@ public class SwapEngine {
 
             if (strictTolerance && stabilityPenalty > 0) continue;
 
-            String swapFoodGroup = dbManager.getFoodGroup("100g " + potentialSwap);
+            String swapFoodGroup = candidateFoodGroups.get(potentialSwap);
             if (swapFoodGroup != null && swapFoodGroup.equals(originalFoodGroup)) {
                 finalScore += FOOD_GROUP_BONUS;
             }
@@ -152,25 +159,56 @@ public class SwapEngine {
         swappedMeal.setDate(originalMeal.getDate());
         swappedMeal.setMealType(originalMeal.getMealType());
 
-        String quantity = itemToSwap.split("g\\s+")[0] + "g ";
-        String newIngredientLine = quantity + newItem;
-
+        String newIngredientLine = swappedLine(itemToSwap, newItem);
         String swappedIngredients = originalMeal.getIngredients().replace(itemToSwap, newIngredientLine);
         swappedMeal.setIngredients(swappedIngredients);
 
-        Map<String, Double> newNutrients = nutrientCalculator.calculateNutrientsForMeal(swappedIngredients);
-        swappedMeal.setEstimatedCalories(getCalorieValue(newNutrients));
+        NutrientVector newNutrients = nutrientCalculator.calculateNutrientsForMeal(swappedIngredients);
+        swappedMeal.setEstimatedCalories(newNutrients.get(NutrientRegistry.ENERGY_KCAL));
         swappedMeal.setNutrientBreakdown(newNutrients);
 
         return swappedMeal;
     }
 
-    private double getCalorieValue(Map<String, Double> nutrients) {
-        for (Map.Entry<String, Double> entry : nutrients.entrySet()) {
-            if (entry.getKey().toUpperCase().startsWith("ENERGY (KILOCALORIES)")) {
-                return entry.getValue();
-            }
+    /**
+     * Applies the same swap to many meals. The ingredients of all swapped meals are resolved with one
+     * lookup and their nutrients calculated in one batch, instead of a lookup round per meal.
+     * @return The swapped meals, linked to their originals, in the same order as the input.
+     */
+    public List<Meal> performSwaps(List<Meal> originalMeals, String itemToSwap, String newItem) {
+        String newIngredientLine = swappedLine(itemToSwap, newItem);
+
+        List<Meal> swappedMeals = new ArrayList<>();
+        List<List<ParsedIngredient>> swappedIngredients = new ArrayList<>();
+        for (Meal originalMeal : originalMeals) {
+            Meal swappedMeal = new Meal();
+            swappedMeal.setDate(originalMeal.getDate());
+            swappedMeal.setMealType(originalMeal.getMealType());
+            swappedMeal.setIngredients(originalMeal.getIngredients().replace(itemToSwap, newIngredientLine));
+            swappedMeal.setSwapped(true);
+            swappedMeal.setOriginalMealId(originalMeal.getMealId());
+            swappedMeals.add(swappedMeal);
+            swappedIngredients.add(swappedMeal.getParsedIngredients());
+        }
+
+        List<List<MealIngredient>> resolved = foodCatalog.resolveMealIngredients(swappedIngredients);
+        for (int i = 0; i < swappedMeals.size(); i++) {
+            swappedMeals.get(i).setResolvedIngredients(resolved.get(i));
+        }
+        List<NutrientVector> nutrients = nutrientCalculator.calculateMealNutrients(swappedMeals);
+        for (int i = 0; i < swappedMeals.size(); i++) {
+            swappedMeals.get(i).setNutrientBreakdown(nutrients.get(i));
+            swappedMeals.get(i).setEstimatedCalories(nutrients.get(i).get(NutrientRegistry.ENERGY_KCAL));
+        }
+        return swappedMeals;
+    }
+
+    /** @return The ingredient line replacing itemToSwap: the same amount of the new food. */
+    private String swappedLine(String itemToSwap, String newItem) {
+        ParsedIngredient item = IngredientParser.parseLine(itemToSwap);
+        if (item == null) {
+            throw new IllegalArgumentException("Not an ingredient line: '" + itemToSwap + "'");
         }
-        return 0.0;
+        return item.withDescription(newItem);
     }
 }
\ No newline at end of file
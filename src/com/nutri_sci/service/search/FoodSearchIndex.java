@@ -0,0 +1,324 @@
+package com.nutri_sci.service.search;
+
+import com.nutri_sci.model.FoodItem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable in-memory inverted index over CNF food descriptions.
+ * Every lower-cased word token maps to a sorted int[] posting list of food ordinals, so a
+ * multi-word query is answered by intersecting a few primitive arrays instead of scanning FOOD_NAME.
+ *
+ * Matching and ranking follow the original SQL search in DBManager.findFoodSuggestions:
+ * up to four query words must each appear as a whole word, and results are ordered by
+ * exact match, then descriptions containing "raw", then those not cooked/canned/frozen/sauce/soup/dish,
+ * then everything else, with shorter descriptions first within each class.
+ *
+ * For typed input it also offers typo-tolerant search and prefix autocomplete: each query word may match
+ * any vocabulary token within a small edit distance (found through a {@link TrigramIndex}), and results
+ * with fewer edits rank first. Only the best {@code limit} results are kept, in a bounded heap.
+ */
+public class FoodSearchIndex {
+    private static final int MAX_QUERY_WORDS = 4;
+    private static final String[] PROCESSED_MARKERS = {"cooked", "canned", "frozen", "sauce", "soup", "dish"};
+    private static final int[] NO_POSTINGS = new int[0];
+
+    // Food data by ordinal (foods sorted by FoodID).
+    private final int[] foodIds;
+    private final String[] descriptions;
+    private final String[] lowerDescriptions;
+    // Query-independent part of the ranking: 1 = contains "raw", 2 = not processed, 3 = other.
+    private final byte[] rankClasses;
+
+    private final Map<String, int[]> postings;
+    // Distinct tokens in sorted order (for prefix ranges) and their posting lists by token id.
+    private final String[] vocabulary;
+    private final int[][] vocabularyPostings;
+    private final TrigramIndex trigramIndex;
+
+    private FoodSearchIndex(int[] foodIds, String[] descriptions, String[] lowerDescriptions, byte[] rankClasses, Map<String, int[]> postings) {
+        this.foodIds = foodIds;
+        this.descriptions = descriptions;
+        this.lowerDescriptions = lowerDescriptions;
+        this.rankClasses = rankClasses;
+        this.postings = postings;
+        this.vocabulary = postings.keySet().toArray(new String[0]);
+        Arrays.sort(vocabulary);
+        this.vocabularyPostings = new int[vocabulary.length][];
+        for (int tokenId = 0; tokenId < vocabulary.length; tokenId++) {
+            vocabularyPostings[tokenId] = postings.get(vocabulary[tokenId]);
+        }
+        this.trigramIndex = new TrigramIndex(vocabulary);
+    }
+
+    /**
+     * Builds the index from every food in the CNF.
+     */
+    public static FoodSearchIndex build(List<FoodItem> foods) {
+        List<FoodItem> sorted = new ArrayList<>(foods);
+        sorted.sort(Comparator.comparingInt(FoodItem::getFoodId));
+
+        int count = sorted.size();
+        int[] foodIds = new int[count];
+        String[] descriptions = new String[count];
+        String[] lowerDescriptions = new String[count];
+        byte[] rankClasses = new byte[count];
+        Map<String, IntList> postingLists = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            FoodItem food = sorted.get(ordinal);
+            foodIds[ordinal] = food.getFoodId();
+            descriptions[ordinal] = food.getDescription() == null ? "" : food.getDescription().trim();
+            lowerDescriptions[ordinal] = descriptions[ordinal].toLowerCase(Locale.ROOT);
+            rankClasses[ordinal] = rankClass(lowerDescriptions[ordinal]);
+
+            for (String token : tokenize(lowerDescriptions[ordinal])) {
+                IntList list = postingLists.computeIfAbsent(token, k -> new IntList());
+                // Ordinals are added in increasing order, so skipping a repeat keeps the list sorted and unique.
+                if (list.size == 0 || list.values[list.size - 1] != ordinal) {
+                    list.add(ordinal);
+                }
+            }
+        }
+
+        Map<String, int[]> postings = new HashMap<>(postingLists.size() * 2);
+        postingLists.forEach((token, list) -> postings.put(token, list.toArray()));
+        return new FoodSearchIndex(foodIds, descriptions, lowerDescriptions, rankClasses, postings);
+    }
+
+    /**
+     * Finds the foods whose description contains every one of the first four query words, best match first.
+     */
+    public List<FoodItem> findSuggestions(String description, int limit) {
+        List<FoodItem> suggestions = new ArrayList<>();
+        if (description == null || limit <= 0) return suggestions;
+
+        String[] words = description.trim().replace(",", "").toLowerCase(Locale.ROOT).split("\\s+");
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i < Math.min(words.length, MAX_QUERY_WORDS); i++) {
+            for (String token : tokenize(words[i])) {
+                lists.add(postings.getOrDefault(token, NO_POSTINGS));
+            }
+        }
+        if (lists.isEmpty()) return suggestions;
+
+        // Intersect the shortest lists first so the candidate set shrinks as fast as possible.
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists.get(0);
+        int candidateCount = candidates.length;
+        for (int i = 1; i < lists.size() && candidateCount > 0; i++) {
+            int[] next = new int[candidateCount];
+            candidateCount = intersect(candidates, candidateCount, lists.get(i), next);
+            candidates = next;
+        }
+
+        String exact = description.trim().toLowerCase(Locale.ROOT);
+        TopKHeap top = new TopKHeap(limit);
+        for (int i = 0; i < candidateCount; i++) {
+            top.offer(rankKey(candidates[i], exact));
+        }
+        return toFoodItems(top);
+    }
+
+    /**
+     * Typo-tolerant search: like {@link #findSuggestions} but each word may be misspelled
+     * (e.g. "chiken brest"). Results with fewer edits rank first, then by the usual rules.
+     */
+    public List<FoodItem> findFuzzy(String description, int limit) {
+        if (description == null) return new ArrayList<>();
+        List<String> words = queryWords(description);
+        return rankFuzzy(words, false, description, limit);
+    }
+
+    /**
+     * Suggestions for partially typed text, e.g. "chicken bre" or "brocol": every word is matched
+     * with typo tolerance and the last word, unless followed by a space, is treated as a prefix.
+     * Cheap enough to call on every keystroke.
+     */
+    public List<FoodItem> autocomplete(String text, int limit) {
+        if (text == null) return new ArrayList<>();
+        List<String> words = tokenize(text.replace(",", "").toLowerCase(Locale.ROOT));
+        // Keep the most recently typed words, so the word being typed is always included.
+        words = words.subList(Math.max(0, words.size() - MAX_QUERY_WORDS), words.size());
+        boolean lastIsPrefix = !text.isEmpty() && Character.isLetterOrDigit(text.charAt(text.length() - 1));
+        return rankFuzzy(words, lastIsPrefix, text, limit);
+    }
+
+    private List<String> queryWords(String text) {
+        List<String> words = tokenize(text.replace(",", "").toLowerCase(Locale.ROOT));
+        return words.size() > MAX_QUERY_WORDS ? words.subList(0, MAX_QUERY_WORDS) : words;
+    }
+
+    /**
+     * Scores every food by the sum, over the query words, of the smallest edit distance between the word
+     * and one of the food's tokens. Foods missing any word are dropped; the rest are ranked by
+     * total edits and then by the usual ranking key.
+     */
+    private List<FoodItem> rankFuzzy(List<String> words, boolean lastIsPrefix, String text, int limit) {
+        if (words.isEmpty() || limit <= 0) return new ArrayList<>();
+        int foodCount = foodIds.length;
+        int[] totalEdits = new int[foodCount];
+        boolean[] excluded = new boolean[foodCount];
+        int[] wordEdits = new int[foodCount];
+
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            boolean prefix = lastIsPrefix && w == words.size() - 1;
+            Arrays.fill(wordEdits, Integer.MAX_VALUE);
+            int maxEdits = maxEdits(word.length());
+
+            if (prefix) {
+                // Exact prefix matches: a contiguous range of the sorted vocabulary.
+                int from = lowerBound(word);
+                for (int tokenId = from; tokenId < vocabulary.length && vocabulary[tokenId].startsWith(word); tokenId++) {
+                    markPostings(tokenId, 0, wordEdits);
+                }
+            } else {
+                int[] exact = postings.get(word);
+                if (exact != null) {
+                    for (int ordinal : exact) wordEdits[ordinal] = 0;
+                }
+            }
+            if (maxEdits > 0) {
+                int[][] matches = trigramIndex.match(word, maxEdits, prefix);
+                for (int i = 0; i < matches[0].length; i++) {
+                    markPostings(matches[0][i], matches[1][i], wordEdits);
+                }
+            }
+
+            for (int ordinal = 0; ordinal < foodCount; ordinal++) {
+                if (wordEdits[ordinal] == Integer.MAX_VALUE) {
+                    excluded[ordinal] = true;
+                } else {
+                    totalEdits[ordinal] += wordEdits[ordinal];
+                }
+            }
+        }
+
+        String exact = text.trim().toLowerCase(Locale.ROOT);
+        TopKHeap top = new TopKHeap(limit);
+        for (int ordinal = 0; ordinal < foodCount; ordinal++) {
+            if (!excluded[ordinal]) {
+                top.offer(((long) Math.min(totalEdits[ordinal], 0xFF) << 44) | rankKey(ordinal, exact));
+            }
+        }
+        return toFoodItems(top);
+    }
+
+    private void markPostings(int tokenId, int edits, int[] wordEdits) {
+        for (int ordinal : vocabularyPostings[tokenId]) {
+            if (edits < wordEdits[ordinal]) wordEdits[ordinal] = edits;
+        }
+    }
+
+    /** Short words must match exactly; longer ones tolerate one or two typos. */
+    private static int maxEdits(int wordLength) {
+        if (wordLength <= 3) return 0;
+        return wordLength <= 6 ? 1 : 2;
+    }
+
+    private int lowerBound(String word) {
+        int index = Arrays.binarySearch(vocabulary, word);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private List<FoodItem> toFoodItems(TopKHeap top) {
+        List<FoodItem> suggestions = new ArrayList<>();
+        for (long key : top.toSortedArray()) {
+            int ordinal = (int) (key & 0xFFFFFL);
+            suggestions.add(new FoodItem(foodIds[ordinal], descriptions[ordinal]));
+        }
+        return suggestions;
+    }
+
+    public int getFoodCount() {
+        return foodIds.length;
+    }
+
+    public int getTokenCount() {
+        return postings.size();
+    }
+
+    /**
+     * Packs the ranking into one sortable long: rank class, then description length, then ordinal
+     * (which doubles as a FoodID tie-breaker and lets the ordinal be read back from the low bits).
+     */
+    private long rankKey(int ordinal, String exact) {
+        long rankClass = lowerDescriptions[ordinal].equals(exact) ? 0 : rankClasses[ordinal];
+        long length = Math.min(descriptions[ordinal].length(), 0xFFFFF);
+        return (rankClass << 40) | (length << 20) | ordinal;
+    }
+
+    private static byte rankClass(String lowerDescription) {
+        // Substring matches, exactly like the LIKE '%raw%' rule they replace (so "strawberries" counts as raw).
+        if (lowerDescription.contains("raw")) return 1;
+        for (String marker : PROCESSED_MARKERS) {
+            if (lowerDescription.contains(marker)) return 3;
+        }
+        return 2;
+    }
+
+    /**
+     * Splits lower-cased text into word tokens on anything that is not a letter or digit,
+     * matching the word boundaries of the REGEXP '\\bword\\b' predicates used before.
+     */
+    static List<String> tokenize(String lowerText) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= lowerText.length(); i++) {
+            boolean wordChar = i < lowerText.length() && Character.isLetterOrDigit(lowerText.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lowerText.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Merges two sorted ordinal arrays into {@code out}.
+     * @return The number of common ordinals written.
+     */
+    private static int intersect(int[] a, int aLength, int[] b, int[] out) {
+        int i = 0, j = 0, n = 0;
+        while (i < aLength && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * A growable int array, used only while building the posting lists.
+     */
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.nutri_sci.service.search;
+
+import com.nutri_sci.database.FoodCatalogRepository;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.model.FoodItem;
+
+import java.util.List;
+
+/**
+ * Answers food description searches from an in-memory {@link FoodSearchIndex} built once from FOOD_NAME.
+ * If the index cannot be built, searches fall back to the repository search (SQL in DBManager).
+ * Implements the Singleton pattern so the index is shared by every controller.
+ */
+public class FoodSearchService {
+    private static FoodSearchService instance;
+    private final FoodCatalogRepository foodCatalog;
+    private volatile FoodSearchIndex index;
+
+    private FoodSearchService() {
+        this.foodCatalog = Repositories.getFoodCatalog();
+    }
+
+    public static synchronized FoodSearchService getInstance() {
+        if (instance == null) {
+            instance = new FoodSearchService();
+        }
+        return instance;
+    }
+
+    /**
+     * Builds the index if it has not been built yet. Called in the background at startup
+     * so the first ingredient lookup does not pay for it.
+     */
+    public FoodSearchIndex getIndex() {
+        if (index == null) {
+            synchronized (this) {
+                if (index == null) {
+                    long start = System.currentTimeMillis();
+                    index = FoodSearchIndex.build(foodCatalog.getAllFoods());
+                    System.out.println("Food search index built in " + (System.currentTimeMillis() - start) + " ms: "
+                            + index.getFoodCount() + " foods, " + index.getTokenCount() + " tokens.");
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Like {@link #findFoodSuggestions} but tolerant of typos, e.g. "chiken brest".
+     */
+    public List<FoodItem> findFuzzyFoodSuggestions(String description, int limit) {
+        return getIndex().findFuzzy(description, limit);
+    }
+
+    /**
+     * Completes partially typed food text; the last word is matched as a prefix.
+     */
+    public List<FoodItem> autocomplete(String text, int limit) {
+        return getIndex().autocomplete(text, limit);
+    }
+
+    /**
+     * Finds foods matching every word of the description, best match first.
+     */
+    public List<FoodItem> findFoodSuggestions(String description, int limit) {
+        try {
+            return getIndex().findSuggestions(description, limit);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return foodCatalog.findFoodSuggestions(description, limit);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nutri_sci.service.search;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the k smallest long keys seen so far in a bounded binary max-heap,
+ * so ranking n candidates costs O(n log k) and never allocates more than k slots.
+ */
+class TopKHeap {
+    private final long[] heap;
+    private int size;
+
+    TopKHeap(int k) {
+        this.heap = new long[Math.max(k, 0)];
+    }
+
+    void offer(long key) {
+        if (heap.length == 0) return;
+        if (size < heap.length) {
+            heap[size] = key;
+            siftUp(size++);
+        } else if (key < heap[0]) {
+            heap[0] = key;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @return The retained keys in ascending order.
+     */
+    long[] toSortedArray() {
+        long[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent] >= heap[index]) break;
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) largest = left;
+            if (right < size && heap[right] > heap[largest]) largest = right;
+            if (largest == index) return;
+            swap(index, largest);
+            index = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+}
@@ -0,0 +1,151 @@
+package com.nutri_sci.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index over the search vocabulary (the distinct description tokens), used to find
+ * tokens within a small edit distance of a misspelled query word without comparing it to every token.
+ *
+ * Tokens are padded as "$token$" before being cut into trigrams. An insertion, deletion or substitution
+ * changes at most three trigrams and an adjacent transposition (one edit here) at most four, so a token
+ * within k edits of the query must share at least (query trigrams - 4k) of them; candidates passing
+ * that filter are then checked with a bounded edit distance.
+ */
+class TrigramIndex {
+    private final String[] vocabulary;
+    private final Map<String, int[]> tokensByTrigram;
+
+    TrigramIndex(String[] vocabulary) {
+        this.vocabulary = vocabulary;
+        Map<String, List<Integer>> lists = new HashMap<>();
+        for (int tokenId = 0; tokenId < vocabulary.length; tokenId++) {
+            for (String trigram : distinctTrigrams(vocabulary[tokenId], true)) {
+                lists.computeIfAbsent(trigram, k -> new ArrayList<>()).add(tokenId);
+            }
+        }
+        tokensByTrigram = new HashMap<>(lists.size() * 2);
+        lists.forEach((trigram, ids) -> tokensByTrigram.put(trigram, ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Finds the vocabulary tokens within {@code maxEdits} of the word.
+     *
+     * @param prefix When true the word is matched against the beginning of each token
+     *               (the smallest edit distance to any prefix of the token counts).
+     * @return Parallel arrays: [0] = token ids, [1] = their edit distances.
+     */
+    int[][] match(String word, int maxEdits, boolean prefix) {
+        List<String> trigrams = distinctTrigrams(word, !prefix);
+        int minShared = trigrams.size() - 4 * maxEdits;
+
+        IntCollector ids = new IntCollector();
+        IntCollector distances = new IntCollector();
+        if (minShared <= 0) {
+            // Too short for the trigram filter to prune anything; check every token of a plausible length.
+            for (int tokenId = 0; tokenId < vocabulary.length; tokenId++) {
+                check(word, tokenId, maxEdits, prefix, ids, distances);
+            }
+            return new int[][]{ids.toArray(), distances.toArray()};
+        }
+
+        int[] shared = new int[vocabulary.length];
+        IntCollector touched = new IntCollector();
+        for (String trigram : trigrams) {
+            int[] tokenIds = tokensByTrigram.get(trigram);
+            if (tokenIds == null) continue;
+            for (int tokenId : tokenIds) {
+                if (shared[tokenId]++ == 0) touched.add(tokenId);
+            }
+        }
+        for (int i = 0; i < touched.size; i++) {
+            int tokenId = touched.values[i];
+            if (shared[tokenId] >= minShared) {
+                check(word, tokenId, maxEdits, prefix, ids, distances);
+            }
+        }
+        return new int[][]{ids.toArray(), distances.toArray()};
+    }
+
+    private void check(String word, int tokenId, int maxEdits, boolean prefix, IntCollector ids, IntCollector distances) {
+        String token = vocabulary[tokenId];
+        if (token.length() < word.length() - maxEdits) return;
+        if (!prefix && token.length() > word.length() + maxEdits) return;
+        int distance = editDistance(word, token, maxEdits, prefix);
+        if (distance <= maxEdits) {
+            ids.add(tokenId);
+            distances.add(distance);
+        }
+    }
+
+    /**
+     * Optimal string alignment distance (Levenshtein plus adjacent transpositions), giving up
+     * once every cell of a row exceeds {@code max}. In prefix mode the distance is taken
+     * to the closest prefix of {@code token}.
+     *
+     * @return The distance, or max + 1 if it is larger than max.
+     */
+    static int editDistance(String word, String token, int max, boolean prefix) {
+        int n = word.length();
+        int m = prefix ? Math.min(token.length(), n + max) : token.length();
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) previous[j] = j;
+
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = word.charAt(i - 1) == token.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && word.charAt(i - 1) == token.charAt(j - 2) && word.charAt(i - 2) == token.charAt(j - 1)) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > max) return max + 1;
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+
+        int distance = previous[m];
+        if (prefix) {
+            for (int j = 0; j <= m; j++) distance = Math.min(distance, previous[j]);
+        }
+        return Math.min(distance, max + 1);
+    }
+
+    private static List<String> distinctTrigrams(String token, boolean padEnd) {
+        String padded = "$" + token + (padEnd ? "$" : "");
+        List<String> trigrams = new ArrayList<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String trigram = padded.substring(i, i + 3);
+            if (!trigrams.contains(trigram)) trigrams.add(trigram);
+        }
+        return trigrams;
+    }
+
+    /**
+     * A growable int array for collecting query results without boxing.
+     */
+    private static final class IntCollector {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
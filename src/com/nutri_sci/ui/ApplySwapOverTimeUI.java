@@ -1,12 +1,14 @@
 package com.nutri_sci.ui;
 
 import com.nutri_sci.controller.SwapController;
+import com.nutri_sci.model.SwapProgress;
 import com.nutri_sci.model.UserProfile;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.util.Date;
+import java.util.List;
 
 public class ApplySwapOverTimeUI extends JFrame {
 
@@ -18,6 +20,13 @@ public class ApplySwapOverTimeUI extends JFrame {
     private final JSpinner startDateSpinner;
     private final JSpinner endDateSpinner;
     private final JCheckBox allTimeCheckBox;
+    private final JButton applyButton = new JButton("Apply");
+    private final JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+    private final JProgressBar progressBar = new JProgressBar();
+    private final JLabel progressLabel = new JLabel(" ");
+    private final JButton cancelButton = new JButton("Cancel");
+    private volatile boolean cancelRequested;
+    private boolean running; // a swap is being applied; only touched on the EDT
 
     public ApplySwapOverTimeUI(UserProfile userProfile, String itemToSwap, String newItem) {
         this.userProfile = userProfile;
@@ -26,7 +35,7 @@ public class ApplySwapOverTimeUI extends JFrame {
         this.swapController = new SwapController();
 
         setTitle("Apply Swap Over Time");
-        setSize(450, 250);
+        setSize(450, 300);
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
 
@@ -66,7 +75,6 @@ public class ApplySwapOverTimeUI extends JFrame {
         gbc.gridwidth = 2;
         dateSelectionPanel.add(allTimeCheckBox, gbc);
 
-        JButton applyButton = new JButton("Apply");
         applyButton.addActionListener(e -> applySwap());
 
         gbc.gridx = 0;
@@ -77,6 +85,15 @@ public class ApplySwapOverTimeUI extends JFrame {
 
         mainPanel.add(dateSelectionPanel, BorderLayout.CENTER);
 
+        // --- Progress, shown while the swap is being applied ---
+        progressBar.setStringPainted(true);
+        progressPanel.add(progressBar, BorderLayout.NORTH);
+        progressPanel.add(progressLabel, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.EAST);
+        progressPanel.setVisible(false);
+        cancelButton.addActionListener(e -> requestCancel());
+        mainPanel.add(progressPanel, BorderLayout.SOUTH);
+
         add(mainPanel);
     }
 
@@ -95,7 +112,82 @@ public class ApplySwapOverTimeUI extends JFrame {
             return;
         }
 
-        swapController.applySwapOverTime(userProfile, itemToSwap, newItem, startDate, endDate);
-        this.dispose();
+        running = true;
+        applyButton.setEnabled(false);
+        allTimeCheckBox.setEnabled(false);
+        startDateSpinner.setEnabled(false);
+        endDateSpinner.setEnabled(false);
+        progressPanel.setVisible(true);
+        progressBar.setIndeterminate(true);
+        progressLabel.setText("Loading meals...");
+
+        new SwingWorker<SwapProgress, SwapProgress>() {
+            @Override
+            protected SwapProgress doInBackground() {
+                return swapController.applySwapOverTime(userProfile, itemToSwap, newItem, startDate, endDate,
+                        this::publish, () -> cancelRequested);
+            }
+
+            @Override
+            protected void process(List<SwapProgress> updates) {
+                showProgress(updates.get(updates.size() - 1));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showResult(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(null, "Failed to apply the swap.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                running = false;
+                dispose();
+            }
+        }.execute();
+    }
+
+    private void showProgress(SwapProgress progress) {
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(Math.max(1, progress.getTotalMeals()));
+        progressBar.setValue(progress.getMealsProcessed());
+        if (cancelRequested) return;
+        long etaSeconds = (progress.getEtaMillis() + 999) / 1000;
+        progressLabel.setText(String.format("%d of %d meals processed, %d matched, about %d:%02d left",
+                progress.getMealsProcessed(), progress.getTotalMeals(), progress.getMealsMatched(), etaSeconds / 60, etaSeconds % 60));
+    }
+
+    private void requestCancel() {
+        cancelRequested = true;
+        cancelButton.setEnabled(false);
+        progressLabel.setText("Cancelling after the current chunk...");
+    }
+
+    private void showResult(SwapProgress result) {
+        if (result.isSaveFailed()) {
+            JOptionPane.showMessageDialog(null, "Failed to save the swapped meals. The swap was applied to " + result.getMealsSaved()
+                    + " meal(s) before the error; the remaining meals were not changed.", "Error", JOptionPane.ERROR_MESSAGE);
+        } else if (cancelRequested) {
+            JOptionPane.showMessageDialog(null, "Cancelled. The swap was applied to " + result.getMealsSaved()
+                    + " meal(s) before stopping; the remaining meals were not changed.", "Cancelled", JOptionPane.INFORMATION_MESSAGE);
+        } else if (result.getMealsSaved() > 0) {
+            JOptionPane.showMessageDialog(null, String.format("Successfully applied the swap to %d past meal(s) in %.1f s.",
+                    result.getMealsSaved(), result.getElapsedMillis() / 1000.0), "Success", JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(null, "No past meals found containing the item to swap.", "Information", JOptionPane.INFORMATION_MESSAGE);
+        }
+    }
+
+    /**
+     * Closing the window while a swap is running cancels it; the window goes away once the
+     * chunk in progress is committed and the outcome has been shown.
+     */
+    @Override
+    public void dispose() {
+        if (running) {
+            if (!cancelRequested) requestCancel();
+            return;
+        }
+        super.dispose();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.nutri_sci.ui;
 
 import com.nutri_sci.controller.SwapController;
+import com.nutri_sci.database.AsyncRepositories;
 import com.nutri_sci.model.Goal;
 import com.nutri_sci.model.Meal;
 import com.nutri_sci.model.SwapSuggestion;
@@ -13,6 +14,9 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 public class FoodSwapUI extends JFrame {
 
@@ -20,6 +24,7 @@ public class FoodSwapUI extends JFrame {
     private final UserProfile userProfile;
     private final SwapEngine swapEngine;
     private final SwapController swapController;
+    private CompletableFuture<List<SwapSuggestion>> pendingSearch; // cancelled when a newer search starts
 
     // --- UI Components ---
     private final JComboBox<String> ingredientsToSwapBox;
@@ -179,27 +184,43 @@ public class FoodSwapUI extends JFrame {
 
         if (itemToSwap == null) return;
 
-        List<SwapSuggestion> suggestions = swapEngine.findSwaps(originalMeal, itemToSwap, goals, tolerance, sameGroupOnly, strictTolerance);
-
-        if (suggestions.isEmpty()) {
-            DefaultListModel<SwapSuggestion> model = new DefaultListModel<>();
-            model.addElement(new SwapSuggestion("No suitable swaps found matching your criteria.", null, 0, null, null){
-                @Override
-                public String toString() { return getFoodName(); }
-            });
-            suggestedSwapsList.setModel(model);
-        } else {
-            DefaultListModel<SwapSuggestion> model = new DefaultListModel<>();
-            suggestions.forEach(model::addElement);
-            suggestedSwapsList.setModel(model);
-        }
+        // Search off the EDT; a newer search or closing the window cancels this one
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        CompletableFuture<List<SwapSuggestion>> search = AsyncRepositories.getInstance()
+                .supply(() -> swapEngine.findSwaps(originalMeal, itemToSwap, goals, tolerance, sameGroupOnly, strictTolerance));
+        pendingSearch = search;
+        showStatusMessage("Searching for swaps...");
+
+        search.whenCompleteAsync((suggestions, error) -> {
+            if (pendingSearch != search) return; // superseded by a newer search
+            pendingSearch = null;
+            Throwable cause = error == null ? null : AsyncRepositories.unwrap(error);
+            if (cause instanceof CancellationException) {
+                suggestedSwapsList.setModel(new DefaultListModel<>());
+            } else if (cause != null) {
+                cause.printStackTrace();
+                showStatusMessage(cause instanceof TimeoutException ? "The search for swaps timed out." : "Could not search for swaps.");
+            } else if (suggestions.isEmpty()) {
+                showStatusMessage("No suitable swaps found matching your criteria.");
+            } else {
+                DefaultListModel<SwapSuggestion> model = new DefaultListModel<>();
+                suggestions.forEach(model::addElement);
+                suggestedSwapsList.setModel(model);
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void showStatusMessage(String message) {
+        DefaultListModel<SwapSuggestion> model = new DefaultListModel<>();
+        model.addElement(new StatusMessage(message));
+        suggestedSwapsList.setModel(model);
     }
 
     private void finalizeSwap() {
         String itemToSwap = (String) ingredientsToSwapBox.getSelectedItem();
         SwapSuggestion selectedSuggestion = suggestedSwapsList.getSelectedValue();
 
-        if (itemToSwap == null || selectedSuggestion == null || selectedSuggestion.getFoodName().startsWith("No suitable swaps")) {
+        if (itemToSwap == null || selectedSuggestion == null || selectedSuggestion instanceof StatusMessage) {
             JOptionPane.showMessageDialog(this, "Please find and select a valid swap from the list.", "Swap Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
@@ -219,4 +240,22 @@ public class FoodSwapUI extends JFrame {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void dispose() {
+        if (pendingSearch != null) pendingSearch.cancel(true);
+        super.dispose();
+    }
+
+    /** A status line shown in the suggestion list, e.g. "Searching..."; it cannot be picked as a swap. */
+    private static class StatusMessage extends SwapSuggestion {
+        StatusMessage(String message) {
+            super(message, null, 0, null, null);
+        }
+
+        @Override
+        public String toString() {
+            return getFoodName();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.nutri_sci.ui;
+
+import com.nutri_sci.model.FoodItem;
+import com.nutri_sci.model.IngredientParser;
+import com.nutri_sci.service.search.FoodSearchService;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+
+/**
+ * Shows food suggestions under the caret while an ingredient line ("100g chick...") is typed
+ * into a text area. Up/Down move through the list, Enter or a click replaces the description
+ * on the current line, and Escape closes the popup.
+ */
+public class IngredientAutocomplete {
+    private static final int MAX_SUGGESTIONS = 8;
+    private static final int MIN_QUERY_LENGTH = 2;
+
+    private final JTextArea textArea;
+    private final FoodSearchService searchService;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<FoodItem> listModel = new DefaultListModel<>();
+    private final JList<FoodItem> suggestionList = new JList<>(listModel);
+    private boolean replacing = false;
+
+    public IngredientAutocomplete(JTextArea textArea) {
+        this.textArea = textArea;
+        this.searchService = FoodSearchService.getInstance();
+
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setFocusable(false);
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                acceptSelection();
+            }
+        });
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(suggestionList));
+
+        textArea.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { scheduleUpdate(); }
+            public void removeUpdate(DocumentEvent e) { scheduleUpdate(); }
+            public void changedUpdate(DocumentEvent e) { }
+        });
+        installKeyBindings();
+    }
+
+    private void scheduleUpdate() {
+        if (!replacing) {
+            // The caret has not moved yet while the document event is delivered.
+            SwingUtilities.invokeLater(this::updateSuggestions);
+        }
+    }
+
+    private void updateSuggestions() {
+        String query = currentDescription();
+        if (query == null || query.trim().length() < MIN_QUERY_LENGTH) {
+            popup.setVisible(false);
+            return;
+        }
+
+        List<FoodItem> suggestions;
+        try {
+            suggestions = searchService.autocomplete(query, MAX_SUGGESTIONS);
+        } catch (RuntimeException e) {
+            // The search index is unavailable; typing must keep working without suggestions.
+            popup.setVisible(false);
+            return;
+        }
+        if (suggestions.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+
+        listModel.clear();
+        suggestions.forEach(listModel::addElement);
+        suggestionList.setSelectedIndex(0);
+        suggestionList.setVisibleRowCount(suggestions.size());
+        try {
+            Rectangle caret = caretBounds();
+            if (caret == null) {
+                // Not laid out yet.
+                popup.setVisible(false);
+                return;
+            }
+            popup.pack();
+            popup.show(textArea, caret.x, caret.y + caret.height);
+            textArea.requestFocusInWindow();
+        } catch (BadLocationException e) {
+            popup.setVisible(false);
+        }
+    }
+
+    /** Uses modelToView, deprecated since Java 9 in favour of modelToView2D, which Java 8 does not have. */
+    @SuppressWarnings("deprecation")
+    private Rectangle caretBounds() throws BadLocationException {
+        return textArea.modelToView(textArea.getCaretPosition());
+    }
+
+    /**
+     * @return The description part of the line the caret is on, or null if the line has no amount yet.
+     */
+    private String currentDescription() {
+        try {
+            int line = textArea.getLineOfOffset(textArea.getCaretPosition());
+            int start = textArea.getLineStartOffset(line);
+            String text = textArea.getText(start, textArea.getCaretPosition() - start);
+            // "[amount]g [description being typed]", the same format MealController parses.
+            int prefixLength = IngredientParser.amountPrefixLength(text);
+            return prefixLength >= 0 ? text.substring(prefixLength) : null;
+        } catch (BadLocationException e) {
+            return null;
+        }
+    }
+
+    private void acceptSelection() {
+        FoodItem selected = suggestionList.getSelectedValue();
+        popup.setVisible(false);
+        if (selected == null) return;
+        try {
+            int line = textArea.getLineOfOffset(textArea.getCaretPosition());
+            int start = textArea.getLineStartOffset(line);
+            int end = textArea.getLineEndOffset(line);
+            String text = textArea.getText(start, end - start);
+            boolean endsWithNewline = text.endsWith("\n");
+            int prefixLength = IngredientParser.amountPrefixLength(endsWithNewline ? text.substring(0, text.length() - 1) : text);
+            if (prefixLength < 0) return;
+
+            replacing = true;
+            textArea.replaceRange(text.substring(0, prefixLength) + selected.getDescription(), start, endsWithNewline ? end - 1 : end);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        } finally {
+            replacing = false;
+        }
+    }
+
+    private void installKeyBindings() {
+        InputMap inputMap = textArea.getInputMap(JComponent.WHEN_FOCUSED);
+        ActionMap actionMap = textArea.getActionMap();
+        bindWhilePopupVisible(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "autocompleteDown",
+                () -> moveSelection(1));
+        bindWhilePopupVisible(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "autocompleteUp",
+                () -> moveSelection(-1));
+        bindWhilePopupVisible(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "autocompleteAccept",
+                this::acceptSelection);
+        bindWhilePopupVisible(inputMap, actionMap, KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "autocompleteClose",
+                () -> popup.setVisible(false));
+    }
+
+    /**
+     * Runs the given handler while the popup is showing, and the text area's normal action otherwise
+     * (so Enter still inserts a new line when there is nothing to accept).
+     */
+    private void bindWhilePopupVisible(InputMap inputMap, ActionMap actionMap, KeyStroke key, String name, Runnable handler) {
+        Object originalName = inputMap.get(key);
+        Action original = originalName != null ? actionMap.get(originalName) : null;
+        inputMap.put(key, name);
+        actionMap.put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (popup.isVisible()) {
+                    handler.run();
+                } else if (original != null) {
+                    original.actionPerformed(e);
+                }
+            }
+        });
+    }
+
+    private void moveSelection(int delta) {
+        int size = listModel.getSize();
+        if (size == 0) return;
+        int index = Math.floorMod(suggestionList.getSelectedIndex() + delta, size);
+        suggestionList.setSelectedIndex(index);
+        suggestionList.ensureIndexIsVisible(index);
+    }
+}
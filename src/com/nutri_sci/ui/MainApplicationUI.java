@@ -3,32 +3,38 @@ package com.nutri_sci.ui;
 import com.nutri_sci.model.Meal;
 import com.nutri_sci.model.UserProfile;
 import com.nutri_sci.service.MealDataNotifier;
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.AsyncRepositories;
+import com.nutri_sci.database.MealRepository;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.database.DatabaseConfig;
 import com.nutri_sci.service.NutrientCalculator; // <-- IMPORT ADDED
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.text.SimpleDateFormat;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 public class MainApplicationUI extends JFrame implements PropertyChangeListener {
 
     private final UserProfile userProfile;
-    private final DBManager dbManager;
+    private final MealRepository mealRepository;
     private JTable mealLogTable;
-    private DefaultTableModel tableModel;
+    private MealJournalTableModel tableModel;
     private JLabel welcomeLabel;
+    private CompletableFuture<?> pendingMealQuery; // cancelled when a newer meal is opened
 
     public MainApplicationUI(UserProfile userProfile) {
         this.userProfile = userProfile;
-        this.dbManager = DBManager.getInstance();
+        this.mealRepository = Repositories.getMeals();
 
         // Register as a listener for property changes
         MealDataNotifier.getInstance().addPropertyChangeListener(this);
@@ -39,7 +45,6 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
         setLocationRelativeTo(null);
 
         initComponents();
-        refreshMealTable();
     }
 
     private void initComponents() {
@@ -58,13 +63,7 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
         JPanel mealLogPanel = new JPanel(new BorderLayout());
         mealLogPanel.setBorder(BorderFactory.createTitledBorder("Your Meal Journal (Double-click a meal to see details)"));
 
-        String[] columnNames = {"Date", "Meal Type", "Ingredients", "Est. Calories"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new MealJournalTableModel(userProfile.getId(), DatabaseConfig.getInstance().getMealPageSize());
         mealLogTable = new JTable(tableModel);
         mealLogTable.setFillsViewportHeight(true);
         mealLogTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -103,7 +102,11 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
         swapFoodButton.addActionListener(e -> {
             int selectedRow = mealLogTable.getSelectedRow();
             if (selectedRow >= 0) {
-                Meal selectedMeal = dbManager.getMealsForUser(userProfile.getId()).get(selectedRow);
+                Meal selectedMeal = tableModel.getMealAt(selectedRow);
+                if (selectedMeal == null) {
+                    showStillLoading();
+                    return;
+                }
                 new FoodSwapUI(userProfile, selectedMeal).setVisible(true);
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a meal from the journal to perform a swap.", "No Meal Selected", JOptionPane.WARNING_MESSAGE);
@@ -113,19 +116,12 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
         compareSwapButton.addActionListener(e -> {
             int selectedRow = mealLogTable.getSelectedRow();
             if (selectedRow >= 0) {
-                List<Meal> currentMeals = dbManager.getMealsForUser(userProfile.getId());
-                Meal selectedMeal = currentMeals.get(selectedRow);
-
-                if (selectedMeal.isSwapped() && selectedMeal.getOriginalMealId() != null) {
-                    Meal originalMeal = dbManager.getMealById(selectedMeal.getOriginalMealId());
-                    if (originalMeal != null) {
-                        new SwapComparisonUI(originalMeal, selectedMeal).setVisible(true);
-                    } else {
-                        JOptionPane.showMessageDialog(this, "Could not find the original meal to compare against.", "Error", JOptionPane.ERROR_MESSAGE);
-                    }
-                } else {
-                    JOptionPane.showMessageDialog(this, "Please select a meal that has been swapped to make a comparison.", "Not a Swapped Meal", JOptionPane.WARNING_MESSAGE);
+                Meal journalMeal = tableModel.getMealAt(selectedRow);
+                if (journalMeal == null) {
+                    showStillLoading();
+                    return;
                 }
+                compareSwappedMeal(journalMeal);
             } else {
                 JOptionPane.showMessageDialog(this, "Please select a meal from the journal.", "No Meal Selected", JOptionPane.WARNING_MESSAGE);
             }
@@ -142,8 +138,12 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
                 if (e.getClickCount() == 2) {
                     int selectedRow = mealLogTable.getSelectedRow();
                     if (selectedRow >= 0) {
-                        Meal selectedMeal = dbManager.getMealsForUser(userProfile.getId()).get(selectedRow);
-                        displayNutrientBreakdown(selectedMeal);
+                        Meal journalMeal = tableModel.getMealAt(selectedRow);
+                        if (journalMeal != null) {
+                            displayNutrientBreakdown(journalMeal);
+                        } else {
+                            showStillLoading();
+                        }
                     }
                 }
             }
@@ -156,27 +156,70 @@ public class MainApplicationUI extends JFrame implements PropertyChangeListener
     }
 
     public void refreshMealTable() {
-        tableModel.setRowCount(0);
-        List<Meal> meals = dbManager.getMealsForUser(userProfile.getId());
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-
-        for (Meal meal : meals) {
-            Object[] row = {
-                    sdf.format(meal.getDate()),
-                    meal.getMealType() + (meal.isSwapped() ? " (Swapped)" : ""),
-                    meal.getIngredients().replace("\n", ", "),
-                    String.format("%.2f", meal.getEstimatedCalories())
-            };
-            tableModel.addRow(row);
-        }
+        tableModel.refresh();
+    }
+
+    private void showStillLoading() {
+        JOptionPane.showMessageDialog(this, "The selected meal is still loading, please try again.", "Meal Journal", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    /**
+     * Runs a meal query off the EDT and hands its result to {@code onResult} on the EDT.
+     * A newer query cancels this one.
+     */
+    private <T> void runMealQuery(CompletableFuture<T> query, Consumer<T> onResult) {
+        if (pendingMealQuery != null) pendingMealQuery.cancel(true);
+        pendingMealQuery = query;
+        query.whenCompleteAsync((result, error) -> {
+            if (pendingMealQuery != query) return; // superseded by a newer query
+            pendingMealQuery = null;
+            Throwable cause = error == null ? null : AsyncRepositories.unwrap(error);
+            if (cause instanceof CancellationException) return;
+            if (cause != null) {
+                cause.printStackTrace();
+                String message = cause instanceof TimeoutException ? "Loading the meal timed out." : "Could not load the meal.";
+                JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            onResult.accept(result);
+        }, SwingUtilities::invokeLater);
     }
 
-    private void displayNutrientBreakdown(Meal meal) {
-        // Use the NutrientCalculator class to get the full breakdown
-        NutrientCalculator calculator = new NutrientCalculator();
-        Map<String, Double> nutrients = calculator.calculateNutrientsForMeal(meal.getIngredients());
-        meal.setNutrientBreakdown(nutrients);
+    private void compareSwappedMeal(Meal journalMeal) {
+        // Journal rows carry no nutrient totals, so the comparison reads the full meals.
+        AsyncRepositories async = AsyncRepositories.getInstance();
+        CompletableFuture<Meal> selectedQuery = async.getMealById(journalMeal.getMealId());
+        CompletableFuture<Meal> originalQuery = selectedQuery.thenCompose(selected ->
+                selected != null && selected.isSwapped() && selected.getOriginalMealId() != null
+                        ? async.getMealById(selected.getOriginalMealId())
+                        : CompletableFuture.completedFuture(null));
+
+        runMealQuery(originalQuery, originalMeal -> {
+            Meal selectedMeal = selectedQuery.join(); // completed before originalQuery
+            if (selectedMeal == null || !selectedMeal.isSwapped() || selectedMeal.getOriginalMealId() == null) {
+                JOptionPane.showMessageDialog(this, "Please select a meal that has been swapped to make a comparison.", "Not a Swapped Meal", JOptionPane.WARNING_MESSAGE);
+            } else if (originalMeal == null) {
+                JOptionPane.showMessageDialog(this, "Could not find the original meal to compare against.", "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                new SwapComparisonUI(originalMeal, selectedMeal).setVisible(true);
+            }
+        });
+    }
+
+    private void displayNutrientBreakdown(Meal journalMeal) {
+        // Read the full meal with its stored breakdown (journal rows carry none), letting the NutrientCalculator
+        // fill it in if it is missing or out of date; it may write the totals back, so this runs off the EDT.
+        CompletableFuture<Map<String, Double>> query = AsyncRepositories.getInstance().supply(() -> {
+            Meal meal = mealRepository.getMealById(journalMeal.getMealId());
+            if (meal == null) return null;
+            return new NutrientCalculator().getMealNutrients(Collections.singletonList(meal)).get(0).toMap();
+        });
+        runMealQuery(query, nutrients -> {
+            if (nutrients != null) showNutrientBreakdown(journalMeal, nutrients);
+        });
+    }
 
+    private void showNutrientBreakdown(Meal meal, Map<String, Double> nutrients) {
         if (nutrients.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No detailed nutrient information could be calculated for this meal.", "Nutrient Breakdown", JOptionPane.INFORMATION_MESSAGE);
             return;
@@ -0,0 +1,164 @@
+package com.nutri_sci.ui;
+
+import com.nutri_sci.database.AsyncRepositories;
+import com.nutri_sci.model.Meal;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.text.SimpleDateFormat;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Table model for the meal journal that loads meals page by page as rows are displayed,
+ * instead of reading the whole history up front. Only the pages around the visible rows are kept
+ * (a sparse, least recently used page cache), so a 50k-meal journal costs about the same as a short one.
+ * A page following a loaded one continues from its last meal (keyset pagination); a page reached
+ * by jumping with the scrollbar is read by its offset, without loading the rows in between.
+ *
+ * The row count and the pages are only ever read in the background, through
+ * {@link AsyncRepositories}; rows show "Loading..." until their page arrives.
+ * Journal meals carry no nutrient totals; read the meal by its ID where they are needed.
+ */
+public class MealJournalTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMN_NAMES = {"Date", "Meal Type", "Ingredients", "Est. Calories"};
+    // Pages kept in memory; enough for several screens around the visible rows.
+    private static final int MAX_CACHED_PAGES = 20;
+
+    private final AsyncRepositories async = AsyncRepositories.getInstance();
+    private final int userId;
+    private final int pageSize;
+    private final SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    private final Map<Integer, List<Meal>> pages = new LinkedHashMap<Integer, List<Meal>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Meal>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private int rowCount;
+
+    // Background loading state, only touched on the EDT
+    private int generation; // bumped by refresh() so results of older loads are dropped
+    private final Set<Integer> loadingPages = new HashSet<>();
+
+    public MealJournalTableModel(int userId, int pageSize) {
+        this.userId = userId;
+        this.pageSize = pageSize;
+        refresh();
+    }
+
+    /**
+     * Re-reads the row count in the background and drops the loaded pages once it arrives,
+     * e.g. after a meal was logged or swapped.
+     */
+    public void refresh() {
+        int refreshGeneration = ++generation;
+        loadingPages.clear();
+        async.countMealsForUser(userId).whenCompleteAsync((count, error) -> {
+            if (refreshGeneration != generation) return;
+            if (error != null) {
+                AsyncRepositories.unwrap(error).printStackTrace();
+                return;
+            }
+            pages.clear();
+            rowCount = count;
+            fireTableDataChanged();
+        }, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * @return The meal shown in the given row, or null while its page is still loading
+     * (the load is started here, so ask again once the row has been repainted).
+     */
+    public Meal getMealAt(int row) {
+        List<Meal> page = pages.get(row / pageSize);
+        if (page == null) {
+            loadAsync(row);
+            return null;
+        }
+        int index = row % pageSize;
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    /** Starts loading the page of the given row in the background, unless it is already being loaded. */
+    private void loadAsync(int row) {
+        int pageNo = row / pageSize;
+        if (!loadingPages.add(pageNo)) return;
+        int loadGeneration = generation;
+        Meal after = lastMealBefore(pageNo);
+        CompletableFuture<List<Meal>> load = after != null ? async.getMealPage(userId, after, pageSize)
+                : async.getMealPage(userId, pageNo * pageSize, pageSize);
+        load.whenCompleteAsync((page, error) -> {
+            if (loadGeneration != generation) return;
+            loadingPages.remove(pageNo);
+            if (error != null) {
+                AsyncRepositories.unwrap(error).printStackTrace();
+                return;
+            }
+            pages.put(pageNo, page);
+            if (isShort(pageNo, page)) {
+                // The journal shrank since it was counted.
+                refresh();
+                return;
+            }
+            fireTableRowsUpdated(pageNo * pageSize, Math.min(rowCount, (pageNo + 1) * pageSize) - 1);
+        }, SwingUtilities::invokeLater);
+    }
+
+    /** @return The last meal of the previous page if it is loaded, to continue from it; otherwise null. */
+    private Meal lastMealBefore(int pageNo) {
+        if (pageNo == 0) return null;
+        List<Meal> previous = pages.get(pageNo - 1);
+        return previous != null && previous.size() == pageSize ? previous.get(pageSize - 1) : null;
+    }
+
+    private boolean isShort(int pageNo, List<Meal> page) {
+        return page.size() < Math.min(pageSize, rowCount - pageNo * pageSize);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        List<Meal> page = pages.get(row / pageSize);
+        if (page == null) {
+            loadAsync(row);
+            return column == 0 ? "Loading..." : "";
+        }
+        if (row % pageSize >= page.size()) return ""; // the journal shrank; refresh() is pending
+        Meal meal = page.get(row % pageSize);
+        switch (column) {
+            case 0:
+                return sdf.format(meal.getDate());
+            case 1:
+                return meal.getMealType() + (meal.isSwapped() ? " (Swapped)" : "");
+            case 2:
+                return meal.getIngredients().replace("\n", ", ");
+            default:
+                return String.format("%.2f", meal.getEstimatedCalories());
+        }
+    }
+}
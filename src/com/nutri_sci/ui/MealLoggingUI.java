@@ -42,6 +42,7 @@ public class MealLoggingUI extends JFrame {
         ingredientsPanel.setBorder(new TitledBorder("Enter Ingredients (one per line, e.g., '100g chicken')"));
         ingredientsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
         ingredientsPanel.add(new JScrollPane(ingredientsArea), BorderLayout.CENTER);
+        new IngredientAutocomplete(ingredientsArea);
         mainPanel.add(ingredientsPanel, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
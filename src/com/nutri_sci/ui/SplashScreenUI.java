@@ -1,6 +1,6 @@
 package com.nutri_sci.ui;
 
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.Repositories;
 import com.nutri_sci.model.UserProfile;
 
 import javax.swing.*;
@@ -43,7 +43,7 @@ public class SplashScreenUI extends JFrame {
         });
 
         loadProfileButton.addActionListener(e -> {
-            Object[] users = DBManager.getInstance().getAllUserNames().toArray();
+            Object[] users = Repositories.getProfiles().getAllUserNames().toArray();
             if (users.length == 0) {
                 JOptionPane.showMessageDialog(this, "No profiles found. Please create one.", "Load Profile", JOptionPane.INFORMATION_MESSAGE);
                 return;
@@ -52,7 +52,7 @@ public class SplashScreenUI extends JFrame {
                     "Load Profile", JOptionPane.PLAIN_MESSAGE, null, users, users[0]);
 
             if (selectedUser != null) {
-                UserProfile profile = DBManager.getInstance().getProfile(selectedUser);
+                UserProfile profile = Repositories.getProfiles().getProfile(selectedUser);
                 launchMainApplication(profile);
             }
         });
@@ -6,6 +6,7 @@ import com.nutri_sci.service.NutrientCalculator;
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -18,13 +19,8 @@ public class SwapComparisonUI extends JFrame {
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        // Ensure nutrient data is available
-        if (originalMeal.getNutrientBreakdown() == null) {
-            originalMeal.setNutrientBreakdown(new NutrientCalculator().calculateNutrientsForMeal(originalMeal.getIngredients()));
-        }
-        if (swappedMeal.getNutrientBreakdown() == null) {
-            swappedMeal.setNutrientBreakdown(new NutrientCalculator().calculateNutrientsForMeal(swappedMeal.getIngredients()));
-        }
+        // Ensure nutrient data is available; stored totals are reused and missing ones calculated
+        new NutrientCalculator().getMealNutrients(Arrays.asList(originalMeal, swappedMeal));
 
         JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
                 createMealPanel("Original Meal", originalMeal),
@@ -45,7 +41,7 @@ public class SwapComparisonUI extends JFrame {
         JTextArea nutrientsArea = new JTextArea(15, 30);
         nutrientsArea.setEditable(false);
         nutrientsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        Map<String, Double> nutrients = meal.getNutrientBreakdown();
+        Map<String, Double> nutrients = meal.getNutrientBreakdown().toMap();
         StringBuilder sb = new StringBuilder();
         for (Map.Entry<String, Double> entry : nutrients.entrySet()) {
             sb.append(String.format("%-15s: %.2f\n", entry.getKey(), entry.getValue()));
@@ -1,7 +1,9 @@
 package com.nutri_sci.ui;
 
 import com.nutri_sci.controller.VisualizationController;
-import com.nutri_sci.database.DBManager;
+import com.nutri_sci.database.AsyncRepositories;
+import com.nutri_sci.database.Repositories;
+import com.nutri_sci.model.DailyIntakeReport;
 import com.nutri_sci.model.UserProfile;
 import com.nutri_sci.service.CanadaFoodGuideService;
 import com.nutri_sci.service.ChartRenderer;
@@ -18,6 +20,10 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
 
 public class VisualizationHubUI extends JFrame {
 
@@ -32,6 +38,7 @@ public class VisualizationHubUI extends JFrame {
     private JPanel macroChartPanel; // Panel for the macronutrient chart
     private JPanel microChartPanel; // Panel for the micronutrient chart
     private JLabel rdaLabel;
+    private CompletableFuture<DailyIntakeReport> pendingIntakeQuery; // cancelled when a newer report is requested
 
     // Components for Swap Effect Tab
     private JSpinner swapStartDateSpinner;
@@ -39,6 +46,7 @@ public class VisualizationHubUI extends JFrame {
     private JComboBox<String> nutrientComboBox;
     private JComboBox<String> chartTypeComboBox;
     private JPanel swapChartPanel;
+    private CompletableFuture<DefaultCategoryDataset<String, String>> pendingSwapQuery; // cancelled when a newer chart is requested
 
     // Components for CFG Alignment Tab
     private JSpinner cfgStartDateSpinner;
@@ -71,7 +79,7 @@ public class VisualizationHubUI extends JFrame {
     }
 
     private void setSmartDefaultDate() {
-        Date mostRecentMealDate = DBManager.getInstance().getMostRecentMealDate(userProfile.getId());
+        Date mostRecentMealDate = Repositories.getMeals().getMostRecentMealDate(userProfile.getId());
         if (mostRecentMealDate != null) {
             intakeStartDateSpinner.setValue(mostRecentMealDate);
             intakeEndDateSpinner.setValue(mostRecentMealDate);
@@ -211,36 +219,71 @@ public class VisualizationHubUI extends JFrame {
             return;
         }
 
+        // Build the whole report once off the EDT and render it on the EDT
+        if (pendingIntakeQuery != null) pendingIntakeQuery.cancel(true);
+        CompletableFuture<DailyIntakeReport> report = AsyncRepositories.getInstance()
+                .supply(() -> controller.createDailyIntakeReport(startDate, endDate));
+        pendingIntakeQuery = report;
+        rdaLabel.setText("Loading report...");
+
+        report.whenCompleteAsync((result, error) -> {
+            if (pendingIntakeQuery != report) return; // superseded by a newer report
+            pendingIntakeQuery = null;
+            Throwable cause = error == null ? null : AsyncRepositories.unwrap(error);
+            if (cause instanceof CancellationException) {
+                rdaLabel.setText(" ");
+            } else if (cause != null) {
+                cause.printStackTrace();
+                rdaLabel.setText(" ");
+                String message = cause instanceof TimeoutException ? "Loading the report timed out." : "Could not load the report.";
+                JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                showDailyIntakeReport(result);
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void showDailyIntakeReport(DailyIntakeReport report) {
         // Generate Macro Chart
-        DefaultPieDataset macroDataset = controller.createMacroNutrientDataset(startDate, endDate);
         macroChartPanel.removeAll();
-        if (macroDataset.getKeys().stream().mapToDouble(key -> macroDataset.getValue((Comparable) key).doubleValue()).sum() == 0) {
+        if (report.getMacroNutrients().values().stream().mapToDouble(Double::doubleValue).sum() == 0) {
             macroChartPanel.add(new JLabel("No data found for the selected period.", SwingConstants.CENTER));
         } else {
             chartRenderer.setFactory(new PieChartFactory("Macronutrient Distribution (g)"));
-            JFreeChart macroChart = chartRenderer.renderChart(macroDataset);
+            JFreeChart macroChart = chartRenderer.renderChart(toPieDataset(report.getMacroNutrients()));
             macroChartPanel.add(new ChartPanel(macroChart), BorderLayout.CENTER);
         }
 
         //Generate Micro Chart
-        DefaultPieDataset microDataset = controller.createMicroNutrientDataset(startDate, endDate);
         microChartPanel.removeAll();
-        if (microDataset.getItemCount() == 0) {
+        if (report.getMicroNutrients().isEmpty()) {
             microChartPanel.add(new JLabel("No other nutrient data found.", SwingConstants.CENTER));
         } else {
             chartRenderer.setFactory(new PieChartFactory("Top 5 Other Nutrients"));
-            JFreeChart microChart = chartRenderer.renderChart(microDataset);
+            JFreeChart microChart = chartRenderer.renderChart(toPieDataset(report.getMicroNutrients()));
             microChartPanel.add(new ChartPanel(microChart), BorderLayout.CENTER);
         }
 
         // Update RDA Message
-        String rdaMessage = controller.getRdaComparisonMessage(startDate, endDate);
-        rdaLabel.setText(rdaMessage);
+        rdaLabel.setText(report.getRdaComparisonMessage());
 
         revalidate();
         repaint();
     }
 
+    private static DefaultPieDataset<String> toPieDataset(Map<String, Double> values) {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+        values.forEach(dataset::setValue);
+        return dataset;
+    }
+
+    @Override
+    public void dispose() {
+        if (pendingIntakeQuery != null) pendingIntakeQuery.cancel(true);
+        if (pendingSwapQuery != null) pendingSwapQuery.cancel(true);
+        super.dispose();
+    }
+
     private void generateSwapEffectChart() {
         Date startDate = (Date) swapStartDateSpinner.getValue();
         Date endDate = (Date) swapEndDateSpinner.getValue();
@@ -251,8 +294,39 @@ public class VisualizationHubUI extends JFrame {
 
         String nutrient = (String) nutrientComboBox.getSelectedItem();
         String chartType = (String) chartTypeComboBox.getSelectedItem();
-        DefaultCategoryDataset dataset = controller.createSwapEffectDataset(startDate, endDate, nutrient);
 
+        // The first query for a user builds the nutrient time series, so it runs off the EDT
+        if (pendingSwapQuery != null) pendingSwapQuery.cancel(true);
+        CompletableFuture<DefaultCategoryDataset<String, String>> query = AsyncRepositories.getInstance()
+                .supply(() -> controller.createSwapEffectDataset(startDate, endDate, nutrient));
+        pendingSwapQuery = query;
+        swapChartPanel.removeAll();
+        swapChartPanel.add(new JLabel("Loading chart...", SwingConstants.CENTER));
+        revalidate();
+        repaint();
+
+        query.whenCompleteAsync((dataset, error) -> {
+            if (pendingSwapQuery != query) return; // superseded by a newer chart
+            pendingSwapQuery = null;
+            Throwable cause = error == null ? null : AsyncRepositories.unwrap(error);
+            if (cause instanceof CancellationException) {
+                swapChartPanel.removeAll();
+                revalidate();
+                repaint();
+            } else if (cause != null) {
+                cause.printStackTrace();
+                swapChartPanel.removeAll();
+                revalidate();
+                repaint();
+                String message = cause instanceof TimeoutException ? "Loading the chart timed out." : "Could not load the chart.";
+                JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                showSwapEffectChart(dataset, nutrient, chartType);
+            }
+        }, SwingUtilities::invokeLater);
+    }
+
+    private void showSwapEffectChart(DefaultCategoryDataset<String, String> dataset, String nutrient, String chartType) {
         if (dataset == null || dataset.getRowCount() == 0) {
             swapChartPanel.removeAll();
             swapChartPanel.add(new JLabel("No swapped meals found in the selected period to compare.", SwingConstants.CENTER));